@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.dao.impl.SchemaMigrator;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Состояние бенчмарков, работающих с приложением целиком.
+ * Перед запуском контекста Spring новая БД создается миграциями и заполняется DataGenerator, поэтому
+ * индексы в памяти (граф друзей, матрица лайков, поисковый индекс, рейтинг) строятся при старте так же,
+ * как в работающем приложении. Веб-сервер не запускается, снимки БД и фоновые задачи не мешают замерам.
+ * Свойства приложения передаются как аргументы командной строки, чтобы они имели приоритет над
+ * application.properties. Масштаб данных задается параметрами JMH, например -p users=100000 -p films=50000
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+    @Param("10000")
+    public int users;
+    @Param("5000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+    @Param("20")
+    public int friendsPerUser;
+    @Param("42")
+    public long seed;
+
+    protected DataGenerator generator;
+    protected ConfigurableApplicationContext context;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        directory = Files.createTempDirectory("filmorate-bench");
+        generator = new DataGenerator(seed, users, films, likesPerUser, friendsPerUser);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("filmorate.storage.mode", "memory");
+        properties.put("filmorate.storage.memory.url", "jdbc:h2:mem:bench-" + directory.getFileName()
+                + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("filmorate.storage.file.url", "jdbc:h2:file:" + directory.resolve("filmorate")
+                + ";CACHE_SIZE=65536;LOCK_TIMEOUT=10000;DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("filmorate.storage.snapshot.path", directory.resolve("snapshot.zip").toString());
+        properties.put("filmorate.storage.snapshot.interval", "1h");
+        configure(properties);
+
+        String mode = (String) properties.get("filmorate.storage.mode");
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                (String) properties.get("filmorate.storage." + mode + ".url"), "sa", "password");
+        new SchemaMigrator(dataSource, "classpath*:db/migration/", Optional.empty()).migrate();
+        generator.seed(dataSource);
+
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Метод изменения свойств приложения в состояниях отдельных бенчмарков
+     * @param properties - свойства, с которыми запускается контекст
+     */
+    protected void configure(Map<String, Object> properties) {
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public DataGenerator getGenerator() {
+        return generator;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Сравнение двух файлов результатов JMH в формате JSON, например результатов двух коммитов.
+ * Бенчмарки сопоставляются по имени, режиму и параметрам. Для каждого выводится основной показатель
+ * и объем выделенной памяти на операцию (gc.alloc.rate.norm) в обоих файлах и изменение в процентах.
+ * Изменение основного показателя в худшую сторону больше порога считается регрессией; для режима thrpt
+ * хуже - меньше, для остальных режимов - больше. Размер структуры в памяти (счетчик bytes) сравнивается
+ * отдельной строкой, его рост больше порога тоже считается регрессией. При регрессиях программа
+ * завершается с кодом 1.
+ * Аргументы: базовый файл, новый файл, порог в процентах (по умолчанию 10)
+ */
+public final class BenchmarkComparison {
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    private static final String RETAINED = "bytes";
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: BenchmarkComparison <base.json> <current.json> [порог, %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        Map<String, JsonNode> base = read(Paths.get(args[0]));
+        Map<String, JsonNode> current = read(Paths.get(args[1]));
+
+        int regressions = 0;
+        System.out.printf("%-90s %14s %14s %9s %12s %12s %9s%n", "Бенчмарк", "База", "Текущий", "Изм., %",
+                "Память, Б", "Память, Б", "Изм., %");
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode result = entry.getValue();
+            JsonNode previous = base.get(entry.getKey());
+            double score = result.path("primaryMetric").path("score").asDouble();
+            double allocation = result.path("secondaryMetrics").path(ALLOCATION).path("score").asDouble(Double.NaN);
+            if (previous == null) {
+                System.out.printf("%-90s %14s %14.3f %9s %12s %12s %9s%n", entry.getKey(), "-", score, "-",
+                        "-", bytes(allocation), "-");
+                continue;
+            }
+            double previousScore = previous.path("primaryMetric").path("score").asDouble();
+            double previousAllocation = previous.path("secondaryMetrics").path(ALLOCATION).path("score")
+                    .asDouble(Double.NaN);
+            double change = percent(previousScore, score);
+            boolean higherIsBetter = "thrpt".equals(result.path("mode").asText());
+            boolean regression = higherIsBetter ? change < -threshold : change > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-90s %14.3f %14.3f %+9.1f %12s %12s %9s%s%n", entry.getKey(), previousScore,
+                    score, change, bytes(previousAllocation), bytes(allocation),
+                    Double.isNaN(previousAllocation + allocation) ? "-"
+                            : String.format("%+.1f", percent(previousAllocation, allocation)),
+                    regression ? "  РЕГРЕССИЯ" : "");
+            if (result.path("secondaryMetrics").has(RETAINED)) {
+                double retained = result.path("secondaryMetrics").path(RETAINED).path("score").asDouble();
+                double previousRetained = previous.path("secondaryMetrics").path(RETAINED).path("score")
+                        .asDouble(retained);
+                double retainedChange = percent(previousRetained, retained);
+                if (retainedChange > threshold) {
+                    regressions++;
+                }
+                System.out.printf("%-90s %14.0f %14.0f %+9.1f%s%n", entry.getKey() + " :" + RETAINED,
+                        previousRetained, retained, retainedChange, retainedChange > threshold ? "  РЕГРЕССИЯ" : "");
+            }
+        }
+        for (String key : base.keySet()) {
+            if (!current.containsKey(key)) {
+                System.out.printf("%-90s нет в новых результатах%n", key);
+            }
+        }
+        System.out.printf("Регрессий больше %.1f%%: %d%n", threshold, regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Метод чтения файла результатов JMH
+     * @param path - путь к файлу
+     * @return - Map, ключ - имя бенчмарка, режим и параметры, значение - результат бенчмарка
+     */
+    private static Map<String, JsonNode> read(Path path) throws IOException {
+        Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(path.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("ru.yandex.practicum.filmorate.benchmark.", ""))
+                    .append(' ').append(result.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(),
+                    param.getValue().asText()));
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static String bytes(double allocation) {
+        return Double.isNaN(allocation) ? "-" : String.format("%.0f", allocation);
+    }
+
+    private static double percent(double previous, double current) {
+        return previous == 0 ? 0 : (current - previous) / previous * 100;
+    }
+}
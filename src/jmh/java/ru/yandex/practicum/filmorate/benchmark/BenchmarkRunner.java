@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Запуск бенчмарков JMH с настройками по умолчанию для сравнения коммитов.
+ * Принимает обычные аргументы JMH (регулярное выражение имен бенчмарков, -p, -f, -wi, -i и т.д.).
+ * Если формат и файл результатов не заданы, результаты пишутся в JSON в target/jmh/result.json;
+ * профилировщик gc добавляется всегда, чтобы в результатах был объем выделенной памяти на операцию.
+ * Два файла результатов сравнивает BenchmarkComparison
+ */
+public final class BenchmarkRunner {
+    private static final Path DEFAULT_RESULT = Paths.get("target", "jmh", "result.json");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        Path result = commandLine.getResult().hasValue() ? Paths.get(commandLine.getResult().get()) : DEFAULT_RESULT;
+        options.result(result.toString());
+        if (result.getParent() != null) {
+            Files.createDirectories(result.getParent());
+        }
+        if (commandLine.getProfilers().stream().noneMatch(profiler -> profiler.getKlass().equals("gc"))) {
+            options.addProfiler(GCProfiler.class);
+        }
+        Runner runner = new Runner(options.build());
+        if (commandLine.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
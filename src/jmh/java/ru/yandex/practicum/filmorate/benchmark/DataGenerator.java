@@ -0,0 +1,322 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Генератор тестовых данных для бенчмарков: пользователи, фильмы, лайки и друзья.
+ * Данные полностью определяются зерном и масштабом: при одинаковых параметрах генерируются одни и те же
+ * строки в одном и том же порядке, поэтому результаты бенчмарков разных коммитов сравнимы.
+ * Каждый вид данных берет случайные числа из своего генератора, производного от зерна, поэтому изменение
+ * числа лайков не меняет, например, названия фильмов.
+ * Id пользователей и фильмов - номера от 1 до users и от 1 до films, как их выдает пустая БД.
+ * Популярность фильмов неравномерна: номер фильма для лайка выбирается со смещением к началу каталога
+ */
+public class DataGenerator {
+    /**
+     * Слоги, из которых составляется словарь слов названий и описаний
+     */
+    private static final String[] SYLLABLES = {"ка", "ро", "ми", "ла", "то", "ре", "ну", "сы", "во", "да",
+            "зе", "пи", "ко", "ша", "лю", "ген", "мар", "тор", "вин", "сол"};
+    private static final int VOCABULARY_SIZE = 2000;
+    private static final int GENRES = 6;
+    private static final int MPA_RATINGS = 5;
+
+    private final long seed;
+    private final int users;
+    private final int films;
+    private final int likesPerUser;
+    private final int friendsPerUser;
+    private final String[] vocabulary;
+
+    public DataGenerator(long seed, int users, int films, int likesPerUser, int friendsPerUser) {
+        this.seed = seed;
+        this.users = users;
+        this.films = films;
+        this.likesPerUser = Math.min(likesPerUser, films);
+        this.friendsPerUser = Math.min(friendsPerUser, Math.max(users - 1, 0));
+        this.vocabulary = buildVocabulary(random(0));
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getFilms() {
+        return films;
+    }
+
+    /**
+     * Метод получения слова словаря, из которого составляются названия и описания фильмов
+     * @param index - номер слова, берется по модулю размера словаря
+     * @return - слово
+     */
+    public String word(int index) {
+        return vocabulary[Math.floorMod(index, vocabulary.length)];
+    }
+
+    /**
+     * Метод генерации пользователя с номером n. Email и логин уникальны для каждого номера
+     * @param n - номер пользователя, начиная с 1
+     * @return - пользователь без id
+     */
+    public User user(long n) {
+        SplittableRandom random = random(n * 31 + 1);
+        User user = new User("user" + n + "@bench.test", "user" + n,
+                LocalDate.of(1950, 1, 1).plusDays(random.nextInt(365 * 55)));
+        user.setName(word(random.nextInt(VOCABULARY_SIZE)) + " " + word(random.nextInt(VOCABULARY_SIZE)));
+        return user;
+    }
+
+    /**
+     * Метод генерации фильма с номером n: название из 1-3 слов, описание из 5-15 слов,
+     * дата выпуска с 1950 по 2022 год, 0-2 жанра
+     * @param n - номер фильма, начиная с 1
+     * @return - фильм без id
+     */
+    public Film film(long n) {
+        SplittableRandom random = random(n * 31 + 2);
+        Film film = new Film(words(random, 1 + random.nextInt(3)), words(random, 5 + random.nextInt(11)),
+                LocalDate.of(1950, 1, 1).plusDays(random.nextInt(365 * 73)), 60 + random.nextInt(120));
+        film.setMpa(new Mpa(1 + random.nextInt(MPA_RATINGS), null));
+        int genres = random.nextInt(3);
+        for (int i = 0; i < genres; i++) {
+            film.getGenres().add(new Genre(1 + random.nextInt(GENRES), null));
+        }
+        return film;
+    }
+
+    /**
+     * Метод получения списка всех пользователей
+     * @return - пользователи с номерами от 1 до users
+     */
+    public List<User> users() {
+        List<User> result = new ArrayList<>(users);
+        for (int n = 1; n <= users; n++) {
+            result.add(user(n));
+        }
+        return result;
+    }
+
+    /**
+     * Метод получения списка всех фильмов
+     * @return - фильмы с номерами от 1 до films
+     */
+    public List<Film> films() {
+        List<Film> result = new ArrayList<>(films);
+        for (int n = 1; n <= films; n++) {
+            result.add(film(n));
+        }
+        return result;
+    }
+
+    /**
+     * Метод перебора лайков: каждый пользователь ставит лайк likesPerUser разным фильмам
+     * @param consumer - получатель пар id фильма и id пользователя
+     */
+    public void forEachLike(IdPairConsumer consumer) {
+        for (long userId = 1; userId <= users; userId++) {
+            for (int filmId : likesOf(userId, likesPerUser)) {
+                consumer.accept(filmId, userId);
+            }
+        }
+    }
+
+    /**
+     * Метод выбора фильмов, которым пользователь ставит лайк. Фильмы пользователя не зависят
+     * от остальных пользователей, поэтому так же выбираются лайки пользователей, добавленных бенчмарком
+     * @param userId - id пользователя
+     * @param count - количество лайков, не больше числа фильмов
+     * @return - отсортированный массив id фильмов
+     */
+    public int[] likesOf(long userId, int count) {
+        return distinct(random(userId * 31 + 3), Math.min(count, films), films, true);
+    }
+
+    /**
+     * Метод перебора друзей: каждый пользователь добавляет в друзья friendsPerUser других пользователей.
+     * Дружба односторонняя, как в приложении
+     * @param consumer - получатель пар id пользователя и id друга
+     */
+    public void forEachFriend(IdPairConsumer consumer) {
+        SplittableRandom random = random(4);
+        for (long userId = 1; userId <= users; userId++) {
+            int[] friends = distinct(random, friendsPerUser + 1, users, false);
+            int added = 0;
+            for (int i = 0; i < friends.length && added < friendsPerUser; i++) {
+                if (friends[i] != userId) {
+                    consumer.accept(userId, friends[i]);
+                    added++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Метод заполнения пустой БД с примененными миграциями. Строки вставляются пакетами в одной транзакции,
+     * счетчики like_count пересчитываются после вставки лайков
+     * @param dataSource - источник данных БД
+     */
+    public void seed(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "insert into users(name, email, login, birthday) values (?, ?, ?, ?)")) {
+                for (User user : users()) {
+                    statement.setString(1, user.getName());
+                    statement.setString(2, user.getEmail());
+                    statement.setString(3, user.getLogin());
+                    statement.setDate(4, Date.valueOf(user.getBirthday()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+            try (PreparedStatement statement = connection.prepareStatement("insert into films"
+                    + "(name, description, release_date, duration, mpa_id) values (?, ?, ?, ?, ?)");
+                 PreparedStatement genres = connection.prepareStatement(
+                         "insert into genre_film(film_id, genre_id) values (?, ?)")) {
+                long filmId = 0;
+                for (Film film : films()) {
+                    filmId++;
+                    statement.setString(1, film.getName());
+                    statement.setString(2, film.getDescription());
+                    statement.setDate(3, Date.valueOf(film.getReleaseDate()));
+                    statement.setInt(4, film.getDuration());
+                    statement.setInt(5, film.getMpa().getId());
+                    statement.addBatch();
+                    for (Genre genre : film.getGenres()) {
+                        genres.setLong(1, filmId);
+                        genres.setInt(2, genre.getId());
+                        genres.addBatch();
+                    }
+                }
+                statement.executeBatch();
+                genres.executeBatch();
+            }
+            insertPairs(connection, "insert into likes(film_id, user_id) values (?, ?)", this::forEachLike);
+            insertPairs(connection, "insert into friends(user_id, friend_id) values (?, ?)", this::forEachFriend);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("update films f set like_count = "
+                        + "(select count(*) from likes l where l.film_id = f.id)");
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Не удалось заполнить БД тестовыми данными", e);
+        }
+    }
+
+    private void insertPairs(Connection connection, String sql, Consumer<IdPairConsumer> pairs)
+            throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int[] batched = {0};
+            SQLException[] error = {null};
+            pairs.accept((first, second) -> {
+                if (error[0] != null) {
+                    return;
+                }
+                try {
+                    statement.setLong(1, first);
+                    statement.setLong(2, second);
+                    statement.addBatch();
+                    if (++batched[0] % 10_000 == 0) {
+                        statement.executeBatch();
+                    }
+                } catch (SQLException e) {
+                    error[0] = e;
+                }
+            });
+            if (error[0] != null) {
+                throw error[0];
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Метод выбора count разных номеров от 1 до bound. При skewed номера смещены к началу диапазона:
+     * квадрат равномерного числа дает распределение, в котором первые фильмы каталога популярнее остальных
+     * @return - отсортированный массив номеров
+     */
+    private static int[] distinct(SplittableRandom random, int count, int bound, boolean skewed) {
+        int[] result = new int[count];
+        int size = 0;
+        while (size < count) {
+            int candidate;
+            if (skewed) {
+                double uniform = random.nextDouble();
+                candidate = 1 + (int) (uniform * uniform * bound);
+            } else {
+                candidate = 1 + random.nextInt(bound);
+            }
+            boolean duplicate = false;
+            for (int i = 0; i < size; i++) {
+                if (result[i] == candidate) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                result[size++] = candidate;
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private String words(SplittableRandom random, int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(word(random.nextInt(VOCABULARY_SIZE)));
+        }
+        return text.toString();
+    }
+
+    private String[] buildVocabulary(SplittableRandom random) {
+        String[] words = new String[VOCABULARY_SIZE];
+        Set<String> used = new HashSet<>();
+        int size = 0;
+        while (size < VOCABULARY_SIZE) {
+            StringBuilder word = new StringBuilder();
+            int syllables = 2 + random.nextInt(3);
+            for (int i = 0; i < syllables; i++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            if (used.add(word.toString())) {
+                words[size++] = word.toString();
+            }
+        }
+        return words;
+    }
+
+    private SplittableRandom random(long stream) {
+        return new SplittableRandom(seed * 1_000_003 + stream);
+    }
+
+    /**
+     * Получатель пары id без упаковки в Long
+     */
+    @FunctionalInterface
+    public interface IdPairConsumer {
+        void accept(long first, long second);
+    }
+}
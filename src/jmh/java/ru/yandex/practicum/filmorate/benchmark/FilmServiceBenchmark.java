@@ -0,0 +1,79 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк чтения фильмов через сервисный слой с настройками по умолчанию:
+ * фильм по id, страница каталога, популярные фильмы с фильтрами и без, поиск и выгрузка каталога
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FilmServiceBenchmark {
+    private static final int PAGE = 50;
+    private static final int POPULAR = 10;
+    private static final int GENRES = 6;
+    private static final int FIRST_YEAR = 1950;
+    private static final int YEARS = 73;
+
+    @State(Scope.Benchmark)
+    public static class Films extends ApplicationState {
+        private FilmService filmService;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            filmService = getBean(FilmService.class);
+        }
+    }
+
+    @Benchmark
+    public Film findFilmById(Films state, RandomIds ids) {
+        return state.filmService.findFilmById(ids.next(state.films));
+    }
+
+    @Benchmark
+    public Page<Film> getFilmsPage(Films state, RandomIds ids) {
+        return state.filmService.getFilmsPage(ids.next(state.films) - 1, PAGE);
+    }
+
+    @Benchmark
+    public List<Film> findPopularFilms(Films state) {
+        return state.filmService.findPopularFilms(POPULAR);
+    }
+
+    @Benchmark
+    public List<Film> findPopularFilmsByGenreAndYear(Films state, RandomIds ids) {
+        return state.filmService.findPopularFilms(POPULAR, (int) ids.next(GENRES),
+                FIRST_YEAR + ids.nextInt(YEARS));
+    }
+
+    @Benchmark
+    public List<Film> searchFilms(Films state, RandomIds ids) {
+        return state.filmService.searchFilms(state.getGenerator().word(ids.nextInt(Integer.MAX_VALUE)), PAGE);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void exportFilms(Films state, Blackhole blackhole) {
+        state.filmService.exportFilms(blackhole::consume);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.impl.FriendGraph;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк графа друзей в памяти на миллионе пользователей: рекомендации друзей второго круга
+ * с ограничениями из application.properties, общие друзья и список друзей.
+ * Граф строится методом load() по строкам DataGenerator без БД
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FriendGraphBenchmark {
+    private static final int LIMIT = 10;
+    private static final int MAX_FAN_OUT = 1000;
+    private static final long TIME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Param("1000000")
+    public int users;
+    @Param("20")
+    public int friendsPerUser;
+    @Param("42")
+    public long seed;
+
+    private FriendGraph graph;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        graph = new FriendGraph(new GeneratorJdbcTemplate(new DataGenerator(seed, users, 0, 0, friendsPerUser)));
+        graph.load();
+    }
+
+    @Benchmark
+    public List<Long> suggest(RandomIds ids) {
+        return graph.suggest(ids.next(users), LIMIT, MAX_FAN_OUT, TIME_BUDGET_NANOS);
+    }
+
+    @Benchmark
+    public int[] mutualFriends(RandomIds ids) {
+        return FriendGraph.intersect(graph.friendsOf(ids.next(users)), graph.friendsOf(ids.next(users)));
+    }
+
+    @Benchmark
+    public int[] friendsOf(RandomIds ids) {
+        return graph.friendsOf(ids.next(users));
+    }
+}
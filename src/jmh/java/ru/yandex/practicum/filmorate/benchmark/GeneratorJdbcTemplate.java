@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * JdbcTemplate, отдающий строки DataGenerator вместо строк БД.
+ * Нужен бенчмаркам индексов в памяти на масштабах, которые долго загружать в H2: индексы строятся своим
+ * обычным методом load() по тем же запросам, что и в приложении. Поддерживаются только запросы загрузки
+ * индексов через RowCallbackHandler, остальные запросы завершаются UnsupportedOperationException
+ */
+public class GeneratorJdbcTemplate extends JdbcTemplate {
+    private final DataGenerator generator;
+
+    public GeneratorJdbcTemplate(DataGenerator generator) {
+        this.generator = generator;
+    }
+
+    @Override
+    public void query(String sql, RowCallbackHandler handler) {
+        Map<String, Object> row = new HashMap<>();
+        ResultSet resultSet = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    Object value = row.get(((String) args[0]).toLowerCase());
+                    switch (method.getName()) {
+                        case "getLong":
+                            return ((Number) value).longValue();
+                        case "getInt":
+                            return ((Number) value).intValue();
+                        case "getString":
+                            return value;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        Consumer<Map<String, Object>> consumer = values -> {
+            row.putAll(values);
+            try {
+                handler.processRow(resultSet);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        if (sql.contains("from likes")) {
+            generator.forEachLike((filmId, userId) -> consumer.accept(Map.of("film_id", filmId, "user_id", userId)));
+        } else if (sql.contains("from friends")) {
+            generator.forEachFriend((userId, friendId) ->
+                    consumer.accept(Map.of("user_id", userId, "friend_id", friendId)));
+        } else if (sql.contains("from users")) {
+            for (long id = 1; id <= generator.getUsers(); id++) {
+                consumer.accept(Map.of("id", id));
+            }
+        } else if (sql.contains("from films")) {
+            for (long id = 1; id <= generator.getFilms(); id++) {
+                Film film = generator.film(id);
+                consumer.accept(Map.of("id", id, "name", film.getName(), "description", film.getDescription()));
+            }
+        } else {
+            throw new UnsupportedOperationException("Запрос не поддерживается: " + sql);
+        }
+    }
+}
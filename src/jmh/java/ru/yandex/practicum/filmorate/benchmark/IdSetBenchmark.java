@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.model.IdSet;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк множества id лайков фильма: IdSet в сравнении с HashSet<Long>.
+ * Измеряются построение множества, как при загрузке лайков фильма, проверка вхождения и обход.
+ * Вспомогательный счетчик build:bytes - размер построенного множества в байтах по JOL
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdSetBenchmark {
+    private static final int PROBES = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int size;
+    @Param({"IdSet", "HashSet"})
+    public String implementation;
+    @Param("42")
+    public long seed;
+
+    private long[] ids;
+    private long[] probes;
+    private Set<Long> set;
+    private long retainedBytes;
+    private int probe;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(seed);
+        ids = new long[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = 1 + random.nextInt(size * 10);
+        }
+        set = newSet();
+        retainedBytes = GraphLayout.parseInstance(set).totalSize();
+        probes = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = i % 2 == 0 ? ids[random.nextInt(size)] : 1 + random.nextInt(size * 10);
+        }
+    }
+
+    @Benchmark
+    public Set<Long> build(Memory memory) {
+        return newSet();
+    }
+
+    @Benchmark
+    public boolean contains() {
+        probe = (probe + 1) & (PROBES - 1);
+        return set.contains(probes[probe]);
+    }
+
+    @Benchmark
+    public long iterate() {
+        long sum = 0;
+        for (Long id : set) {
+            sum += id;
+        }
+        return sum;
+    }
+
+    private Set<Long> newSet() {
+        Set<Long> result = implementation.equals("IdSet") ? new IdSet() : new HashSet<>();
+        for (long id : ids) {
+            result.add(id);
+        }
+        if (result instanceof IdSet) {
+            ((IdSet) result).trimToSize();
+        }
+        return result;
+    }
+
+    /**
+     * Размер множества. JMH обнуляет счетчик после подготовки итерации и суммирует его по итерациям
+     * измерения, поэтому размер записывается по окончании первой из них
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+        public long bytes;
+        private boolean reported;
+
+        @TearDown(Level.Iteration)
+        public void report(IterationParams params, IdSetBenchmark benchmark) {
+            if (params.getType() == IterationType.MEASUREMENT && !reported) {
+                bytes = benchmark.retainedBytes;
+                reported = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.impl.LikeMatrix;
+import ru.yandex.practicum.filmorate.dao.impl.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк пропускной способности лайков через сервисный слой с прямой записью в БД и с отложенной
+ * записью (filmorate.likes.write-behind.enabled). Каждая операция ставит лайк паре фильм-пользователь,
+ * у которой его еще нет; поставленные лайки удаляются после каждой итерации, чтобы данные
+ * не менялись от итерации к итерации
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LikeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Likes extends ApplicationState {
+        @Param({"false", "true"})
+        public boolean writeBehind;
+
+        private FilmService filmService;
+        private LikeMatrix likeMatrix;
+        private LikeWriteBuffer likeBuffer;
+        /**
+         * Поставленные бенчмарком лайки: пара id фильма и пользователя, упакованная в long
+         */
+        private final Set<Long> added = ConcurrentHashMap.newKeySet();
+
+        @Override
+        protected void configure(Map<String, Object> properties) {
+            properties.put("filmorate.likes.write-behind.enabled", writeBehind);
+        }
+
+        @Setup(Level.Trial)
+        public void setup() {
+            filmService = getBean(FilmService.class);
+            likeMatrix = getBean(LikeMatrix.class);
+            likeBuffer = getBean(LikeWriteBuffer.class);
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeAdded() {
+            for (long key : added) {
+                filmService.removeLike(key >>> 32, key & 0xFFFFFFFFL);
+            }
+            added.clear();
+            likeBuffer.flush();
+        }
+    }
+
+    @Benchmark
+    public Film addLike(Likes state, RandomIds ids) {
+        long filmId;
+        long userId;
+        do {
+            filmId = ids.next(state.films);
+            userId = ids.next(state.users);
+        } while (Arrays.binarySearch(state.likeMatrix.filmsOf(userId), (int) filmId) >= 0
+                || !state.added.add(filmId << 32 | userId));
+        return state.filmService.addLike(filmId, userId);
+    }
+}
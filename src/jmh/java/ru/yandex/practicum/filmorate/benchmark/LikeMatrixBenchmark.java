@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.impl.LikeMatrix;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк рекомендаций фильмов по матрице лайков в памяти.
+ * Рекомендации строятся для отдельного пользователя с userLikes лайками: при 1000 лайков пользователь
+ * "тяжелый" - у него много похожих пользователей, и подсчет общих лайков идет параллельно
+ * (порог filmorate.recommendations.parallel-threshold=512). Матрица строится методом load()
+ * по строкам DataGenerator без БД
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class LikeMatrixBenchmark {
+    private static final int LIMIT = 10;
+    private static final int NEIGHBOURS = 20;
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    @Param("100000")
+    public int users;
+    @Param("20000")
+    public int films;
+    @Param("20")
+    public int likesPerUser;
+    @Param({"20", "1000"})
+    public int userLikes;
+    @Param("42")
+    public long seed;
+
+    private LikeMatrix matrix;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        DataGenerator generator = new DataGenerator(seed, users, films, likesPerUser, 0);
+        matrix = new LikeMatrix(new GeneratorJdbcTemplate(generator));
+        matrix.load();
+        userId = users + 1;
+        for (int filmId : generator.likesOf(userId, userLikes)) {
+            matrix.addLike(filmId, userId);
+        }
+    }
+
+    @Benchmark
+    public List<Long> recommend() {
+        return matrix.recommend(userId, LIMIT, NEIGHBOURS, PARALLEL_THRESHOLD);
+    }
+}
@@ -0,0 +1,36 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Генератор случайных id для вызовов методов в бенчмарках. У каждого потока бенчмарка своя
+ * детерминированная последовательность, зависящая только от порядка создания потоков
+ */
+@State(Scope.Thread)
+public class RandomIds {
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
+    private final SplittableRandom random = new SplittableRandom(THREADS.incrementAndGet());
+
+    /**
+     * Метод получения случайного id
+     * @param count - количество id, id выбирается от 1 до count
+     * @return - id
+     */
+    public long next(int count) {
+        return 1 + random.nextInt(count);
+    }
+
+    /**
+     * Метод получения случайного числа
+     * @param bound - граница, число выбирается от 0 до bound - 1
+     * @return - число
+     */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.openjdk.jol.info.GraphLayout;
+import ru.yandex.practicum.filmorate.dao.impl.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк поискового индекса фильмов: поиск по слову, по префиксу слова и по названию фильма
+ * из нескольких слов, переиндексация фильма после обновления и построение индекса по каталогу.
+ * Вспомогательный счетчик load:bytes - размер индекса в байтах по JOL.
+ * Индекс строится методом load() по строкам DataGenerator без БД
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SearchIndexBenchmark {
+    private static final int LIMIT = 50;
+
+    @Param("100000")
+    public int films;
+    @Param("42")
+    public long seed;
+
+    private DataGenerator generator;
+    private GeneratorJdbcTemplate jdbcTemplate;
+    private FilmSearchIndex index;
+    private long retainedBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        generator = new DataGenerator(seed, 0, films, 0, 0);
+        jdbcTemplate = new GeneratorJdbcTemplate(generator);
+        index = new FilmSearchIndex(jdbcTemplate);
+        index.load();
+        retainedBytes = GraphLayout.parseInstance(index).subtract(GraphLayout.parseInstance(jdbcTemplate))
+                .totalSize();
+    }
+
+    @Benchmark
+    public List<Long> searchWord(RandomIds ids) {
+        return index.search(generator.word(ids.nextInt(Integer.MAX_VALUE)), LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> searchPrefix(RandomIds ids) {
+        return index.search(generator.word(ids.nextInt(Integer.MAX_VALUE)).substring(0, 3), LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> searchTitle(RandomIds ids) {
+        return index.search(generator.film(ids.next(films)).getName(), LIMIT);
+    }
+
+    @Benchmark
+    public void indexFilm(RandomIds ids) {
+        long id = ids.next(films);
+        Film film = generator.film(id);
+        film.setId(id);
+        index.indexFilm(film);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FilmSearchIndex load(Memory memory) {
+        index.load();
+        return index;
+    }
+
+    /**
+     * Размер индекса. JMH обнуляет счетчик после подготовки итерации и суммирует его по итерациям
+     * измерения, поэтому размер записывается по окончании первой из них
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Memory {
+        public long bytes;
+        private boolean reported;
+
+        @TearDown(Level.Iteration)
+        public void report(IterationParams params, SearchIndexBenchmark benchmark) {
+            if (params.getType() == IterationType.MEASUREMENT && !reported) {
+                bytes = benchmark.retainedBytes;
+                reported = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк чтения через хранилища фильмов и пользователей в трех вариантах filmorate.storage.implementation:
+ * db - запросы к БД на каждое чтение, db-cache - БД с кэшем фильмов, in-memory - хранилища в памяти
+ * с записью в БД. Чтение фильмов из БД включает сборку фильма (makeFilm) с жанрами и лайками
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+    private static final int PAGE = 50;
+    private static final int IDS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Storages extends ApplicationState {
+        @Param({"db", "db-cache", "in-memory"})
+        public String storage;
+
+        private FilmStorage filmStorage;
+        private UserStorage userStorage;
+
+        @Override
+        protected void configure(Map<String, Object> properties) {
+            properties.put("filmorate.storage.implementation", storage.equals("in-memory") ? "in-memory" : "db");
+            properties.put("filmorate.cache.films.enabled", storage.equals("db-cache"));
+        }
+
+        @Setup(Level.Trial)
+        public void setup() {
+            filmStorage = getBean(FilmStorage.class);
+            userStorage = getBean(UserStorage.class);
+        }
+    }
+
+    @Benchmark
+    public Film findFilmById(Storages state, RandomIds ids) {
+        return state.filmStorage.findFilmById(ids.next(state.films));
+    }
+
+    @Benchmark
+    public List<Film> getFilmsAfter(Storages state, RandomIds ids) {
+        return state.filmStorage.getFilmsAfter(ids.next(state.films) - 1, PAGE);
+    }
+
+    @Benchmark
+    public List<Film> findFilmsByIds(Storages state, RandomIds ids) {
+        List<Long> filmIds = new ArrayList<>(IDS);
+        for (int i = 0; i < IDS; i++) {
+            filmIds.add(ids.next(state.films));
+        }
+        return state.filmStorage.findFilmsByIds(filmIds);
+    }
+
+    @Benchmark
+    public User findUserById(Storages state, RandomIds ids) {
+        return state.userStorage.findUserById(ids.next(state.users));
+    }
+
+    @Benchmark
+    public List<User> getUsersAfter(Storages state, RandomIds ids) {
+        return state.userStorage.getUsersAfter(ids.next(state.users) - 1, PAGE);
+    }
+}
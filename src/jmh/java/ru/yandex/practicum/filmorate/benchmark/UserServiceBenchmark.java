@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.dao.impl.FriendGraph;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарк методов пользователей через сервисный слой с настройками по умолчанию: пользователь по id,
+ * страница пользователей, друзья и общие друзья, рекомендации друзей и фильмов, добавление и удаление друга
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+    private static final int PAGE = 50;
+    private static final int SUGGESTIONS = 10;
+
+    @State(Scope.Benchmark)
+    public static class Users extends ApplicationState {
+        private UserService userService;
+        private FriendGraph friendGraph;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            userService = getBean(UserService.class);
+            friendGraph = getBean(FriendGraph.class);
+        }
+    }
+
+    @Benchmark
+    public User findUserById(Users state, RandomIds ids) {
+        return state.userService.findUserById(ids.next(state.users));
+    }
+
+    @Benchmark
+    public Page<User> findUsersPage(Users state, RandomIds ids) {
+        return state.userService.findUsersPage(ids.next(state.users) - 1, PAGE);
+    }
+
+    @Benchmark
+    public List<User> findAllFriends(Users state, RandomIds ids) {
+        return state.userService.findAllFriends(ids.next(state.users));
+    }
+
+    @Benchmark
+    public List<User> findMutualFriends(Users state, RandomIds ids) {
+        return state.userService.findMutualFriends(ids.next(state.users), ids.next(state.users));
+    }
+
+    @Benchmark
+    public List<User> findFriendSuggestions(Users state, RandomIds ids) {
+        return state.userService.findFriendSuggestions(ids.next(state.users), SUGGESTIONS);
+    }
+
+    @Benchmark
+    public List<Film> findRecommendations(Users state, RandomIds ids) {
+        return state.userService.findRecommendations(ids.next(state.users), SUGGESTIONS);
+    }
+
+    /**
+     * Добавление в друзья пользователя, который еще не друг, и удаление его из друзей,
+     * чтобы граф друзей не менялся от итерации к итерации
+     */
+    @Benchmark
+    public User addAndRemoveFriend(Users state, RandomIds ids) {
+        long id = ids.next(state.users);
+        long friendId;
+        do {
+            friendId = ids.next(state.users);
+        } while (friendId == id || Arrays.binarySearch(state.friendGraph.friendsOf(id), (int) friendId) >= 0);
+        state.userService.addFriend(id, friendId);
+        return state.userService.removeFriend(id, friendId);
+    }
+}
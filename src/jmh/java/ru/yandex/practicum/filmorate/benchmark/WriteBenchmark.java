@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Бенчмарк записи фильмов и пользователей по одному и пакетами (POST /films/batch, POST /users/batch)
+ * в обоих режимах хранения filmorate.storage.mode: memory - H2 в памяти, file - H2 в файле.
+ * Результат - записанных объектов в секунду. Добавленные объекты удаляются после каждой итерации
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+    private static final int BATCH = 100;
+
+    @State(Scope.Benchmark)
+    public static class Writes extends ApplicationState {
+        @Param({"memory", "file"})
+        public String mode;
+
+        private FilmService filmService;
+        private UserService userService;
+        private JdbcTemplate jdbcTemplate;
+        /**
+         * Номер следующего генерируемого объекта: номера не повторяются, поэтому email и логины
+         * новых пользователей уникальны и после удаления добавленных объектов
+         */
+        private final AtomicLong next = new AtomicLong();
+
+        @Override
+        protected void configure(Map<String, Object> properties) {
+            properties.put("filmorate.storage.mode", mode);
+        }
+
+        @Setup(Level.Trial)
+        public void setup() {
+            filmService = getBean(FilmService.class);
+            userService = getBean(UserService.class);
+            jdbcTemplate = getBean(JdbcTemplate.class);
+            next.set(Math.max(users, films));
+        }
+
+        @TearDown(Level.Iteration)
+        public void removeAdded() {
+            List<Long> filmIds = jdbcTemplate.queryForList("select id from films where id > ?", Long.class, films);
+            filmIds.forEach(filmService::removeFilm);
+            jdbcTemplate.update("delete from users where id > ?", users);
+        }
+
+        private Film film() {
+            return generator.film(next.incrementAndGet());
+        }
+
+        private User user() {
+            return generator.user(next.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addFilms(Writes state) {
+        for (int i = 0; i < BATCH; i++) {
+            state.filmService.addFilm(state.film());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BatchResult addFilmsBatch(Writes state) {
+        List<Film> films = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            films.add(state.film());
+        }
+        return state.filmService.addFilms(films);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void createUsers(Writes state) {
+        for (int i = 0; i < BATCH; i++) {
+            state.userService.createUser(state.user());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public BatchResult createUsersBatch(Writes state) {
+        List<User> users = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            users.add(state.user());
+        }
+        return state.userService.createUsers(users);
+    }
+}
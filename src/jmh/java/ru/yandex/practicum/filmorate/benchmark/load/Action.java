@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Действие виртуального клиента. Каждое действие порождает запрос к одному из эндпоинтов
+ * FilmController или UserController; id фильмов и пользователей выбираются из диапазона, созданного
+ * DataGenerator. Фильмы выбираются со смещением к началу каталога, как лайки в DataGenerator.
+ * Действия like и friend изменяют данные только собственных пользователей клиента, поэтому клиенты
+ * не мешают друг другу и по окончании теста могут вернуть данные в исходное состояние
+ */
+public enum Action {
+    FILMS_PAGE("films-page") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/films?after&limit", "/films?after=" + client.nextInt(client.getFilms()) + "&limit=50");
+        }
+    },
+    FILM("film") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/films/{id}", "/films/" + client.popularFilm());
+        }
+    },
+    POPULAR("popular") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/films/popular", "/films/popular?count=10");
+        }
+    },
+    POPULAR_FILTERED("popular-filtered") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/films/popular?genreId&year", "/films/popular?count=10&genreId="
+                    + (1 + client.nextInt(6)) + "&year=" + (1950 + client.nextInt(73)));
+        }
+    },
+    SEARCH("search") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/films/search", "/films/search?limit=20&q="
+                    + URLEncoder.encode(client.randomWord(), StandardCharsets.UTF_8));
+        }
+    },
+    LIKE("like") {
+        @Override
+        Call call(ClientState client) {
+            return client.toggleLike();
+        }
+    },
+    USER("user") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/users/{id}", "/users/" + client.randomUser());
+        }
+    },
+    FRIENDS("friends") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/users/{id}/friends", "/users/" + client.randomUser() + "/friends");
+        }
+    },
+    COMMON_FRIENDS("common-friends") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/users/{id}/friends/common/{otherId}", "/users/" + client.randomUser()
+                    + "/friends/common/" + client.randomUser());
+        }
+    },
+    SUGGESTIONS("suggestions") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/users/{id}/friends/suggestions", "/users/" + client.randomUser()
+                    + "/friends/suggestions?limit=10");
+        }
+    },
+    RECOMMENDATIONS("recommendations") {
+        @Override
+        Call call(ClientState client) {
+            return Call.get("/users/{id}/recommendations", "/users/" + client.randomUser()
+                    + "/recommendations?limit=10");
+        }
+    },
+    FRIEND("friend") {
+        @Override
+        Call call(ClientState client) {
+            return client.toggleFriend();
+        }
+    };
+
+    private final String name;
+
+    Action(String name) {
+        this.name = name;
+    }
+
+    abstract Call call(ClientState client);
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isWrite() {
+        return this == LIKE || this == FRIEND;
+    }
+
+    /**
+     * Метод поиска действия по имени, используемому в параметре -mix
+     * @param name - имя действия, например like
+     * @return - действие
+     * @throws IllegalArgumentException - если действия с таким именем нет
+     */
+    public static Action of(String name) {
+        for (Action action : values()) {
+            if (action.name.equals(name)) {
+                return action;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестное действие: " + name);
+    }
+}
@@ -0,0 +1,48 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+/**
+ * Один HTTP-запрос нагрузочного теста.
+ * Статистика собирается по эндпоинту - методу и шаблону пути, например GET /films/{id}, а не по
+ * конкретному пути. Для запросов, изменяющих данные, onApplied обновляет состояние клиента, когда
+ * сервер подтвердил изменение
+ */
+public class Call {
+    private final String endpoint;
+    private final String method;
+    private final String path;
+    private final Runnable onApplied;
+
+    public Call(String endpoint, String method, String path, Runnable onApplied) {
+        this.endpoint = endpoint;
+        this.method = method;
+        this.path = path;
+        this.onApplied = onApplied;
+    }
+
+    public static Call get(String endpoint, String path) {
+        return new Call("GET " + endpoint, "GET", path, null);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Метод обработки ответа. Для лайков и друзей код 400 означает, что сервер уже в нужном состоянии
+     * (лайк уже есть или его уже нет), поэтому состояние клиента обновляется и в этом случае
+     * @param status - код ответа
+     */
+    public void complete(int status) {
+        if (onApplied != null && (status / 100 == 2 || status == 400)) {
+            onApplied.run();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Выполнение служебных запросов вне замеров: заполнение БД и возврат данных после теста.
+ * Запросы отправляются асинхронно, одновременно выполняется не больше parallelism запросов
+ */
+public class CallExecutor {
+    private final HttpClient http;
+    private final URI url;
+    private final Duration timeout;
+    private final int parallelism;
+    private final Semaphore permits;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public CallExecutor(HttpClient http, URI url, Duration timeout, int parallelism) {
+        this.http = http;
+        this.url = url;
+        this.timeout = timeout;
+        this.parallelism = parallelism;
+        this.permits = new Semaphore(parallelism);
+    }
+
+    /**
+     * Метод отправки запроса. Блокируется, пока выполняется parallelism запросов
+     * @param call - запрос
+     */
+    public void submit(Call call) {
+        permits.acquireUninterruptibly();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + call.getPath()))
+                .timeout(timeout)
+                .method(call.getMethod(), HttpRequest.BodyPublishers.noBody())
+                .build();
+        http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (error == null) {
+                call.complete(response.statusCode());
+            }
+            if (error != null || response.statusCode() / 100 != 2) {
+                failed.incrementAndGet();
+            }
+            completed.incrementAndGet();
+            permits.release();
+        });
+    }
+
+    /**
+     * Метод ожидания завершения всех отправленных запросов
+     * @return - число запросов, завершившихся ошибкой или кодом, отличным от 2xx
+     */
+    public long await() {
+        permits.acquireUninterruptibly(parallelism);
+        permits.release(parallelism);
+        return failed.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+}
@@ -0,0 +1,199 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import ru.yandex.practicum.filmorate.benchmark.DataGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntFunction;
+
+/**
+ * Состояние виртуального клиента: генератор случайных чисел, собственные пользователи и их лайки и друзья.
+ * Клиенту принадлежат пользователи с id, сравнимыми с номером клиента по модулю числа клиентов.
+ * Лайки и друзья пользователя берутся из DataGenerator при первом обращении и дальше изменяются
+ * вместе с данными на сервере. Клиент выполняет запросы по одному, поэтому состояние не синхронизируется
+ */
+public class ClientState {
+    private final SplittableRandom random;
+    private final DataGenerator generator;
+    private final int[][] generatedFriends;
+    private final int likesPerUser;
+    private final int friendsPerUser;
+    private final long[] ownUsers;
+    private final Action[] actions;
+    private final int[] cumulativeWeights;
+    private final Map<Long, Set<Integer>> likes = new HashMap<>();
+    private final Map<Long, Set<Integer>> friends = new HashMap<>();
+
+    public ClientState(int number, LoadOptions options, DataGenerator generator, int[][] generatedFriends) {
+        this.random = new SplittableRandom(options.getSeed() * 1_000_003 + number);
+        this.generator = generator;
+        this.generatedFriends = generatedFriends;
+        this.likesPerUser = Math.min(options.getLikesPerUser(), options.getFilms());
+        this.friendsPerUser = options.getFriendsPerUser();
+        List<Long> own = new ArrayList<>();
+        for (long userId = number + 1; userId <= options.getUsers(); userId += options.getClients()) {
+            own.add(userId);
+        }
+        this.ownUsers = own.stream().mapToLong(Long::longValue).toArray();
+        Map<Action, Integer> weights = options.getWeights();
+        this.actions = weights.keySet().toArray(new Action[0]);
+        this.cumulativeWeights = new int[actions.length];
+        int total = 0;
+        for (int i = 0; i < actions.length; i++) {
+            total += weights.get(actions[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Метод выбора следующего запроса по весам действий
+     * @return - запрос
+     */
+    public Call next() {
+        int point = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= point) {
+            i++;
+        }
+        return actions[i].call(this);
+    }
+
+    /**
+     * Метод получения запросов, возвращающих лайки и друзей собственных пользователей к данным DataGenerator
+     * @return - запросы удаления добавленных и добавления удаленных лайков и друзей
+     */
+    public List<Call> restore() {
+        List<Call> calls = new ArrayList<>();
+        likes.forEach((userId, current) -> {
+            Set<Integer> initial = toSet(generator.likesOf(userId, likesPerUser));
+            diff(current, initial, filmId -> likeCall("DELETE", filmId, userId, current, false), calls);
+            diff(initial, current, filmId -> likeCall("PUT", filmId, userId, current, true), calls);
+        });
+        friends.forEach((userId, current) -> {
+            Set<Integer> initial = toSet(generatedFriends[userId.intValue()]);
+            diff(current, initial, friendId -> friendCall("DELETE", userId, friendId, current, false), calls);
+            diff(initial, current, friendId -> friendCall("PUT", userId, friendId, current, true), calls);
+        });
+        return calls;
+    }
+
+    int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    int getFilms() {
+        return generator.getFilms();
+    }
+
+    long randomUser() {
+        return 1 + random.nextInt(generator.getUsers());
+    }
+
+    String randomWord() {
+        return generator.word(random.nextInt(Integer.MAX_VALUE));
+    }
+
+    /**
+     * Метод выбора фильма со смещением к началу каталога, как при генерации лайков
+     * @return - id фильма
+     */
+    int popularFilm() {
+        double uniform = random.nextDouble();
+        return 1 + (int) (uniform * uniform * generator.getFilms());
+    }
+
+    /**
+     * Метод выбора лайка собственного пользователя: если у пользователя не меньше лайков, чем при генерации,
+     * удаляется случайный лайк, иначе добавляется лайк популярному фильму. Число лайков остается около
+     * исходного, а популярные фильмы получают большую часть изменений
+     * @return - запрос добавления или удаления лайка
+     */
+    Call toggleLike() {
+        long userId = ownUser();
+        Set<Integer> current = likes.computeIfAbsent(userId,
+                id -> toSet(generator.likesOf(id, likesPerUser)));
+        if (!current.isEmpty() && current.size() >= likesPerUser) {
+            return likeCall("DELETE", pick(current), userId, current, false);
+        }
+        int filmId = popularFilm();
+        for (int attempt = 0; attempt < 10 && current.contains(filmId); attempt++) {
+            filmId = popularFilm();
+        }
+        return likeCall("PUT", filmId, userId, current, true);
+    }
+
+    /**
+     * Метод выбора изменения друзей собственного пользователя по тому же правилу, что и для лайков
+     * @return - запрос добавления или удаления друга
+     */
+    Call toggleFriend() {
+        long userId = ownUser();
+        Set<Integer> current = friends.computeIfAbsent(userId,
+                id -> toSet(generatedFriends[id.intValue()]));
+        if (!current.isEmpty() && current.size() >= friendsPerUser) {
+            return friendCall("DELETE", userId, pick(current), current, false);
+        }
+        int friendId = (int) randomUser();
+        for (int attempt = 0; attempt < 10 && (friendId == userId || current.contains(friendId)); attempt++) {
+            friendId = (int) randomUser();
+        }
+        if (friendId == userId) {
+            return Call.get("/users/{id}/friends", "/users/" + userId + "/friends");
+        }
+        return friendCall("PUT", userId, friendId, current, true);
+    }
+
+    private long ownUser() {
+        return ownUsers[random.nextInt(ownUsers.length)];
+    }
+
+    private int pick(Set<Integer> values) {
+        int index = random.nextInt(values.size());
+        for (int value : values) {
+            if (index-- == 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static Call likeCall(String method, int filmId, long userId, Set<Integer> current, boolean add) {
+        return new Call(method + " /films/{id}/like/{userId}", method, "/films/" + filmId + "/like/" + userId,
+                () -> apply(current, filmId, add));
+    }
+
+    private static Call friendCall(String method, long userId, int friendId, Set<Integer> current, boolean add) {
+        return new Call(method + " /users/{id}/friends/{friendId}", method, "/users/" + userId + "/friends/"
+                + friendId, () -> apply(current, friendId, add));
+    }
+
+    private static void apply(Set<Integer> current, int id, boolean add) {
+        if (add) {
+            current.add(id);
+        } else {
+            current.remove(id);
+        }
+    }
+
+    private static void diff(Set<Integer> from, Set<Integer> except, IntFunction<Call> call,
+                             List<Call> calls) {
+        for (int id : new ArrayList<>(from)) {
+            if (!except.contains(id)) {
+                calls.add(call.apply(id));
+            }
+        }
+    }
+
+    private static Set<Integer> toSet(int[] ids) {
+        Set<Integer> set = new HashSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import ru.yandex.practicum.filmorate.benchmark.DataGenerator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Заполнение пустой БД запущенного приложения данными DataGenerator через HTTP API.
+ * Пользователи и фильмы создаются пакетными эндпоинтами, лайки и друзья - обычными запросами PUT.
+ * Пустая БД выдает id по порядку, поэтому id совпадают с номерами DataGenerator; это проверяется по ответам
+ */
+public class DataSeeder {
+    private static final int CHUNK_SIZE = 1000;
+    private static final int PARALLELISM = 64;
+
+    private final HttpClient http;
+    private final URI url;
+    private final Duration timeout;
+    private final DataGenerator generator;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public DataSeeder(HttpClient http, URI url, Duration timeout, DataGenerator generator) {
+        this.http = http;
+        this.url = url;
+        this.timeout = timeout;
+        this.generator = generator;
+    }
+
+    /**
+     * Метод заполнения БД
+     * @throws IllegalStateException - если БД не пуста или сервер отклонил пакет
+     */
+    public void seed() throws IOException, InterruptedException {
+        List<?> users = generator.users();
+        for (int from = 0; from < users.size(); from += CHUNK_SIZE) {
+            postBatch("/users/batch", users.subList(from, Math.min(from + CHUNK_SIZE, users.size())), from + 1);
+        }
+        System.out.printf("Создано пользователей: %d%n", users.size());
+        List<?> films = generator.films();
+        for (int from = 0; from < films.size(); from += CHUNK_SIZE) {
+            postBatch("/films/batch", films.subList(from, Math.min(from + CHUNK_SIZE, films.size())), from + 1);
+        }
+        System.out.printf("Создано фильмов: %d%n", films.size());
+
+        CallExecutor executor = new CallExecutor(http, url, timeout, PARALLELISM);
+        generator.forEachLike((filmId, userId) -> executor.submit(new Call("PUT /films/{id}/like/{userId}", "PUT",
+                "/films/" + filmId + "/like/" + userId, null)));
+        generator.forEachFriend((userId, friendId) -> executor.submit(new Call("PUT /users/{id}/friends/{friendId}",
+                "PUT", "/users/" + userId + "/friends/" + friendId, null)));
+        long failed = executor.await();
+        System.out.printf("Добавлено лайков и друзей: %d, ошибок: %d%n", executor.getCompleted() - failed, failed);
+    }
+
+    /**
+     * Метод проверки, что БД заполнена данными с теми же параметрами генератора:
+     * последние пользователь и фильм существуют
+     * @return - true, если данные найдены
+     */
+    public boolean isSeeded() throws IOException, InterruptedException {
+        return get("/users/" + generator.getUsers()) == 200 && get("/films/" + generator.getFilms()) == 200;
+    }
+
+    private void postBatch(String path, List<?> items, long firstId) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(items)))
+                .build();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(String.format("Пакет %s отклонен с кодом %d: %s", path,
+                    response.statusCode(), response.body()));
+        }
+        JsonNode result = objectMapper.readTree(response.body());
+        JsonNode ids = result.path("ids");
+        if (result.path("errors").size() > 0 || ids.size() != items.size() || ids.path(0).asLong() != firstId) {
+            throw new IllegalStateException(String.format("Ожидались id с %d, первый id: %s, первая ошибка: %s. "
+                    + "Заполнять можно только пустую БД, например filmorate.storage.mode=memory без снимка", firstId,
+                    ids.path(0).asText(), result.path("errors").path(0).path("error").asText("-")));
+        }
+    }
+
+    private int get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + path)).timeout(timeout).GET().build();
+        return http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
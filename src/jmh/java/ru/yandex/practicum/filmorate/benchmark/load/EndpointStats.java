@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Статистика одного эндпоинта: гистограмма задержек HdrHistogram в микросекундах и счетчики ответов
+ * по классам кодов. Запросы записываются из потоков HTTP-клиента через Recorder, итоговую гистограмму
+ * накапливает поток отчета, забирая гистограммы интервалов
+ */
+public class EndpointStats {
+    /**
+     * Максимальная задержка, которую различает гистограмма; большие значения записываются как максимум
+     */
+    static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String endpoint;
+    private final Recorder recorder = new Recorder(MAX_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(MAX_LATENCY_MICROS, SIGNIFICANT_DIGITS);
+    private final LongAdder success = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private Histogram interval;
+
+    public EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Метод записи ответа сервера
+     * @param latencyNanos - задержка от назначенного времени отправки до получения ответа
+     * @param status - код ответа
+     */
+    public void record(long latencyNanos, int status) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), MAX_LATENCY_MICROS));
+        if (status / 100 == 2) {
+            success.increment();
+        } else if (status >= 500) {
+            serverErrors.increment();
+        } else {
+            clientErrors.increment();
+        }
+    }
+
+    /**
+     * Метод записи запроса, не получившего ответа: ошибка соединения или тайм-аут
+     */
+    public void fail() {
+        failures.increment();
+    }
+
+    /**
+     * Метод переноса записанных с прошлого вызова задержек в итоговую гистограмму.
+     * Вызывается только потоком отчета
+     * @return - гистограмма задержек за интервал
+     */
+    public Histogram rollInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        return interval;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public Histogram getTotal() {
+        return total;
+    }
+
+    public long getSuccess() {
+        return success.sum();
+    }
+
+    public long getClientErrors() {
+        return clientErrors.sum();
+    }
+
+    public long getServerErrors() {
+        return serverErrors.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    public long getRequests() {
+        return getSuccess() + getClientErrors() + getServerErrors() + getFailures();
+    }
+}
@@ -0,0 +1,230 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Параметры нагрузочного теста, задаются аргументами командной строки вида -имя значение.
+ * Длительности записываются так же, как в application.properties: 500ms, 30s, 5m
+ */
+public class LoadOptions {
+    private URI url = URI.create("http://localhost:8080");
+    private TrafficShape shape = TrafficShape.MIXED;
+    private final Map<Action, Integer> mix = new LinkedHashMap<>();
+    private int clients = 100;
+    private double rate;
+    private Duration think = Duration.ZERO;
+    private Duration duration = Duration.ofSeconds(60);
+    private Duration warmup = Duration.ofSeconds(10);
+    private Duration timeout = Duration.ofSeconds(30);
+    private Duration interval = Duration.ofSeconds(5);
+    private int users = 10000;
+    private int films = 5000;
+    private int likesPerUser = 20;
+    private int friendsPerUser = 20;
+    private long seed = 42;
+    private boolean seedData;
+    private long pid;
+    private int port;
+    private Path output;
+    private String label;
+
+    /**
+     * Метод разбора аргументов командной строки
+     * @param args - аргументы
+     * @return - параметры теста
+     * @throws IllegalArgumentException - если аргумент неизвестен или значение некорректно
+     */
+    public static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (name.equals("-seed-data")) {
+                options.seedData = true;
+                continue;
+            }
+            if (!name.startsWith("-") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Ожидается параметр вида -имя значение: " + name);
+            }
+            String value = args[++i];
+            switch (name) {
+                case "-url":
+                    options.url = URI.create(value.endsWith("/") ? value.substring(0, value.length() - 1) : value);
+                    break;
+                case "-shape":
+                    options.shape = TrafficShape.of(value);
+                    break;
+                case "-mix":
+                    for (String weight : value.split(",")) {
+                        String[] parts = weight.split("=");
+                        if (parts.length != 2) {
+                            throw new IllegalArgumentException("Ожидается действие=вес: " + weight);
+                        }
+                        options.mix.put(Action.of(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+                    }
+                    break;
+                case "-clients":
+                    options.clients = Integer.parseInt(value);
+                    break;
+                case "-rate":
+                    options.rate = Double.parseDouble(value);
+                    break;
+                case "-think":
+                    options.think = DurationStyle.detectAndParse(value);
+                    break;
+                case "-duration":
+                    options.duration = DurationStyle.detectAndParse(value);
+                    break;
+                case "-warmup":
+                    options.warmup = DurationStyle.detectAndParse(value);
+                    break;
+                case "-timeout":
+                    options.timeout = DurationStyle.detectAndParse(value);
+                    break;
+                case "-interval":
+                    options.interval = DurationStyle.detectAndParse(value);
+                    break;
+                case "-users":
+                    options.users = Integer.parseInt(value);
+                    break;
+                case "-films":
+                    options.films = Integer.parseInt(value);
+                    break;
+                case "-likes-per-user":
+                    options.likesPerUser = Integer.parseInt(value);
+                    break;
+                case "-friends-per-user":
+                    options.friendsPerUser = Integer.parseInt(value);
+                    break;
+                case "-seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                case "-pid":
+                    options.pid = Long.parseLong(value);
+                    break;
+                case "-port":
+                    options.port = Integer.parseInt(value);
+                    break;
+                case "-output":
+                    options.output = Paths.get(value);
+                    break;
+                case "-label":
+                    options.label = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр: " + name);
+            }
+        }
+        if (options.clients < 1) {
+            throw new IllegalArgumentException("Число клиентов должно быть положительным.");
+        }
+        if (options.clients > options.users && options.getWeights().keySet().stream().anyMatch(Action::isWrite)) {
+            throw new IllegalArgumentException("Клиентов больше, чем пользователей: каждому клиенту с записью "
+                    + "нужен хотя бы один собственный пользователь.");
+        }
+        if (options.port == 0) {
+            options.port = options.url.getPort() > 0 ? options.url.getPort() : 80;
+        }
+        if (options.output == null) {
+            options.output = Paths.get("target", "load", options.shape.name().toLowerCase() + ".json");
+        }
+        if (options.label == null) {
+            options.label = options.shape.name().toLowerCase() + "-" + options.clients;
+        }
+        return options;
+    }
+
+    /**
+     * Метод получения весов действий: веса формы нагрузки, измененные параметром -mix.
+     * Действия с нулевым весом не выполняются
+     * @return - Map, ключ - действие, значение - вес
+     */
+    public Map<Action, Integer> getWeights() {
+        Map<Action, Integer> weights = new LinkedHashMap<>(shape.getWeights());
+        weights.putAll(mix);
+        weights.values().removeIf(weight -> weight <= 0);
+        return weights;
+    }
+
+    public URI getUrl() {
+        return url;
+    }
+
+    public TrafficShape getShape() {
+        return shape;
+    }
+
+    public int getClients() {
+        return clients;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public Duration getThink() {
+        return think;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getUsers() {
+        return users;
+    }
+
+    public int getFilms() {
+        return films;
+    }
+
+    public int getLikesPerUser() {
+        return likesPerUser;
+    }
+
+    public int getFriendsPerUser() {
+        return friendsPerUser;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isSeedData() {
+        return seedData;
+    }
+
+    public long getPid() {
+        return pid;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public Path getOutput() {
+        return output;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,198 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Отчет нагрузочного теста. Пишется в два файла:
+ * JSON с параметрами запуска, итогами по эндпоинтам (запросы, пропускная способность, доли ошибок,
+ * перцентили задержек в миллисекундах), замерами сервера и итогами по интервалам - его сравнивает
+ * LoadReportComparison; и рядом файл .hgrm с полным распределением задержек каждого эндпоинта в формате
+ * HdrHistogram, который можно построить в HdrHistogram Plotter.
+ * Эндпоинты упорядочены по имени, чтобы отчеты разных запусков можно было сравнивать и обычным diff
+ */
+public class LoadReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadOptions options;
+    private final Collection<EndpointStats> endpoints;
+    private final double seconds;
+    private final int peakInFlight;
+    private final Map<String, Map<String, Object>> server;
+    private final List<Map<String, Object>> timeline;
+
+    public LoadReport(LoadOptions options, Collection<EndpointStats> endpoints, double seconds, int peakInFlight,
+                      Map<String, Map<String, Object>> server, List<Map<String, Object>> timeline) {
+        this.options = options;
+        this.endpoints = endpoints;
+        this.seconds = seconds;
+        this.peakInFlight = peakInFlight;
+        this.server = server;
+        this.timeline = timeline;
+    }
+
+    /**
+     * Метод записи отчета в файл JSON и распределений задержек в файл .hgrm рядом с ним
+     * @param path - путь к файлу JSON
+     */
+    public void write(Path path) throws IOException {
+        if (path.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(path.toAbsolutePath().getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(path.toFile(), toMap());
+        String name = path.getFileName().toString();
+        Path distribution = path.resolveSibling(name.replaceFirst("\\.json$", "") + ".hgrm");
+        try (PrintStream out = new PrintStream(Files.newOutputStream(distribution), false, StandardCharsets.UTF_8)) {
+            for (EndpointStats stats : endpoints) {
+                out.printf("# %s%n", stats.getEndpoint());
+                stats.getTotal().outputPercentileDistribution(out, 1000.0);
+                out.println();
+            }
+        }
+    }
+
+    /**
+     * Метод вывода итогов по эндпоинтам в консоль
+     * @param out - поток вывода
+     */
+    public void print(PrintStream out) {
+        out.printf("%-45s %10s %10s %8s %10s %10s %10s %10s%n", "Эндпоинт", "Запросов", "Запр./с", "Ошибок,%",
+                "p50, мс", "p99, мс", "p99.9, мс", "max, мс");
+        for (EndpointStats stats : endpoints) {
+            Histogram latency = stats.getTotal();
+            out.printf("%-45s %10d %10.1f %8.2f %10.2f %10.2f %10.2f %10.2f%n", stats.getEndpoint(),
+                    stats.getRequests(), stats.getRequests() / seconds, errorRate(stats),
+                    millis(latency.getValueAtPercentile(50)), millis(latency.getValueAtPercentile(99)),
+                    millis(latency.getValueAtPercentile(99.9)), millis(latency.getMaxValue()));
+        }
+        Map<String, Object> totals = totals();
+        out.printf("Всего: %d запросов, %.1f запр./с, ошибок %.2f%%, p99 %.2f мс, одновременных запросов до %d%n",
+                totals.get("requests"), totals.get("throughput"), totals.get("errorRate"),
+                ((Map<?, ?>) totals.get("latencyMs")).get("p99"), peakInFlight);
+        server.forEach((metric, values) -> out.printf("Сервер, %s: среднее %s, максимум %s%n", metric,
+                values.get("avg"), values.get("max")));
+    }
+
+    private Map<String, Object> toMap() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", options.getLabel());
+        report.put("timestamp", Instant.now().toString());
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("url", options.getUrl().toString());
+        run.put("shape", options.getShape().name().toLowerCase());
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        options.getWeights().forEach((action, weight) -> weights.put(action.getName(), weight));
+        run.put("weights", weights);
+        run.put("clients", options.getClients());
+        run.put("rate", options.getRate());
+        run.put("think", options.getThink().toString());
+        run.put("warmup", options.getWarmup().toString());
+        run.put("duration", options.getDuration().toString());
+        run.put("users", options.getUsers());
+        run.put("films", options.getFilms());
+        run.put("likesPerUser", options.getLikesPerUser());
+        run.put("friendsPerUser", options.getFriendsPerUser());
+        run.put("seed", options.getSeed());
+        run.put("processors", Runtime.getRuntime().availableProcessors());
+        report.put("run", run);
+        report.put("totals", totals());
+        Map<String, Object> byEndpoint = new LinkedHashMap<>();
+        for (EndpointStats stats : endpoints) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("requests", stats.getRequests());
+            values.put("throughput", round(stats.getRequests() / seconds));
+            values.put("success", stats.getSuccess());
+            values.put("clientErrors", stats.getClientErrors());
+            values.put("serverErrors", stats.getServerErrors());
+            values.put("failures", stats.getFailures());
+            values.put("errorRate", round(errorRate(stats)));
+            values.put("latencyMs", latency(stats.getTotal()));
+            byEndpoint.put(stats.getEndpoint(), values);
+        }
+        report.put("endpoints", byEndpoint);
+        report.put("server", server);
+        report.put("timeline", timeline);
+        return report;
+    }
+
+    private Map<String, Object> totals() {
+        Histogram all = new Histogram(EndpointStats.MAX_LATENCY_MICROS, 3);
+        long requests = 0;
+        long errors = 0;
+        for (EndpointStats stats : endpoints) {
+            all.add(stats.getTotal());
+            requests += stats.getRequests();
+            errors += stats.getRequests() - stats.getSuccess();
+        }
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("throughput", round(requests / seconds));
+        totals.put("errorRate", round(requests == 0 ? 0 : errors * 100.0 / requests));
+        totals.put("peakInFlight", peakInFlight);
+        totals.put("latencyMs", latency(all));
+        return totals;
+    }
+
+    /**
+     * Метод получения перцентилей задержек
+     * @param histogram - гистограмма в микросекундах
+     * @return - Map, ключ - mean, p50, p90, p99, p99.9 или max, значение - задержка в миллисекундах
+     */
+    static Map<String, Object> latency(Histogram histogram) {
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("mean", round(histogram.getTotalCount() == 0 ? 0 : histogram.getMean() / 1000));
+        for (double percentile : PERCENTILES) {
+            latency.put("p" + (percentile == (long) percentile ? String.valueOf((long) percentile)
+                    : String.valueOf(percentile)), millis(histogram.getValueAtPercentile(percentile)));
+        }
+        latency.put("max", millis(histogram.getMaxValue()));
+        return latency;
+    }
+
+    /**
+     * Доля запросов с кодом, отличным от 2xx, и запросов без ответа в процентах
+     */
+    private static double errorRate(EndpointStats stats) {
+        return stats.getRequests() == 0 ? 0 : (stats.getRequests() - stats.getSuccess()) * 100.0 / stats.getRequests();
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * Метод создания записи итогов интервала
+     * @param offset - секунда от начала замеров, на которой закончился интервал
+     * @param requests - ответов за интервал
+     * @param errors - ошибок за интервал
+     * @param seconds - длительность интервала в секундах
+     * @param latency - гистограмма задержек интервала
+     * @return - запись для раздела timeline
+     */
+    static Map<String, Object> interval(long offset, long requests, long errors, double seconds, Histogram latency) {
+        Map<String, Object> interval = new LinkedHashMap<>();
+        interval.put("second", offset);
+        interval.put("throughput", round(requests / seconds));
+        interval.put("errors", errors);
+        interval.put("p50Ms", millis(latency.getValueAtPercentile(50)));
+        interval.put("p99Ms", millis(latency.getValueAtPercentile(99)));
+        interval.put("maxMs", millis(latency.getMaxValue()));
+        return interval;
+    }
+}
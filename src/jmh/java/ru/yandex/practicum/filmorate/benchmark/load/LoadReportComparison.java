@@ -0,0 +1,109 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Сравнение двух отчетов LoadTest, например двух коммитов или двух режимов сервера.
+ * Для каждого эндпоинта и для итогов выводятся пропускная способность, p50, p99 и доля ошибок в обоих
+ * отчетах. Регрессия - падение пропускной способности или рост p99 больше порога в процентах либо рост
+ * доли ошибок больше чем на 1 процентный пункт. Замеры сервера (соединения, потоки, память) выводятся
+ * для сравнения без оценки. При регрессиях программа завершается с кодом 1.
+ * Аргументы: базовый отчет, новый отчет, порог в процентах (по умолчанию 10)
+ */
+public final class LoadReportComparison {
+    private static final double ERROR_RATE_TOLERANCE = 1.0;
+
+    private LoadReportComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: LoadReportComparison <base.json> <current.json> [порог, %]");
+            System.exit(2);
+        }
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode base = objectMapper.readTree(Paths.get(args[0]).toFile());
+        JsonNode current = objectMapper.readTree(Paths.get(args[1]).toFile());
+
+        System.out.printf("База: %s, текущий: %s%n", base.path("label").asText(), current.path("label").asText());
+        Iterator<Map.Entry<String, JsonNode>> parameters = current.path("run").fields();
+        while (parameters.hasNext()) {
+            Map.Entry<String, JsonNode> parameter = parameters.next();
+            JsonNode previous = base.path("run").path(parameter.getKey());
+            if (!previous.equals(parameter.getValue())) {
+                System.out.printf("Параметр запуска %s различается: %s и %s%n", parameter.getKey(), previous,
+                        parameter.getValue());
+            }
+        }
+
+        int regressions = 0;
+        System.out.printf("%-45s %11s %11s %8s %9s %9s %8s %9s %9s %8s %7s %7s%n", "Эндпоинт", "Запр./с",
+                "Запр./с", "Изм., %", "p50, мс", "p50, мс", "Изм., %", "p99, мс", "p99, мс", "Изм., %", "Ош., %",
+                "Ош., %");
+        regressions += compare("Всего", base.path("totals"), current.path("totals"), threshold);
+        Iterator<Map.Entry<String, JsonNode>> endpoints = current.path("endpoints").fields();
+        while (endpoints.hasNext()) {
+            Map.Entry<String, JsonNode> endpoint = endpoints.next();
+            JsonNode previous = base.path("endpoints").path(endpoint.getKey());
+            if (previous.isMissingNode()) {
+                System.out.printf("%-45s нет в базовом отчете%n", endpoint.getKey());
+                continue;
+            }
+            regressions += compare(endpoint.getKey(), previous, endpoint.getValue(), threshold);
+        }
+        Iterator<String> names = base.path("endpoints").fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!current.path("endpoints").has(name)) {
+                System.out.printf("%-45s нет в новом отчете%n", name);
+            }
+        }
+
+        Iterator<Map.Entry<String, JsonNode>> metrics = current.path("server").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            JsonNode previous = base.path("server").path(metric.getKey());
+            System.out.printf("Сервер, %-12s среднее %10s -> %-10s максимум %10s -> %s%n", metric.getKey() + ":",
+                    previous.path("avg").asText("-"), metric.getValue().path("avg").asText(),
+                    previous.path("max").asText("-"), metric.getValue().path("max").asText());
+        }
+        System.out.printf("Регрессий больше %.1f%%: %d%n", threshold, regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Метод вывода строки сравнения
+     * @return - 1, если найдена регрессия, иначе 0
+     */
+    private static int compare(String name, JsonNode base, JsonNode current, double threshold) {
+        double throughput = current.path("throughput").asDouble();
+        double previousThroughput = base.path("throughput").asDouble();
+        double p50 = current.path("latencyMs").path("p50").asDouble();
+        double previousP50 = base.path("latencyMs").path("p50").asDouble();
+        double p99 = current.path("latencyMs").path("p99").asDouble();
+        double previousP99 = base.path("latencyMs").path("p99").asDouble();
+        double errorRate = current.path("errorRate").asDouble();
+        double previousErrorRate = base.path("errorRate").asDouble();
+        double throughputChange = percent(previousThroughput, throughput);
+        double p99Change = percent(previousP99, p99);
+        boolean regression = throughputChange < -threshold || p99Change > threshold
+                || errorRate - previousErrorRate > ERROR_RATE_TOLERANCE;
+        System.out.printf("%-45s %11.1f %11.1f %+8.1f %9.2f %9.2f %+8.1f %9.2f %9.2f %+8.1f %7.2f %7.2f%s%n", name,
+                previousThroughput, throughput, throughputChange, previousP50, p50, percent(previousP50, p50),
+                previousP99, p99, p99Change, previousErrorRate, errorRate, regression ? "  РЕГРЕССИЯ" : "");
+        return regression ? 1 : 0;
+    }
+
+    private static double percent(double previous, double current) {
+        return previous == 0 ? 0 : (current - previous) / previous * 100;
+    }
+}
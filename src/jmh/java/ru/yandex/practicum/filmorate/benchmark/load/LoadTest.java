@@ -0,0 +1,274 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import org.HdrHistogram.Histogram;
+import ru.yandex.practicum.filmorate.benchmark.DataGenerator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Нагрузочный тест запущенного приложения через HTTP API FilmController и UserController.
+ * Виртуальные клиенты выполняют действия по весам формы нагрузки (-shape browse, likes, friends, mixed,
+ * веса меняются параметром -mix like=50,film=50). Каждый клиент держит не больше одного запроса, поэтому
+ * число клиентов - это число одновременных соединений с сервером.
+ * Без -rate клиенты работают в закрытом цикле: следующий запрос отправляется после ответа и паузы -think.
+ * С -rate запросы назначаются с постоянной общей частотой, а задержка отсчитывается от назначенного
+ * времени отправки, поэтому медленные ответы не занижают перцентили (coordinated omission).
+ * Перед замерами идет прогрев (-warmup), по окончании клиенты возвращают измененные лайки и друзей к данным
+ * DataGenerator, так что повторные запуски идут на тех же данных.
+ * Данные: с -seed-data пустая БД заполняется через API (удобно с filmorate.storage.mode=memory), иначе
+ * ожидается БД, заполненная раньше с теми же -users, -films, -likes-per-user, -friends-per-user и -seed.
+ * Отчет пишется в -output (по умолчанию target/load/[форма].json), два отчета сравнивает LoadReportComparison.
+ * Сравнения режимов сервера проводятся одним и тем же тестом против двух запусков приложения, с -pid
+ * процесса приложения для замеров потоков и памяти, например:
+ * пул потоков Tomcat и виртуальные потоки (filmorate.web.virtual-threads.enabled=true, Java 21) -
+ * -shape mixed -rate 5000 -clients 500, сравниваются пропускная способность и p99;
+ * стек сервлетов и реактивный стек (spring.profiles.active=reactive) - -shape browse -clients 5000,
+ * сравниваются соединения, потоки и память сервера. Для 5000 клиентов лимит открытых файлов
+ * (ulimit -n) у теста и приложения должен быть больше 5000
+ */
+public final class LoadTest {
+    private static final int RESTORE_PARALLELISM = 64;
+
+    private final LoadOptions options;
+    private final HttpClient http;
+    private final ExecutorService callbacks;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, EndpointStats> endpoints = new ConcurrentSkipListMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private long measureStart;
+    private long measureEnd;
+
+    private LoadTest(LoadOptions options) {
+        this.options = options;
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        this.callbacks = Executors.newFixedThreadPool(threads, daemon("load-http"));
+        this.scheduler = Executors.newScheduledThreadPool(2, daemon("load-timer"));
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(callbacks)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options;
+        try {
+            options = LoadOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Использование: LoadTest [-url http://localhost:8080] [-shape browse|likes|friends|mixed]"
+                    + " [-mix действие=вес,...] [-clients 100] [-rate запросов/с] [-think 0ms] [-warmup 10s]"
+                    + " [-duration 60s] [-timeout 30s] [-interval 5s] [-users 10000] [-films 5000]"
+                    + " [-likes-per-user 20] [-friends-per-user 20] [-seed 42] [-seed-data] [-pid pid приложения]"
+                    + " [-port порт приложения] [-output target/load/форма.json] [-label метка]");
+            System.exit(2);
+            return;
+        }
+        LoadTest test = new LoadTest(options);
+        try {
+            test.run();
+        } finally {
+            test.callbacks.shutdownNow();
+            test.scheduler.shutdownNow();
+        }
+    }
+
+    private void run() throws IOException, InterruptedException {
+        DataGenerator generator = new DataGenerator(options.getSeed(), options.getUsers(), options.getFilms(),
+                options.getLikesPerUser(), options.getFriendsPerUser());
+        DataSeeder seeder = new DataSeeder(http, options.getUrl(), options.getTimeout(), generator);
+        if (options.isSeedData()) {
+            seeder.seed();
+        } else if (!seeder.isSeeded()) {
+            throw new IllegalStateException(String.format("В %s нет пользователя %d или фильма %d: заполните БД "
+                    + "параметром -seed-data", options.getUrl(), options.getUsers(), options.getFilms()));
+        }
+        if (options.getDuration().isZero()) {
+            return;
+        }
+
+        int[][] friends = friendsOf(generator);
+        List<VirtualClient> clients = new ArrayList<>();
+        for (int i = 0; i < options.getClients(); i++) {
+            clients.add(new VirtualClient(new ClientState(i, options, generator, friends)));
+        }
+        ServerSampler sampler = new ServerSampler(options.getPid(), options.getPort());
+        List<Map<String, Object>> timeline = new ArrayList<>();
+
+        long start = System.nanoTime();
+        measureStart = start + options.getWarmup().toNanos();
+        measureEnd = measureStart + options.getDuration().toNanos();
+        CountDownLatch finished = new CountDownLatch(clients.size());
+        long spread = options.getRate() > 0 ? clientInterval() : TimeUnit.MILLISECONDS.toNanos(100);
+        for (int i = 0; i < clients.size(); i++) {
+            clients.get(i).start(start + spread * i / clients.size(), finished);
+        }
+        System.out.printf("Нагрузка %s: %d клиентов%s, прогрев %s, замер %s%n", options.getLabel(),
+                options.getClients(), options.getRate() > 0 ? String.format(", %.0f запр./с", options.getRate())
+                        : "", options.getWarmup(), options.getDuration());
+
+        sleepUntil(measureStart);
+        ScheduledFuture<?> sampling = scheduler.scheduleAtFixedRate(sampler::sample, 0, 1, TimeUnit.SECONDS);
+        long intervalNanos = options.getInterval().toNanos();
+        long previous = measureStart;
+        long errors = 0;
+        while (previous < measureEnd) {
+            long next = Math.min(previous + intervalNanos, measureEnd);
+            sleepUntil(next);
+            Histogram latency = new Histogram(EndpointStats.MAX_LATENCY_MICROS, 3);
+            long failed = 0;
+            for (EndpointStats stats : endpoints.values()) {
+                latency.add(stats.rollInterval());
+                failed += stats.getRequests() - stats.getSuccess();
+            }
+            double seconds = (next - previous) / 1e9;
+            Map<String, Object> interval = LoadReport.interval(TimeUnit.NANOSECONDS.toSeconds(next - measureStart),
+                    latency.getTotalCount(), failed - errors, seconds, latency);
+            timeline.add(interval);
+            System.out.printf("%4d с: %10.1f запр./с, p50 %8.2f мс, p99 %8.2f мс, ошибок %d, в работе %d%n",
+                    interval.get("second"), interval.get("throughput"), interval.get("p50Ms"), interval.get("p99Ms"),
+                    failed - errors, inFlight.get());
+            errors = failed;
+            previous = next;
+        }
+        sampling.cancel(false);
+        if (!finished.await(options.getTimeout().toSeconds() + 5, TimeUnit.SECONDS)) {
+            System.out.printf("Не дождались ответа на %d запросов%n", finished.getCount());
+        }
+        for (EndpointStats stats : endpoints.values()) {
+            stats.rollInterval();
+        }
+
+        LoadReport report = new LoadReport(options, endpoints.values(), options.getDuration().toMillis() / 1000.0,
+                peakInFlight.get(), sampler.summary(), timeline);
+        report.print(System.out);
+        report.write(options.getOutput());
+        System.out.printf("Отчет: %s%n", options.getOutput());
+
+        CallExecutor restore = new CallExecutor(http, options.getUrl(), options.getTimeout(), RESTORE_PARALLELISM);
+        for (VirtualClient client : clients) {
+            client.state.restore().forEach(restore::submit);
+        }
+        long failed = restore.await();
+        System.out.printf("Данные возвращены к исходным: %d запросов, ошибок %d%n", restore.getCompleted(), failed);
+    }
+
+    /**
+     * Интервал между запросами одного клиента при заданной общей частоте
+     */
+    private long clientInterval() {
+        return (long) (1e9 * options.getClients() / options.getRate());
+    }
+
+    private int[][] friendsOf(DataGenerator generator) {
+        int[] counts = new int[generator.getUsers() + 1];
+        generator.forEachFriend((userId, friendId) -> counts[(int) userId]++);
+        int[][] friends = new int[counts.length][];
+        for (int i = 0; i < counts.length; i++) {
+            friends[i] = new int[counts[i]];
+        }
+        int[] sizes = new int[counts.length];
+        generator.forEachFriend((userId, friendId) -> friends[(int) userId][sizes[(int) userId]++] = (int) friendId);
+        return friends;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long delay;
+        while ((delay = nanoTime - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger number = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, name + "-" + number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Виртуальный клиент: последовательно выполняет запросы, выбранные ClientState.
+     * Следующий запрос отправляется из потока обработки ответа или по таймеру, отдельного потока у клиента нет
+     */
+    private final class VirtualClient {
+        private final ClientState state;
+        private CountDownLatch finished;
+        private long scheduled;
+
+        private VirtualClient(ClientState state) {
+            this.state = state;
+        }
+
+        private void start(long first, CountDownLatch finished) {
+            this.finished = finished;
+            this.scheduled = first;
+            scheduleAt(first);
+        }
+
+        private void send() {
+            long sendTime = System.nanoTime();
+            if (sendTime >= measureEnd) {
+                finished.countDown();
+                return;
+            }
+            long startTime = options.getRate() > 0 ? scheduled : sendTime;
+            Call call = state.next();
+            HttpRequest request = HttpRequest.newBuilder(URI.create(options.getUrl() + call.getPath()))
+                    .timeout(options.getTimeout())
+                    .header("Accept", "application/json")
+                    .method(call.getMethod(), HttpRequest.BodyPublishers.noBody())
+                    .build();
+            peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                long now = System.nanoTime();
+                inFlight.decrementAndGet();
+                boolean measured = startTime >= measureStart && startTime < measureEnd;
+                EndpointStats stats = measured ? endpoints.computeIfAbsent(call.getEndpoint(), EndpointStats::new)
+                        : null;
+                if (error == null) {
+                    call.complete(response.statusCode());
+                    if (measured) {
+                        stats.record(now - startTime, response.statusCode());
+                    }
+                } else if (measured) {
+                    stats.fail();
+                }
+                if (options.getRate() > 0) {
+                    scheduled += clientInterval();
+                    scheduleAt(scheduled);
+                } else {
+                    scheduleAt(now + options.getThink().toNanos());
+                }
+            });
+        }
+
+        private void scheduleAt(long nanoTime) {
+            long delay = nanoTime - System.nanoTime();
+            if (delay > 0) {
+                scheduler.schedule(this::send, delay, TimeUnit.NANOSECONDS);
+            } else {
+                callbacks.execute(this::send);
+            }
+        }
+    }
+}
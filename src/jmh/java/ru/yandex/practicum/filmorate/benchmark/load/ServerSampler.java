@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Замеры ресурсов сервера во время теста по данным /proc (только Linux, сервер на той же машине).
+ * Открытые соединения - сокеты в состоянии ESTABLISHED с локальным портом сервера из /proc/net/tcp и
+ * /proc/net/tcp6, для этого достаточно порта. Число потоков, размер резидентной памяти и открытых
+ * файлов берутся из /proc/[pid], если задан pid процесса приложения.
+ * По этим замерам сравниваются стек сервлетов и реактивный стек или пул потоков и виртуальные потоки
+ */
+public class ServerSampler {
+    private static final String ESTABLISHED = "01";
+
+    private final long pid;
+    private final String port;
+    private final Map<String, Metric> metrics = new LinkedHashMap<>();
+
+    public ServerSampler(long pid, int port) {
+        this.pid = pid;
+        this.port = String.format("%04X", port);
+    }
+
+    /**
+     * Метод одного замера. Показатели, которые не удалось прочитать, пропускаются
+     */
+    public synchronized void sample() {
+        long ipv4 = countConnections(Paths.get("/proc/net/tcp"));
+        long ipv6 = countConnections(Paths.get("/proc/net/tcp6"));
+        if (ipv4 >= 0 || ipv6 >= 0) {
+            metric("connections").add(Math.max(ipv4, 0) + Math.max(ipv6, 0));
+        }
+        if (pid <= 0) {
+            return;
+        }
+        Path process = Paths.get("/proc", String.valueOf(pid));
+        try {
+            for (String line : Files.readAllLines(process.resolve("status"))) {
+                if (line.startsWith("Threads:")) {
+                    metric("threads").add(Long.parseLong(line.substring(8).trim()));
+                } else if (line.startsWith("VmRSS:")) {
+                    metric("rssKb").add(Long.parseLong(line.substring(6).replace("kB", "").trim()));
+                }
+            }
+            try (Stream<Path> files = Files.list(process.resolve("fd"))) {
+                metric("openFiles").add(files.count());
+            }
+        } catch (IOException | RuntimeException e) {
+            // процесс завершился или /proc недоступен, замер пропускается
+        }
+    }
+
+    /**
+     * Метод получения итогов замеров
+     * @return - Map, ключ - показатель, значение - среднее и максимальное значение
+     */
+    public synchronized Map<String, Map<String, Object>> summary() {
+        Map<String, Map<String, Object>> summary = new LinkedHashMap<>();
+        metrics.forEach((name, metric) -> {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("avg", Math.round(metric.sum / (double) metric.samples));
+            values.put("max", metric.max);
+            summary.put(name, values);
+        });
+        return summary;
+    }
+
+    private Metric metric(String name) {
+        return metrics.computeIfAbsent(name, key -> new Metric());
+    }
+
+    /**
+     * Метод подсчета соединений с портом сервера
+     * @return - число соединений или -1, если таблица сокетов недоступна
+     */
+    private long countConnections(Path table) {
+        if (!Files.isReadable(table)) {
+            return -1;
+        }
+        try {
+            List<String> lines = Files.readAllLines(table);
+            long count = 0;
+            for (String line : lines.subList(1, lines.size())) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields.length > 3 && ESTABLISHED.equals(fields[3])
+                        && fields[1].toUpperCase(Locale.ROOT).endsWith(":" + port)) {
+                    count++;
+                }
+            }
+            return count;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static class Metric {
+        private long samples;
+        private long sum;
+        private long max;
+
+        private void add(long value) {
+            samples++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.benchmark.load;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Форма нагрузки - веса действий виртуальных клиентов. Веса можно изменить параметром -mix
+ */
+public enum TrafficShape {
+    /**
+     * Просмотр каталога: страницы, карточки фильмов, популярное, поиск, профили пользователей
+     */
+    BROWSE(weights(Action.FILMS_PAGE, 15, Action.FILM, 35, Action.POPULAR, 15, Action.POPULAR_FILTERED, 5,
+            Action.SEARCH, 15, Action.USER, 10, Action.FRIENDS, 5)),
+    /**
+     * Шквал лайков: в основном добавление и удаление лайков популярным фильмам и чтение рейтинга
+     */
+    LIKES(weights(Action.LIKE, 80, Action.POPULAR, 10, Action.FILM, 10)),
+    /**
+     * Изменения графа друзей вместе с чтениями, которые от него зависят
+     */
+    FRIENDS(weights(Action.FRIEND, 50, Action.FRIENDS, 15, Action.COMMON_FRIENDS, 10, Action.SUGGESTIONS, 15,
+            Action.RECOMMENDATIONS, 10)),
+    /**
+     * Смешанная нагрузка с преобладанием чтения
+     */
+    MIXED(weights(Action.FILM, 25, Action.FILMS_PAGE, 10, Action.POPULAR, 10, Action.SEARCH, 10, Action.LIKE, 15,
+            Action.USER, 10, Action.FRIENDS, 5, Action.FRIEND, 5, Action.SUGGESTIONS, 5, Action.RECOMMENDATIONS, 5));
+
+    private final Map<Action, Integer> weights;
+
+    TrafficShape(Map<Action, Integer> weights) {
+        this.weights = Collections.unmodifiableMap(weights);
+    }
+
+    public Map<Action, Integer> getWeights() {
+        return weights;
+    }
+
+    /**
+     * Метод поиска формы нагрузки по имени без учета регистра
+     * @param name - имя, например browse
+     * @return - форма нагрузки
+     * @throws IllegalArgumentException - если формы с таким именем нет
+     */
+    public static TrafficShape of(String name) {
+        for (TrafficShape shape : values()) {
+            if (shape.name().equalsIgnoreCase(name)) {
+                return shape;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная форма нагрузки: " + name);
+    }
+
+    private static Map<Action, Integer> weights(Object... pairs) {
+        Map<Action, Integer> weights = new EnumMap<>(Action.class);
+        for (int i = 0; i < pairs.length; i += 2) {
+            weights.put((Action) pairs[i], (Integer) pairs[i + 1]);
+        }
+        return weights;
+    }
+}
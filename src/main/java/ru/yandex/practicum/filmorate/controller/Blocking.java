@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Класс вызова блокирующих методов сервисов из реактивных обработчиков.
+ * Вызов выполняется в пуле Schedulers.boundedElastic, чтобы не занимать потоки цикла событий.
+ * Через сервисы выполняется запись и запросы к индексам в памяти, поэтому индексы остаются согласованными с БД
+ */
+final class Blocking {
+
+    private Blocking() {
+    }
+
+    static <T> Mono<T> call(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
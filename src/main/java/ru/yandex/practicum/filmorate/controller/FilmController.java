@@ -1,33 +1,64 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.service.DbFilmService;
 import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Контроллер профиля по умолчанию, в профиле reactive его заменяет ReactiveFilmController
+ */
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public FilmController(DbFilmService filmService) {
+    public FilmController(DbFilmService filmService, ObjectMapper objectMapper) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Без параметров возвращает весь список, с параметром after или limit - страницу по курсору.
+     * Курсор следующей страницы передается в заголовке X-Next-Cursor
+     */
     @GetMapping
-    public Collection<Film> findAllFilms() {
+    public ResponseEntity<Collection<Film>> findAllFilms(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(filmService.getAllFilms());
+        }
+        Page<Film> page = filmService.getFilmsPage(after, limit);
+        return PageResponse.of(page);
+    }
+
+    /**
+     * Потоковая выгрузка всего списка в формате NDJSON, выбирается заголовком Accept: application/x-ndjson
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
 
-        return filmService.getAllFilms();
+        return NdjsonResponse.of(objectMapper, filmService::exportFilms);
     }
 
     @PostMapping
@@ -36,6 +67,12 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping("/batch")
+    public BatchResult addFilms(@RequestBody List<Film> films) {
+
+        return filmService.addFilms(films);
+    }
+
     @PutMapping
     public Film updateFilm(@RequestBody Film film) {
 
@@ -64,8 +101,23 @@ public class FilmController {
 
     @GetMapping("/popular")
     public List<Film> findPopularFilms(
-            @RequestParam(defaultValue = "10", required = false) Integer count
+            @RequestParam(defaultValue = "10", required = false) Integer count,
+            @RequestParam(required = false) Integer genreId,
+            @RequestParam(required = false) Integer year
             ) {
-        return filmService.findPopularFilms(count);
+        return filmService.findPopularFilms(count, genreId, year);
+    }
+
+    @GetMapping("/search")
+    public List<Film> searchFilms(@RequestParam(required = false) String q,
+                                  @RequestParam(required = false) Integer limit
+    ) {
+        return filmService.searchFilms(q, limit);
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+
+        return filmService.getCacheStats();
     }
 }
@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Genre;
@@ -40,4 +41,10 @@ public class GenreController {
 
         return genreService.findGenreById(id);
     }
+
+    @PostMapping("/refresh")
+    public Collection<Genre> refresh() {
+
+        return genreService.refresh();
+    }
 }
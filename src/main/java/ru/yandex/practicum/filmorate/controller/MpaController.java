@@ -5,6 +5,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import ru.yandex.practicum.filmorate.model.Mpa;
@@ -40,4 +41,10 @@ public class MpaController {
 
         return mpaService.findMpaById(id);
     }
+
+    @PostMapping("/refresh")
+    public Collection<Mpa> refresh() {
+
+        return mpaService.refresh();
+    }
 }
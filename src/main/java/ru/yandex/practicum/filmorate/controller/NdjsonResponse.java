@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Класс формирования потокового ответа в формате NDJSON (один JSON-объект на строку).
+ * Объекты записываются в ответ по мере чтения из БД, без накопления всего списка в памяти
+ */
+final class NdjsonResponse {
+
+    private NdjsonResponse() {
+    }
+
+    /**
+     * Метод формирования потокового ответа
+     * @param objectMapper - сериализатор объектов
+     * @param export - метод выгрузки, передающий каждый прочитанный объект в полученный Consumer
+     * @return - ответ с типом application/x-ndjson
+     */
+    static <T> ResponseEntity<StreamingResponseBody> of(ObjectMapper objectMapper, Consumer<Consumer<T>> export) {
+        StreamingResponseBody body = out -> {
+            try {
+                export.accept(item -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(item));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            out.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+}
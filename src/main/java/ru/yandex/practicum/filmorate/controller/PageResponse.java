@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.http.ResponseEntity;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.util.Collection;
+
+/**
+ * Класс формирования ответа для постраничных эндпоинтов.
+ * Тело ответа - массив объектов страницы, курсор следующей страницы передается в заголовке
+ */
+final class PageResponse {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private PageResponse() {
+    }
+
+    static <T> ResponseEntity<Collection<T>> of(Page<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+}
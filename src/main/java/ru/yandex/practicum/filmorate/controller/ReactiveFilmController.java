@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.dao.ReactiveFilmDao;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.service.DbFilmService;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PageLimits;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реактивный контроллер фильмов профиля reactive с теми же эндпоинтами, что и FilmController.
+ * Списки фильмов, фильм по id и популярные фильмы читаются из БД через R2DBC и отдаются потоком,
+ * в формате NDJSON - по мере чтения; порядок популярных фильмов берется из FilmService, как в FilmController.
+ * Остальные эндпоинты вызывают FilmService вне потоков цикла событий
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/films")
+public class ReactiveFilmController {
+
+    private final FilmService filmService;
+    private final ReactiveFilmDao filmDao;
+    private final PageLimits pageLimits;
+
+    public ReactiveFilmController(DbFilmService filmService, ReactiveFilmDao filmDao, PageLimits pageLimits) {
+        this.filmService = filmService;
+        this.filmDao = filmDao;
+        this.pageLimits = pageLimits;
+    }
+
+    @GetMapping(params = {"!after", "!limit"})
+    public Flux<Film> findAllFilms() {
+
+        return filmDao.findAllFilms();
+    }
+
+    /**
+     * Страница по курсору, курсор следующей страницы передается в заголовке X-Next-Cursor
+     */
+    @GetMapping
+    public Mono<ResponseEntity<Collection<Film>>> findFilmsPage(@RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit) {
+        int pageLimit = pageLimits.resolve(limit);
+        return filmDao.findFilmsAfter(after == null ? 0 : after, pageLimit + 1)
+                .collectList()
+                .map(films -> PageResponse.of(Page.of(films, pageLimit, Film::getId)));
+    }
+
+    @PostMapping
+    public Mono<Film> addFilm(@RequestBody Film film) {
+
+        return Blocking.call(() -> filmService.addFilm(film));
+    }
+
+    @PostMapping("/batch")
+    public Mono<BatchResult> addFilms(@RequestBody List<Film> films) {
+
+        return Blocking.call(() -> filmService.addFilms(films));
+    }
+
+    @PutMapping
+    public Mono<Film> updateFilm(@RequestBody Film film) {
+
+        return Blocking.call(() -> filmService.updateFilm(film));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<Film> findFilmById(@PathVariable("id") long id) {
+
+        return filmDao.findFilmById(id);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<Film> addLike(@PathVariable("id") long id,
+                              @PathVariable("userId") long userId
+    ) {
+        return Blocking.call(() -> filmService.addLike(id, userId));
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<Film> removeLike(@PathVariable("id") long id,
+                                 @PathVariable("userId") long userId
+    ) {
+        return Blocking.call(() -> filmService.removeLike(id, userId));
+    }
+
+    @GetMapping("/popular")
+    public Flux<Film> findPopularFilms(
+            @RequestParam(defaultValue = "10", required = false) Integer count,
+            @RequestParam(required = false) Integer genreId,
+            @RequestParam(required = false) Integer year
+            ) {
+        return Blocking.call(() -> filmService.findPopularFilmIds(count, genreId, year))
+                .flatMapMany(filmDao::findFilmsByIds);
+    }
+
+    @GetMapping("/search")
+    public Mono<List<Film>> searchFilms(@RequestParam(required = false) String q,
+                                        @RequestParam(required = false) Integer limit
+    ) {
+        return Blocking.call(() -> filmService.searchFilms(q, limit));
+    }
+
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+
+        return filmService.getCacheStats();
+    }
+}
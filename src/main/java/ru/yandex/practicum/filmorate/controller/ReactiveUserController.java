@@ -0,0 +1,121 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.dao.ReactiveUserDao;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.DbUserService;
+import ru.yandex.practicum.filmorate.service.PageLimits;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Реактивный контроллер пользователей профиля reactive с теми же эндпоинтами, что и UserController.
+ * Списки пользователей, пользователь по id, друзья и общие друзья читаются из БД через R2DBC и отдаются
+ * потоком, в формате NDJSON - по мере чтения. Остальные эндпоинты вызывают UserService вне потоков цикла событий
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/users")
+public class ReactiveUserController {
+    private final UserService userService;
+    private final ReactiveUserDao userDao;
+    private final PageLimits pageLimits;
+
+    public ReactiveUserController(DbUserService userService, ReactiveUserDao userDao, PageLimits pageLimits) {
+        this.userService = userService;
+        this.userDao = userDao;
+        this.pageLimits = pageLimits;
+    }
+
+    @GetMapping(params = {"!after", "!limit"})
+    public Flux<User> findAllUsers() {
+
+        return userDao.findAllUsers();
+    }
+
+    /**
+     * Страница по курсору, курсор следующей страницы передается в заголовке X-Next-Cursor
+     */
+    @GetMapping
+    public Mono<ResponseEntity<Collection<User>>> findUsersPage(@RequestParam(required = false) Long after,
+                                                                @RequestParam(required = false) Integer limit) {
+        int pageLimit = pageLimits.resolve(limit);
+        return userDao.findUsersAfter(after == null ? 0 : after, pageLimit + 1)
+                .collectList()
+                .map(users -> PageResponse.of(Page.of(users, pageLimit, User::getId)));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<User> findUserById(@PathVariable("id") long id) {
+
+        return userDao.findUserById(id);
+    }
+
+    @PostMapping
+    public Mono<User> createUser(@RequestBody User user) {
+
+        return Blocking.call(() -> userService.createUser(user));
+    }
+
+    @PostMapping("/batch")
+    public Mono<BatchResult> createUsers(@RequestBody List<User> users) {
+
+        return Blocking.call(() -> userService.createUsers(users));
+    }
+
+    @PutMapping
+    public Mono<User> updateUser(@RequestBody User user) {
+
+        return Blocking.call(() -> userService.updateUser(user));
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Mono<User> addFriend(@PathVariable("id") long id,
+                                @PathVariable("friendId") long friendId
+    ) {
+        return Blocking.call(() -> userService.addFriend(id, friendId));
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Mono<User> removeFriend(@PathVariable("id") long id,
+                                   @PathVariable("friendId") long friendId
+    ) {
+        return Blocking.call(() -> userService.removeFriend(id, friendId));
+    }
+
+    @GetMapping("/{id}/friends")
+    public Flux<User> findAllFriends(@PathVariable("id") long id) {
+
+        return userDao.findAllFriends(id);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Flux<User> findMutualFriends(@PathVariable("id") long id,
+                                        @PathVariable("otherId") long otherId
+    ) {
+        return userDao.findMutualFriends(id, otherId);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Mono<List<User>> findFriendSuggestions(@PathVariable("id") long id,
+                                                  @RequestParam(required = false) Integer limit
+    ) {
+        return Blocking.call(() -> userService.findFriendSuggestions(id, limit));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Mono<List<Film>> findRecommendations(@PathVariable("id") long id,
+                                                @RequestParam(required = false) Integer limit
+    ) {
+        return Blocking.call(() -> userService.findRecommendations(id, limit));
+    }
+}
@@ -1,9 +1,17 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.service.DbUserService;
 import ru.yandex.practicum.filmorate.service.UserService;
@@ -11,22 +19,36 @@ import ru.yandex.practicum.filmorate.service.UserService;
 import java.util.Collection;
 import java.util.List;
 
+/**
+ * Контроллер профиля по умолчанию, в профиле reactive его заменяет ReactiveUserController
+ */
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/users")
 @Slf4j
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public UserController(DbUserService userService) {
+    public UserController(DbUserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
+    /**
+     * Без параметров возвращает весь список, с параметром after или limit - страницу по курсору.
+     * Курсор следующей страницы передается в заголовке X-Next-Cursor
+     */
     @GetMapping
-    public Collection<User> findAllUsers() {
-
-        return userService.findAllUsers();
+    public ResponseEntity<Collection<User>> findAllUsers(@RequestParam(required = false) Long after,
+                                                         @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.findAllUsers());
+        }
+        Page<User> page = userService.findUsersPage(after, limit);
+        return PageResponse.of(page);
     }
 
     @GetMapping("/{id}")
@@ -35,12 +57,27 @@ public class UserController {
         return userService.findUserById(id);
     }
 
+    /**
+     * Потоковая выгрузка всего списка в формате NDJSON, выбирается заголовком Accept: application/x-ndjson
+     */
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+
+        return NdjsonResponse.of(objectMapper, userService::exportUsers);
+    }
+
     @PostMapping
     public User createUser(@RequestBody User user) {
 
         return userService.createUser(user);
     }
 
+    @PostMapping("/batch")
+    public BatchResult createUsers(@RequestBody List<User> users) {
+
+        return userService.createUsers(users);
+    }
+
     @PutMapping
     public User updateUser(@RequestBody User user) {
 
@@ -73,5 +110,18 @@ public class UserController {
     ) {
         return userService.findMutualFriends(id, otherId);
     }
-}
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> findFriendSuggestions(@PathVariable("id") long id,
+                                            @RequestParam(required = false) Integer limit
+    ) {
+        return userService.findFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> findRecommendations(@PathVariable("id") long id,
+                                          @RequestParam(required = false) Integer limit
+    ) {
+        return userService.findRecommendations(id, limit);
+    }
+}
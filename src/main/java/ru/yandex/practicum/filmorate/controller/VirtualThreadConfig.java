@@ -0,0 +1,73 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Режим выполнения запросов на виртуальных потоках.
+ * Запросы Tomcat и потоковые выгрузки (StreamingResponseBody) выполняются каждый в своем виртуальном потоке
+ * вместо фиксированного пула потоков, поэтому запросы, ожидающие БД, не занимают потоки платформы.
+ * Ограничением нагрузки служит пул соединений JDBC: запрос, не получивший соединение за
+ * spring.datasource.hikari.connection-timeout, завершается с кодом 503.
+ * Драйвер H2 использует synchronized, поэтому поток, работающий с соединением, закрепляется за потоком
+ * платформы; размер пула соединений должен быть меньше числа потоков планировщика виртуальных потоков
+ * (jdk.virtualThreadScheduler.parallelism, по умолчанию - число ядер).
+ * Требует Java 21 или новее, включается свойством filmorate.web.virtual-threads.enabled=true
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.web.virtual-threads.enabled", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfig implements WebMvcConfigurer {
+    private final ExecutorService executor;
+
+    public VirtualThreadConfig(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.executor = newVirtualThreadExecutor();
+        log.info("Запросы выполняются на виртуальных потоках, соединений с БД не больше {}", poolSize);
+    }
+
+    /**
+     * Метод остановки исполнителя при остановке приложения
+     */
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    /**
+     * Метод создания исполнителя, запускающего каждую задачу в новом виртуальном потоке.
+     * Вызывается через reflection, чтобы приложение собиралось и без этого режима работало на Java 17
+     * @return - исполнитель на виртуальных потоках
+     * @throws IllegalStateException - если виртуальные потоки недоступны в текущей версии Java
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException(String.format("Виртуальные потоки недоступны в Java %d, "
+                    + "требуется Java 21 или новее.", Runtime.version().feature()), e);
+        }
+    }
+}
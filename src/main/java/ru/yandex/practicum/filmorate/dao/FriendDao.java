@@ -9,11 +9,13 @@ import java.util.List;
  */
 public interface FriendDao {
 
-    User addFriend(long id, long friendId);
+    boolean addFriend(long id, long friendId);
 
-    User removeFriend(long id, long friendId);
+    boolean removeFriend(long id, long friendId);
 
     List<User> findAllFriends(long id);
 
     List<User> findMutualFriends(long id, long otherId);
+
+    List<User> findFriendSuggestions(long id, int limit);
 }
@@ -12,4 +12,6 @@ public interface GenreDao {
     Collection<Genre> findAllGenre();
 
     Genre findGenreById(int id);
+
+    Collection<Genre> refresh();
 }
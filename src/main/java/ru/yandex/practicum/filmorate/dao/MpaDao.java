@@ -12,4 +12,6 @@ public interface MpaDao {
     Collection<Mpa> findAllMpa();
 
     Mpa findMpaById(int id);
+
+    Collection<Mpa> refresh();
 }
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+
+/**
+ * Интерфейс DAO класса ReactiveFilmDaoImpl
+ */
+public interface ReactiveFilmDao {
+
+    Flux<Film> findAllFilms();
+
+    Flux<Film> findFilmsAfter(long afterId, int limit);
+
+    Mono<Film> findFilmById(long id);
+
+    Flux<Film> findFilmsByIds(List<Long> ids);
+}
@@ -0,0 +1,21 @@
+package ru.yandex.practicum.filmorate.dao;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Интерфейс DAO класса ReactiveUserDaoImpl
+ */
+public interface ReactiveUserDao {
+
+    Flux<User> findAllUsers();
+
+    Flux<User> findUsersAfter(long afterId, int limit);
+
+    Mono<User> findUserById(long id);
+
+    Flux<User> findAllFriends(long id);
+
+    Flux<User> findMutualFriends(long id, long otherId);
+}
@@ -0,0 +1,188 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Кэширующее хранилище фильмов поверх FilmDbStorage.
+ * Хранит полностью заполненные фильмы, ограничено по размеру и времени жизни записи.
+ * Записи удаляются при обновлении и удалении фильма, а также при изменении его лайков.
+ * Наружу всегда отдаются копии, чтобы изменения вызывающего кода не попадали в кэш.
+ * Фильмы, загруженные пакетом, кладутся в кэш, только если во время загрузки их записи не сбрасывались,
+ * поэтому сброс после изменения лайков не теряется из-за загрузки, начатой до него.
+ * Используется при filmorate.storage.implementation=db (по умолчанию)
+ */
+@Repository
+@Qualifier("cachedFilmStorage")
+@Primary
+@ConditionalOnProperty(name = "filmorate.storage.implementation", havingValue = "db", matchIfMissing = true)
+@Slf4j
+public class CachedFilmStorage implements FilmStorage {
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final FilmDbStorage filmStorage;
+    private final Cache<Long, Film> cache;
+    /**
+     * Счетчики сбросов записей по полосам id фильма
+     */
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public CachedFilmStorage(FilmDbStorage filmStorage,
+                             @Value("${filmorate.cache.films.enabled:true}") boolean enabled,
+                             @Value("${filmorate.cache.films.max-size:10000}") long maxSize,
+                             @Value("${filmorate.cache.films.ttl:10m}") Duration ttl) {
+        this.filmStorage = filmStorage;
+        this.cache = enabled ? Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build() : null;
+        log.info("Кэш фильмов {}", enabled ? "включен" : "выключен");
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        return filmStorage.addFilm(film);
+    }
+
+    @Override
+    public BatchResult addFilms(List<Film> films) {
+        return filmStorage.addFilms(films);
+    }
+
+    @Override
+    public void removeFilm(long id) {
+        filmStorage.removeFilm(id);
+        invalidate(id);
+    }
+
+    @Override
+    public Film updateFilm(Film updateFilm) {
+        Film film = filmStorage.updateFilm(updateFilm);
+        invalidate(updateFilm.getId());
+        return film;
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return filmStorage.getAllFilms();
+    }
+
+    /**
+     * Метод получения фильма по id: из кэша, а при отсутствии - из БД с сохранением в кэш
+     * @param id - id фильма
+     * @return - копия фильма
+     */
+    @Override
+    public Film findFilmById(long id) {
+        if (cache == null) {
+            return filmStorage.findFilmById(id);
+        }
+        return cache.get(id, filmStorage::findFilmById).copy();
+    }
+
+    /**
+     * Метод получения фильмов по списку id. Отсутствующие в кэше фильмы загружаются из БД одним запросом.
+     * Загруженный фильм сохраняется в кэш под блокировкой его записи и только если счетчик сбросов его
+     * полосы не изменился с начала загрузки; сброс, начатый после проверки, ждет сохранения и удаляет запись
+     * @param ids - список id фильмов
+     * @return - копии найденных фильмов в порядке переданных id
+     */
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        if (cache == null) {
+            return filmStorage.findFilmsByIds(ids);
+        }
+        Map<Long, Film> films = new LinkedHashMap<>(cache.getAllPresent(ids));
+        List<Long> missingIds = ids.stream()
+                .filter(id -> !films.containsKey(id))
+                .collect(Collectors.toList());
+        if (!missingIds.isEmpty()) {
+            Map<Long, Long> loadGenerations = new HashMap<>();
+            for (Long id : missingIds) {
+                loadGenerations.put(id, generations.get(stripe(id)));
+            }
+            for (Film film : filmStorage.findFilmsByIds(missingIds)) {
+                long generation = loadGenerations.get(film.getId());
+                cache.asMap().compute(film.getId(), (id, cached) -> cached != null ? cached
+                        : generations.get(stripe(id)) == generation ? film : null);
+                films.put(film.getId(), film);
+            }
+        }
+        List<Film> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Film film = films.get(id);
+            if (film != null) {
+                result.add(film.copy());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        return filmStorage.getFilmsAfter(afterId, limit);
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(consumer);
+    }
+
+    /**
+     * Метод удаления фильма из кэша
+     * @param id - id фильма
+     */
+    @Override
+    public void invalidate(long id) {
+        if (cache != null) {
+            generations.incrementAndGet(stripe(id));
+            cache.invalidate(id);
+        }
+    }
+
+    private static int stripe(long id) {
+        return Math.floorMod(Long.hashCode(id), GENERATION_STRIPES);
+    }
+
+    /**
+     * Метод получения статистики кэша
+     * @return - Map, ключ - название показателя, значение - его величина
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (cache == null) {
+            stats.put("enabled", false);
+            return stats;
+        }
+        CacheStats cacheStats = cache.stats();
+        stats.put("enabled", true);
+        stats.put("size", cache.estimatedSize());
+        stats.put("hits", cacheStats.hitCount());
+        stats.put("misses", cacheStats.missCount());
+        stats.put("evictions", cacheStats.evictionCount());
+        return stats;
+    }
+}
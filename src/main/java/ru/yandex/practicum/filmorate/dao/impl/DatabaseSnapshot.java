@@ -0,0 +1,143 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимки БД в памяти для режима хранения filmorate.storage.mode=memory.
+ * Все запросы обслуживает H2 в памяти, а на диск по таймеру snapshot.interval и при остановке приложения
+ * записывается согласованный снимок всей БД командой SCRIPT. Снимок пишется во временный файл и атомарно
+ * заменяет предыдущий, поэтому аварийное завершение во время записи не портит последний снимок.
+ * При старте пустая БД восстанавливается из снимка до выполнения миграций, см. SchemaMigrator.
+ * При аварийном завершении теряются изменения, сделанные после последнего снимка
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage.mode", havingValue = "memory")
+@Slf4j
+public class DatabaseSnapshot {
+    private final DataSource dataSource;
+    private final Path path;
+    private final Duration interval;
+    private final Object snapshotLock = new Object();
+    private ScheduledExecutorService scheduler;
+
+    public DatabaseSnapshot(DataSource dataSource,
+                            @Value("${filmorate.storage.snapshot.path:./db/filmorate-snapshot.zip}") String path,
+                            @Value("${filmorate.storage.snapshot.interval:1m}") Duration interval) {
+        this.dataSource = dataSource;
+        this.path = Paths.get(path).toAbsolutePath();
+        this.interval = interval;
+    }
+
+    /**
+     * Метод запуска периодической записи снимков
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "database-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::saveQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("БД хранится в памяти, снимок {} записывается раз в {}", path, interval);
+    }
+
+    /**
+     * Метод остановки: таймер останавливается, записывается последний снимок.
+     * Компоненты, работающие с БД, останавливаются раньше, поэтому снимок включает сброшенные ими данные
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdown();
+        try {
+            save();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи снимка БД при остановке", e);
+        }
+    }
+
+    /**
+     * Метод восстановления БД из снимка. Выполняется, только если снимок существует, а БД пустая,
+     * чтобы не затереть данные БД, которая пережила перезапуск компонентов приложения
+     * @return - true, если БД восстановлена из снимка
+     */
+    public boolean restore() {
+        if (!Files.exists(path)) {
+            log.info("Снимок БД {} не найден, БД создается заново", path);
+            return false;
+        }
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("select count(*) from information_schema.tables "
+                    + "where table_schema = 'PUBLIC'")) {
+                rs.next();
+                if (rs.getInt(1) > 0) {
+                    log.info("БД уже содержит таблицы, снимок {} не восстанавливается", path);
+                    return false;
+                }
+            }
+            statement.execute("runscript from " + quote(path) + " compression zip");
+            log.info("БД восстановлена из снимка {}", path);
+            return true;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка восстановления БД из снимка " + path, e);
+        }
+    }
+
+    /**
+     * Метод записи снимка БД
+     */
+    public void save() {
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                Files.createDirectories(path.getParent());
+                try (Connection connection = dataSource.getConnection();
+                     Statement statement = connection.createStatement()) {
+                    statement.execute("script to " + quote(temp) + " compression zip");
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (SQLException e) {
+                throw new IllegalStateException("Ошибка записи снимка БД " + path, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            log.debug("Записан снимок БД {} за {} мс", path, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void saveQuietly() {
+        try {
+            save();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи снимка БД, снимок будет записан повторно", e);
+        }
+    }
+
+    private static String quote(Path file) {
+        return "'" + file.toString().replace("'", "''") + "'";
+    }
+}
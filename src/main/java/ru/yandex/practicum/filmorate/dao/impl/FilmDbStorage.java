@@ -3,22 +3,41 @@ package ru.yandex.practicum.filmorate.dao.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
+import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IdSet;
 import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Set;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -28,15 +47,48 @@ import java.util.stream.Collectors;
 @Qualifier("filmDbStorage")
 @Slf4j
 public class FilmDbStorage implements FilmStorage {
+    /**
+     * Запросы связей фильм-жанр и фильм-пользователь без условия отбора фильмов. Объединяются через union all,
+     * чтобы жанры и лайки загружались одним запросом. Сами жанры берутся из справочника GenreDaoImpl
+     */
+    private static final String SQL_GENRE_LINKS = "select film_id, 0 as link_type, genre_id as link_id "
+            + "from genre_film";
+    private static final String SQL_LIKE_LINKS = "select film_id, 1 as link_type, user_id as link_id from likes";
+    private static final String SQL_INSERT_GENRE_LINK = "insert into genre_film(film_id, genre_id) values (?, ?)";
+    private static final String SQL_INSERT_FILM = "insert into films(name, description, release_date, duration, "
+            + "mpa_id) values (?, ?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
     private final MpaDaoImpl mpaDao;
     private final GenreDaoImpl genreDao;
+    private final int streamFetchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchChunkSize;
+    private final SimpleJdbcInsert filmInsert;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex searchIndex;
 
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, MpaDaoImpl mpaDao, GenreDaoImpl genreDao) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         MpaDaoImpl mpaDao, GenreDaoImpl genreDao,
+                         @Value("${filmorate.export.fetch-size:500}") int streamFetchSize,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${filmorate.batch.chunk-size:1000}") int batchChunkSize,
+                         LikeMatrix likeMatrix, FilmSearchIndex searchIndex) {
 
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
         this.mpaDao = mpaDao;
         this.genreDao = genreDao;
+        this.streamFetchSize = streamFetchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.batchChunkSize = batchChunkSize;
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingColumns("name", "description", "release_date", "duration", "mpa_id")
+                .usingGeneratedKeyColumns("id");
+        this.likeMatrix = likeMatrix;
+        this.searchIndex = searchIndex;
     }
 
     /**
@@ -49,127 +101,294 @@ public class FilmDbStorage implements FilmStorage {
 
         checkValidationFilm(film);
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("id");
-        int idFilm = simpleJdbcInsert.executeAndReturnKey(film.toMap()).intValue();
+        int idFilm = filmInsert.executeAndReturnKey(film.toMap()).intValue();
         film.setId(idFilm);
         film.setMpa(mpaDao.findMpaById(film.getMpa().getId()));
 
         if (!film.getGenres().isEmpty()) {
-            String sqlQuery = "insert into genre_film(film_id, genre_id) values (?, ?)";
-            for (Genre genre : film.getGenres()) {
-                jdbcTemplate.update(sqlQuery,
-                        film.getId(), genre.getId());
-            }
+            insertGenreLinks(List.of(film));
             film.setGenres(film.getGenres().stream()
                     .map(g -> g.getId())
                     .map(i -> genreDao.findGenreById(i))
                     .collect(Collectors.toSet()));
         }
+        searchIndex.indexFilm(film);
         log.info("Добавлен фильм с id {}", idFilm);
         return film;
     }
 
+    /**
+     * Метод пакетного добавления фильмов.
+     * Сначала проверяются все фильмы, затем корректные записываются в БД пакетами JDBC,
+     * каждая порция из batchChunkSize фильмов - в отдельной транзакции
+     * @param films - список добавляемых фильмов
+     * @return - id добавленных фильмов по позициям входного списка и ошибки по отдельным фильмам
+     */
+    @Override
+    public BatchResult addFilms(List<Film> films) {
+        BatchResult result = new BatchResult(new ArrayList<>(Collections.nCopies(films.size(), null)));
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < films.size(); i++) {
+            try {
+                Film film = films.get(i);
+                checkValidationFilm(film);
+                resolveReferences(film);
+                validIndexes.add(i);
+            } catch (ValidationException | MpaNotFoundException | GenreNotFoundException e) {
+                result.addError(i, e.getMessage());
+            }
+        }
+
+        for (int from = 0; from < validIndexes.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, validIndexes.size());
+            List<Integer> chunkIndexes = validIndexes.subList(from, to);
+            List<Film> chunk = chunkIndexes.stream()
+                    .map(films::get)
+                    .collect(Collectors.toList());
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    insertFilms(chunk);
+                    insertGenreLinks(chunk);
+                });
+                for (int i = 0; i < chunk.size(); i++) {
+                    result.getIds().set(chunkIndexes.get(i), chunk.get(i).getId());
+                    searchIndex.indexFilm(chunk.get(i));
+                }
+            } catch (DataAccessException e) {
+                log.error("Ошибка записи пакета фильмов: {}", e.getMessage());
+                for (Integer index : chunkIndexes) {
+                    result.addError(index, "Ошибка записи фильма в БД.");
+                }
+            }
+        }
+        log.info("Пакетно добавлено фильмов: {}, с ошибками: {}", films.size() - result.getErrors().size(),
+                result.getErrors().size());
+        return result;
+    }
+
+    /**
+     * Метод вставки фильмов одним пакетом JDBC с получением сгенерированных id
+     * @param films - список фильмов, которым присваиваются полученные id
+     */
+    private void insertFilms(List<Film> films) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(SQL_INSERT_FILM, new String[]{"id"})) {
+                for (Film film : films) {
+                    ps.setString(1, film.getName());
+                    ps.setString(2, film.getDescription());
+                    ps.setObject(3, film.getReleaseDate());
+                    ps.setInt(4, film.getDuration());
+                    ps.setInt(5, film.getMpa().getId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (Film film : films) {
+                        if (!keys.next()) {
+                            throw new IncorrectResultSizeDataAccessException(films.size());
+                        }
+                        film.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Метод вставки связей фильм-жанр для списка фильмов одним пакетом JDBC
+     * @param films - список фильмов с заполненными id
+     */
+    private void insertGenreLinks(List<Film> films) {
+        List<Object[]> links = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                links.add(new Object[]{film.getId(), genre.getId()});
+            }
+        }
+        if (!links.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_INSERT_GENRE_LINK, links);
+        }
+    }
+
+    /**
+     * Метод замены рейтинга и жанров фильма объектами из справочников
+     * @param film - объект Film
+     * @throws ValidationException - если рейтинг не указан
+     */
+    private void resolveReferences(Film film) {
+        if (film.getMpa() == null) {
+            log.error("Не указан рейтинг фильма");
+            throw new ValidationException("Рейтинг фильма не может быть пустым.");
+        }
+        film.setMpa(mpaDao.findMpaById(film.getMpa().getId()));
+        List<Genre> genres = film.getGenres().stream()
+                .map(g -> genreDao.findGenreById(g.getId()))
+                .collect(Collectors.toList());
+        film.getGenres().clear();
+        film.getGenres().addAll(genres);
+    }
+
     /**
      * Метод удаления фильма из БД
      * @param id - id удаляемого фильма
      */
     @Override
     public void removeFilm(long id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from films where id = ?", id);
-        if (userRows.next()) {
-            String sql = "delete from films where id = ?";
-            jdbcTemplate.update(sql, id);
-            log.info("Удален фильм с id {}", id);
-        } else {
+        String sql = "delete from films where id = ?";
+        if (jdbcTemplate.update(sql, id) == 0) {
             log.error("Передан некорректный id фильма: {}", id);
             throw new FilmNotFoundException(String.format("Фильм с id %d не найден", id));
         }
+        likeMatrix.removeFilm(id);
+        searchIndex.removeFilm(id);
+        log.info("Удален фильм с id {}", id);
     }
 
     /**
-     * Метод обновления фильма в БД
+     * Метод обновления фильма в БД.
+     * Отсутствие фильма определяется по количеству обновленных строк, без предварительной проверки
      * @param updateFilm - обновляемый фильм
      * @return - обновленный фильм
      */
     @Override
     public Film updateFilm(Film updateFilm) {
         checkValidationFilm(updateFilm);
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from films where id = ?", updateFilm.getId());
-        if (userRows.next()) {
-            String sql = "update films set " +
-                    "name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
-                    "where id = ?";
-            jdbcTemplate.update(sql,
-                    updateFilm.getName(),
-                    updateFilm.getDescription(),
-                    updateFilm.getReleaseDate(),
-                    updateFilm.getDuration(),
-                    updateFilm.getMpa().getId(),
-                    updateFilm.getId());
-            updateFilm.setMpa(mpaDao.findMpaById(updateFilm.getMpa().getId()));
-
-            String sqlDropGenre = "delete from genre_film where film_id = ?";
-            jdbcTemplate.update(sqlDropGenre, updateFilm.getId());
-
-            if (!updateFilm.getGenres().isEmpty()) {
-
-                String sqlGenre = "insert into genre_film(film_id, genre_id) values (?, ?)";
-                for (Genre genre : updateFilm.getGenres()) {
-                    jdbcTemplate.update(sqlGenre, updateFilm.getId(), genre.getId());
-
-                }
-                updateFilm.setGenres(updateFilm.getGenres().stream()
-                        .map(g -> g.getId())
-                        .map(i -> genreDao.findGenreById(i))
-                        .collect(Collectors.toSet()));
-
-                System.out.println(updateFilm);
-            }
-            log.info("Обновлен фильм: {}", updateFilm);
-        } else {
+        String sql = "update films set " +
+                "name = ?, description = ?, release_date = ?, duration = ?, mpa_id = ? " +
+                "where id = ?";
+        int updated = jdbcTemplate.update(sql,
+                updateFilm.getName(),
+                updateFilm.getDescription(),
+                updateFilm.getReleaseDate(),
+                updateFilm.getDuration(),
+                updateFilm.getMpa().getId(),
+                updateFilm.getId());
+        if (updated == 0) {
             log.error("Передан некорректный id фильма: {}", updateFilm.getId());
             throw new FilmNotFoundException(String.format("Фильм с id %d не найден", updateFilm.getId()));
         }
+        updateFilm.setMpa(mpaDao.findMpaById(updateFilm.getMpa().getId()));
+
+        String sqlDropGenre = "delete from genre_film where film_id = ?";
+        jdbcTemplate.update(sqlDropGenre, updateFilm.getId());
+
+        if (!updateFilm.getGenres().isEmpty()) {
+            insertGenreLinks(List.of(updateFilm));
+            updateFilm.setGenres(updateFilm.getGenres().stream()
+                    .map(g -> g.getId())
+                    .map(i -> genreDao.findGenreById(i))
+                    .collect(Collectors.toSet()));
+        }
+        searchIndex.indexFilm(updateFilm);
+        log.info("Обновлен фильм: {}", updateFilm);
         return updateFilm;
     }
 
     /**
-     * Метод получения всех фильмов из БД
+     * Метод получения всех фильмов из БД.
+     * Жанры и лайки всех фильмов загружаются одним дополнительным запросом
      * @return - коллекция фильмов
      */
     @Override
     public Collection<Film> getAllFilms() {
         String sql = "select f.*, mpa.name as mpa_name from films f "
-                + "join mpa on f.mpa_id = mpa.id";
+                + "join mpa on f.mpa_id = mpa.id order by f.id";
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) ->
                 makeFilm(rs));
+        fillLinks(films, SQL_GENRE_LINKS + " union all " + SQL_LIKE_LINKS, new MapSqlParameterSource());
+        return films;
+    }
+
+    /**
+     * Метод потоковой выгрузки всех фильмов из БД.
+     * Фильмы читаются одним запросом с жанрами, упорядоченным по id, и передаются в consumer порциями
+     * по streamFetchSize фильмов, лайки каждой порции загружаются одним запросом. Весь список в памяти
+     * не накапливается
+     * @param consumer - получатель фильмов
+     */
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        String sql = "select f.*, mpa.name as mpa_name, gf.genre_id from films f "
+                + "join mpa on f.mpa_id = mpa.id "
+                + "left join genre_film gf on f.id = gf.film_id order by f.id, gf.genre_id";
+
+        FilmRowsHandler handler = new FilmRowsHandler(consumer);
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(streamFetchSize);
+            return ps;
+        }, handler);
+        handler.finish();
+    }
+
+    /**
+     * Метод получения страницы фильмов, упорядоченных по id.
+     * Страница начинается сразу после переданного id, поэтому стоимость запроса не зависит от номера страницы
+     * @param afterId - id, после которого начинается страница
+     * @param limit - размер страницы
+     * @return - список фильмов
+     */
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        String sql = "select f.*, mpa.name as mpa_name from films f "
+                + "join mpa on f.mpa_id = mpa.id where f.id > ? order by f.id limit ?";
+
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) ->
+                makeFilm(rs), afterId, limit);
+        fillLinks(films);
+        return films;
     }
 
     /**
-     * Метод получения из БД конкретного филма по id
+     * Метод получения фильмов по списку id одним запросом
+     * @param ids - список id фильмов
+     * @return - список найденных фильмов в порядке переданных id, отсутствующие в БД id пропускаются
+     */
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "select f.*, mpa.name as mpa_name from films f "
+                + "join mpa on f.mpa_id = mpa.id where f.id in (:ids)";
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids), rs -> {
+            Film film = makeFilm(rs);
+            filmsById.put(film.getId(), film);
+        });
+        List<Film> films = ids.stream()
+                .map(filmsById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        fillLinks(films);
+        return films;
+    }
+
+    /**
+     * Метод получения из БД конкретного филма по id.
+     * Отсутствие фильма определяется по пустому результату запроса
      * @param id - id получаемого фильма
      * @return - полученный фильм
      */
     @Override
     public Film findFilmById(long id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from films where id = ?", id);
-        if (userRows.next()) {
-            String sql = "select f.*, mpa.name as mpa_name from films f "
-                    + "join mpa on f.mpa_id = mpa.id where f.id = ?";
-            Film film = jdbcTemplate.queryForObject(sql, new Object[]{id}, (rs, rowNum) ->
-                    makeFilm(rs));
-            return film;
-        } else {
+        String sql = "select f.*, mpa.name as mpa_name from films f "
+                + "join mpa on f.mpa_id = mpa.id where f.id = ?";
+        List<Film> films = jdbcTemplate.query(sql, (rs, rowNum) -> makeFilm(rs), id);
+        if (films.isEmpty()) {
             log.error("Передан некорректный id фильма: {}", id);
             throw new FilmNotFoundException(String.format("Фильм с id %d не найден", id));
         }
+        fillLinks(films);
+        return films.get(0);
     }
 
     /**
-     * Метод инициализации полей фильма на основе БД
+     * Метод инициализации полей фильма на основе БД.
+     * Поле genres заполняется отдельно методом fillGenres
      * @param rs
      * @return
      * @throws SQLException
@@ -181,21 +400,65 @@ public class FilmDbStorage implements FilmStorage {
                 rs.getInt("duration"));
         film.setId(rs.getLong("id"));
         film.setMpa(new Mpa(rs.getInt("mpa_id"), rs.getString("mpa_name")));
-        film.setGenres(getGenres(film.getId()));
         return film;
     }
 
     /**
-     * Метод инициализации поля genres фильма с конкретным id на основе БД
-     * @param id - id фильма
-     * @return - Set<Genre>
+     * Метод заполнения полей genres и likes у списка фильмов одним запросом по их id
+     * @param films - список фильмов
+     */
+    private void fillLinks(List<Film> films) {
+        fillLinks(films, SQL_GENRE_LINKS + " where film_id in (:ids) union all "
+                + SQL_LIKE_LINKS + " where film_id in (:ids)");
+    }
+
+    /**
+     * Метод заполнения полей у списка фильмов запросом связей, ограниченным id этих фильмов
+     * @param films - список фильмов
+     * @param sqlLinks - запрос связей с параметром :ids
+     */
+    private void fillLinks(List<Film> films, String sqlLinks) {
+        if (films.isEmpty()) {
+            return;
+        }
+        List<Long> ids = films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+        fillLinks(films, sqlLinks, new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * Метод заполнения полей genres и likes у списка фильмов по результату запроса связей.
+     * Запрос возвращает поля film_id, link_type (0 - жанр, 1 - лайк) и link_id.
+     * Связи фильмов, которых нет в списке, пропускаются
+     * @param films - список фильмов
+     * @param sqlLinks - запрос связей
+     * @param params - параметры запроса
      */
-    private Set<Genre> getGenres(long id) {
-        String sqlGenre = "select genre_id from genre_film where film_id = ?";
-        return jdbcTemplate.query(sqlGenre, (rs, rowNum) ->
-                        rs.getInt("genre_id"), id).stream()
-                .map(i -> genreDao.findGenreById(i))
-                .collect(Collectors.toSet());
+    private void fillLinks(List<Film> films, String sqlLinks, SqlParameterSource params) {
+        if (films.isEmpty()) {
+            return;
+        }
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        namedJdbcTemplate.query(sqlLinks, params, rs -> {
+            Film film = filmsById.get(rs.getLong("film_id"));
+            if (film == null) {
+                return;
+            }
+            if (rs.getInt("link_type") == 0) {
+                film.getGenres().add(genreDao.findGenreById(rs.getInt("link_id")));
+            } else {
+                film.getLikes().add(rs.getLong("link_id"));
+            }
+        });
+        for (Film film : films) {
+            if (film.getLikes() instanceof IdSet) {
+                ((IdSet) film.getLikes()).trimToSize();
+            }
+        }
     }
 
     /**
@@ -226,4 +489,52 @@ public class FilmDbStorage implements FilmStorage {
             throw new ValidationException("Дата релиза не может быть ранее 28.12.1895г.");
         }
     }
+
+    /**
+     * Обработчик строк запроса фильмов с жанрами: собирает строки одного фильма при переходе
+     * к следующему id, накапливает порцию фильмов, загружает их лайки и передает порцию получателю
+     */
+    private class FilmRowsHandler implements RowCallbackHandler {
+        private final Consumer<Film> consumer;
+        private final List<Film> chunk = new ArrayList<>();
+        private Film current;
+
+        FilmRowsHandler(Consumer<Film> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            if (current == null || current.getId() != id) {
+                completeFilm();
+                current = makeFilm(rs);
+            }
+            int genreId = rs.getInt("genre_id");
+            if (!rs.wasNull()) {
+                current.getGenres().add(genreDao.findGenreById(genreId));
+            }
+        }
+
+        private void completeFilm() {
+            if (current != null) {
+                chunk.add(current);
+                current = null;
+            }
+            if (chunk.size() >= streamFetchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            fillLinks(chunk, SQL_LIKE_LINKS + " where film_id in (:ids)");
+            chunk.forEach(consumer);
+            chunk.clear();
+        }
+
+        void finish() {
+            completeFilm();
+            flush();
+        }
+    }
 }
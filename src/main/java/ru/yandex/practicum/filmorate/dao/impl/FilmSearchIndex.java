@@ -0,0 +1,214 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Инвертированный индекс названий и описаний фильмов для полнотекстового поиска.
+ * Для каждого слова хранится отсортированный массив id фильмов, в названии или описании которых оно встречается.
+ * Слова хранятся в отсортированном словаре, поэтому поиск по префиксу - это просмотр диапазона ключей.
+ * Массивы не изменяются после публикации, поэтому поиск идет без блокировок, а изменения индекса выполняются
+ * под блокировкой самого индекса.
+ * Индекс строится по таблице films при старте и обновляется FilmDbStorage при добавлении, обновлении
+ * и удалении фильмов
+ */
+@Component
+@Slf4j
+public class FilmSearchIndex {
+    /**
+     * Оценки совпадения слова запроса: точное совпадение в названии, префикс в названии,
+     * точное совпадение в описании, префикс в описании
+     */
+    private static final int NAME_EXACT = 6;
+    private static final int NAME_PREFIX = 3;
+    private static final int DESCRIPTION_EXACT = 2;
+    private static final int DESCRIPTION_PREFIX = 1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConcurrentSkipListMap<String, int[]> nameIndex = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, int[]> descriptionIndex = new ConcurrentSkipListMap<>();
+    /**
+     * Проиндексированные слова каждого фильма: [0] - слова названия, [1] - слова описания.
+     * Строки берутся из ключей индекса, поэтому не занимают дополнительной памяти
+     */
+    private final Map<Long, String[][]> filmTokens = new ConcurrentHashMap<>();
+
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Метод построения индекса по таблице films, вызывается при старте приложения
+     */
+    @PostConstruct
+    public synchronized void load() {
+        SortedInts.Builder<String> names = new SortedInts.Builder<>();
+        SortedInts.Builder<String> descriptions = new SortedInts.Builder<>();
+        Map<Long, String[][]> tokens = new HashMap<>();
+        jdbcTemplate.query("select id, name, description from films", rs -> {
+            long id = rs.getLong("id");
+            Set<String> nameTokens = tokenize(rs.getString("name"));
+            Set<String> descriptionTokens = tokenize(rs.getString("description"));
+            nameTokens.forEach(token -> names.add(token, (int) id));
+            descriptionTokens.forEach(token -> descriptions.add(token, (int) id));
+            tokens.put(id, new String[][]{nameTokens.toArray(String[]::new),
+                    descriptionTokens.toArray(String[]::new)});
+        });
+        nameIndex.clear();
+        nameIndex.putAll(names.build());
+        descriptionIndex.clear();
+        descriptionIndex.putAll(descriptions.build());
+        filmTokens.clear();
+        tokens.forEach((id, filmWords) -> filmTokens.put(id, new String[][]{
+                canonical(nameIndex, filmWords[0]), canonical(descriptionIndex, filmWords[1])}));
+        log.info("Построен поисковый индекс: {} фильмов, {} слов в названиях, {} слов в описаниях",
+                filmTokens.size(), nameIndex.size(), descriptionIndex.size());
+    }
+
+    /**
+     * Метод добавления фильма в индекс или замены его слов после обновления
+     * @param film - фильм с заполненным id
+     */
+    public synchronized void indexFilm(Film film) {
+        long id = film.getId();
+        removeFilm(id);
+        String[] nameTokens = addTokens(nameIndex, tokenize(film.getName()), id);
+        String[] descriptionTokens = addTokens(descriptionIndex, tokenize(film.getDescription()), id);
+        filmTokens.put(id, new String[][]{nameTokens, descriptionTokens});
+    }
+
+    /**
+     * Метод удаления фильма из индекса
+     * @param id - id фильма
+     */
+    public synchronized void removeFilm(long id) {
+        String[][] tokens = filmTokens.remove(id);
+        if (tokens != null) {
+            removeTokens(nameIndex, tokens[0], id);
+            removeTokens(descriptionIndex, tokens[1], id);
+        }
+    }
+
+    /**
+     * Метод поиска фильмов. Запрос разбивается на слова так же, как названия и описания; каждое слово
+     * запроса ищется как префикс слов фильма. В результат попадают фильмы, подходящие под все слова запроса.
+     * Оценка фильма - сумма по словам запроса лучшего совпадения в названии и лучшего совпадения в описании,
+     * точное совпадение слова ценится выше префикса, название - выше описания
+     * @param query - поисковый запрос
+     * @param limit - количество результатов
+     * @return - id фильмов по убыванию оценки, при равенстве - по возрастанию id
+     */
+    public List<Long> search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> scores = null;
+        for (String term : terms) {
+            Map<Integer, Integer> termScores = new HashMap<>();
+            scoreTerm(termScores, nameIndex, term, NAME_EXACT, NAME_PREFIX);
+            scoreTerm(termScores, descriptionIndex, term, DESCRIPTION_EXACT, DESCRIPTION_PREFIX);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                Map<Integer, Integer> previous = scores;
+                termScores.keySet().retainAll(previous.keySet());
+                termScores.replaceAll((id, score) -> score + previous.get(id));
+                scores = termScores;
+            }
+            if (scores.isEmpty()) {
+                return new ArrayList<>();
+            }
+        }
+        return IdScores.top(scores, limit).stream()
+                .map(entry -> (long) entry.getKey())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод разбиения текста на слова: последовательности букв и цифр любого алфавита в нижнем регистре,
+     * буква ё заменяется на е
+     * @param text - текст, может быть null
+     * @return - слова в порядке первого появления без повторов
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Метод начисления оценок фильмам, слова которых начинаются со слова запроса.
+     * Фильм получает лучшую из оценок своих подходящих слов в данном поле
+     */
+    private static void scoreTerm(Map<Integer, Integer> termScores, NavigableMap<String, int[]> index,
+                                  String term, int exactScore, int prefixScore) {
+        Map<Integer, Integer> fieldScores = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : index.subMap(term, true, term + Character.MAX_VALUE, false)
+                .entrySet()) {
+            int score = entry.getKey().equals(term) ? exactScore : prefixScore;
+            for (int id : entry.getValue()) {
+                fieldScores.merge(id, score, Math::max);
+            }
+        }
+        fieldScores.forEach((id, score) -> termScores.merge(id, score, Integer::sum));
+    }
+
+    private static String[] addTokens(ConcurrentSkipListMap<String, int[]> index, Set<String> tokens, long id) {
+        for (String token : tokens) {
+            index.merge(token, new int[]{(int) id}, (ids, added) -> SortedInts.insert(ids, (int) id));
+        }
+        return canonical(index, tokens.toArray(String[]::new));
+    }
+
+    private static void removeTokens(ConcurrentSkipListMap<String, int[]> index, String[] tokens, long id) {
+        for (String token : tokens) {
+            index.computeIfPresent(token, (key, ids) -> {
+                int[] updated = SortedInts.remove(ids, (int) id);
+                return updated.length == 0 ? null : updated;
+            });
+        }
+    }
+
+    /**
+     * Метод замены слов фильма на равные им ключи индекса, чтобы одинаковые слова разных фильмов
+     * хранились в памяти один раз
+     */
+    private static String[] canonical(NavigableMap<String, int[]> index, String[] tokens) {
+        for (int i = 0; i < tokens.length; i++) {
+            String key = index.ceilingKey(tokens[i]);
+            if (tokens[i].equals(key)) {
+                tokens[i] = key;
+            }
+        }
+        return tokens;
+    }
+}
@@ -1,18 +1,29 @@
 package ru.yandex.practicum.filmorate.dao.impl;
 
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.FriendDao;
-import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.model.User;
-import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * DAO класс для работы с БД, определяющих друзей пользователя
@@ -22,94 +33,183 @@ import java.util.List;
 public class FriendDaoImpl implements FriendDao {
 
     private final JdbcTemplate jdbcTemplate;
-    @Qualifier("userDbStorage")
-    private final UserStorage userStorage;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final int suggestionsMaxFanOut;
+    private final Duration suggestionsTimeBudget;
 
-    public FriendDaoImpl(JdbcTemplate jdbcTemplate, UserDbStorage userStorage) {
+    public FriendDaoImpl(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         FriendGraph friendGraph,
+                         @Value("${filmorate.friends.suggestions.max-fan-out:1000}") int suggestionsMaxFanOut,
+                         @Value("${filmorate.friends.suggestions.time-budget:50ms}") Duration suggestionsTimeBudget) {
 
         this.jdbcTemplate = jdbcTemplate;
-        this.userStorage = userStorage;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.friendGraph = friendGraph;
+        this.suggestionsMaxFanOut = suggestionsMaxFanOut;
+        this.suggestionsTimeBudget = suggestionsTimeBudget;
     }
 
     /**
-     * Метод добавления друга
+     * Метод добавления друга одним условным merge: строка вставляется, только если ее еще нет.
+     * Отсутствие пользователей определяется по ошибке внешнего ключа, без предварительных проверок.
+     * Запись в БД и в граф друзей выполняется под блокировкой пользователя
      * @param id - id пользователя, которому приходит запрос в друзья
      * @param friendId - id пользователя, отправляющего запрос в друзья
-     * @return - пользователь, список друзей которого пополнился
+     * @return - true, если друг добавлен, false, если он уже был в списке друзей
      */
     @Override
-    public User addFriend(long id, long friendId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from friends where user_id = ? AND friend_id = ?",
-                id, friendId);
-        if (userRows.next()) {
-            log.error("Пользователь с id {} уже есть в списке друзей пользователя с id {}.", friendId, id);
-            throw new ValidationException("Пользователь с id " + friendId + " уже есть в списке друзей пользователя с id "
-            + id + ".");
+    public boolean addFriend(long id, long friendId) {
+        String sqlQuery = "merge into friends f "
+                + "using (values (cast(? as int), cast(? as int))) as s(user_id, friend_id) "
+                + "on f.user_id = s.user_id and f.friend_id = s.friend_id "
+                + "when not matched then insert (user_id, friend_id) values (s.user_id, s.friend_id)";
+        synchronized (friendGraph.lockFor(id)) {
+            try {
+                if (jdbcTemplate.update(sqlQuery, id, friendId) == 0) {
+                    return false;
+                }
+            } catch (DuplicateKeyException e) {
+                return false;
+            } catch (DataIntegrityViolationException e) {
+                checkUsers(id, friendId);
+                throw e;
+            }
+            friendGraph.addFriend(id, friendId);
+            return true;
         }
-        String sqlQuery = "insert into friends(user_id, friend_id) " +
-                "values (?, ?)";
-        jdbcTemplate.update(sqlQuery, id, friendId);
-        User user = userStorage.findUserById(id);
-        user.getFriends().add(friendId);
-
-        return user;
     }
 
     /**
-     * Метод удаления из друзей
+     * Метод удаления из друзей. Запись в БД и в граф друзей выполняется под блокировкой пользователя
      * @param id - id пользователя, которому отправлен запрос на удаление из друзей
      * @param friendId - id пользователя, который отправил запрос на удаление из друзей
-     * @return - пользователь, список друзей которого уменьшился
+     * @return - true, если друг удален, false, если его не было в списке друзей
      */
     @Override
-    public User removeFriend(long id, long friendId) {
-
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from friends where user_id = ? AND friend_id = ?",
-                id, friendId);
-        if (userRows.next()) {
-            String sqlQuery = "delete from friends where user_id = ? AND friend_id = ?";
-            jdbcTemplate.update(sqlQuery, id, friendId);
-        } else {
-            log.error("Пользователя с id {} нет в списке друзей пользователя с id {}.", friendId, id);
-            throw new ValidationException("Пользователя с id " + friendId + " нет в списке друзей пользователя с id "
-                    + id + ".");
+    public boolean removeFriend(long id, long friendId) {
+
+        String sqlQuery = "delete from friends where user_id = ? AND friend_id = ?";
+        synchronized (friendGraph.lockFor(id)) {
+            if (jdbcTemplate.update(sqlQuery, id, friendId) == 0) {
+                checkUsers(id, friendId);
+                return false;
+            }
+            friendGraph.removeFriend(id, friendId);
+            return true;
         }
-        User user = userStorage.findUserById(id);
-        user.getFriends().remove(friendId);
-
-        return user;
     }
 
     /**
-     * Метод получения списка друзей пользователя с конкретным id
+     * Метод получения списка друзей пользователя с конкретным id.
+     * Id друзей берутся из графа друзей, из БД загружаются только сами пользователи
      * @param id - id пользователя
-     * @return - список друзей
+     * @return - список друзей, упорядоченный по id
      */
     @Override
     public List<User> findAllFriends(long id) {
 
-        String sql = "select u.* from users u "
-                + "join (select friend_id from friends where user_id = ?) as allfriends on u.id = allfriends.friend_id";
-
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                makeUser(rs), id);
+        return findUsersByIds(friendsOf(id));
     }
 
     /**
-     * Метод получения списка общих друзей двух пользователей
+     * Метод получения списка общих друзей двух пользователей.
+     * Общие id находятся слиянием отсортированных списков друзей из графа, из БД загружаются только
+     * сами общие друзья
      * @param id - id первого пользователя
      * @param otherId - id второго пользователя
-     * @return - список общих друзей
+     * @return - список общих друзей, упорядоченный по id
      */
     @Override
     public List<User> findMutualFriends(long id, long otherId) {
 
-        String sql = "select u.* from users u "
-                + "join (select friend_id from friends where user_id = ?) as onefriends on u.id = onefriends.friend_id "
-                + "join (select friend_id from friends where user_id = ?) as twofriends on u.id = twofriends.friend_id";
+        int[] friends = friendsOf(id);
+        int[] otherFriends = friendsOf(otherId);
+        return findUsersByIds(FriendGraph.intersect(friends, otherFriends));
+    }
+
+    /**
+     * Метод получения рекомендуемых друзей - пользователей второго круга по убыванию числа общих друзей.
+     * Обход графа друзей ограничен свойствами filmorate.friends.suggestions.max-fan-out и time-budget,
+     * из БД одним запросом загружаются только найденные пользователи
+     * @param id - id пользователя
+     * @param limit - количество рекомендаций
+     * @return - список рекомендуемых пользователей в порядке ранжирования
+     */
+    @Override
+    public List<User> findFriendSuggestions(long id, int limit) {
+
+        List<Long> suggestedIds = friendGraph.suggest(id, limit, suggestionsMaxFanOut,
+                suggestionsTimeBudget.toNanos());
+        if (suggestedIds == null) {
+            log.error("Передан некорректный id пользователя: {}", id);
+            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
+        }
+        Map<Long, User> usersById = new HashMap<>();
+        for (User user : findUsersByIds(suggestedIds.stream().mapToInt(Long::intValue).sorted().toArray())) {
+            usersById.put(user.getId(), user);
+        }
+        return suggestedIds.stream()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод получения id друзей пользователя из графа друзей
+     * @param id - id пользователя
+     * @return - отсортированный массив id друзей
+     */
+    private int[] friendsOf(long id) {
+        int[] friends = friendGraph.friendsOf(id);
+        if (friends == null) {
+            log.error("Передан некорректный id пользователя: {}", id);
+            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
+        }
+        return friends;
+    }
+
+    /**
+     * Метод загрузки пользователей по списку id одним запросом
+     * @param ids - отсортированный массив id
+     * @return - список пользователей, упорядоченный по id
+     */
+    private List<User> findUsersByIds(int[] ids) {
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        List<Integer> idList = Arrays.stream(ids)
+                .boxed()
+                .collect(Collectors.toList());
+        String sql = "select * from users where id in (:ids) order by id";
+        return namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", idList), (rs, rowNum) ->
+                makeUser(rs));
+    }
 
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                makeUser(rs),id,otherId);
+    /**
+     * Метод проверки, что запрос вернул строки всех переданных пользователей
+     * @param owners - id пользователей, найденных запросом
+     * @param ids - id запрошенных пользователей
+     */
+    private void checkOwners(Set<Long> owners, long... ids) {
+        for (long userId : ids) {
+            if (!owners.contains(userId)) {
+                log.error("Передан некорректный id пользователя: {}", userId);
+                throw new UserNotFoundException("Пользователя с id " + userId + " не существует.");
+            }
+        }
+    }
+
+    /**
+     * Метод проверки существования двух пользователей одним запросом.
+     * Вызывается только после записи, которая ничего не изменила, чтобы вернуть ту же ошибку, что и раньше
+     * @param id - id первого пользователя
+     * @param friendId - id второго пользователя
+     */
+    private void checkUsers(long id, long friendId) {
+        String sql = "select id from users where id in (?, ?)";
+        Set<Long> owners = new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, id, friendId));
+        checkOwners(owners, id, friendId);
     }
 
     /**
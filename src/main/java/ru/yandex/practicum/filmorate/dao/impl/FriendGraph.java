@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Индекс графа друзей в памяти приложения.
+ * Для каждого пользователя хранится отсортированный массив id его друзей. Массивы не изменяются
+ * после публикации: при добавлении и удалении друга создается новый массив, поэтому чтение идет без блокировок.
+ * Записи одного пользователя в БД и в индекс выполняются под блокировкой его полосы (lockFor),
+ * чтобы порядок изменений в индексе совпадал с порядком в БД.
+ * Индекс полностью строится по таблицам users и friends при старте, а пользователи, которых в нем нет,
+ * догружаются из БД по первому обращению
+ */
+@Component
+@Slf4j
+public class FriendGraph {
+    private static final int[] EMPTY = SortedInts.EMPTY;
+    private static final int LOCK_STRIPES = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, int[]> friends = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public FriendGraph(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Метод построения индекса по таблицам users и friends, вызывается при старте приложения
+     */
+    @PostConstruct
+    public void load() {
+        Map<Long, int[]> loaded = new HashMap<>();
+        jdbcTemplate.query("select id from users", rs -> {
+            loaded.put(rs.getLong("id"), EMPTY);
+        });
+        SortedInts.Builder<Long> builder = new SortedInts.Builder<>();
+        jdbcTemplate.query("select user_id, friend_id from friends", rs -> {
+            builder.add(rs.getLong("user_id"), rs.getInt("friend_id"));
+        });
+        loaded.putAll(builder.build());
+        friends.clear();
+        friends.putAll(loaded);
+        log.info("Загружен граф друзей: {} пользователей, {} связей", loaded.size(), builder.total());
+    }
+
+    /**
+     * Метод получения блокировки для записи друзей пользователя
+     * @param userId - id пользователя
+     * @return - объект блокировки полосы пользователя
+     */
+    public Object lockFor(long userId) {
+        return locks[Math.floorMod(userId, LOCK_STRIPES)];
+    }
+
+    /**
+     * Метод получения отсортированных id друзей пользователя.
+     * Пользователь, которого нет в индексе, догружается из БД одним запросом
+     * @param userId - id пользователя
+     * @return - массив id друзей, который нельзя изменять, или null, если пользователя нет
+     */
+    public int[] friendsOf(long userId) {
+        int[] userFriends = friends.get(userId);
+        if (userFriends != null) {
+            return userFriends;
+        }
+        synchronized (lockFor(userId)) {
+            userFriends = friends.get(userId);
+            if (userFriends == null) {
+                userFriends = loadUser(userId);
+                if (userFriends != null) {
+                    friends.put(userId, userFriends);
+                }
+            }
+            return userFriends;
+        }
+    }
+
+    /**
+     * Метод добавления в индекс нового пользователя без друзей
+     * @param userId - id пользователя
+     */
+    public void addUser(long userId) {
+        friends.putIfAbsent(userId, EMPTY);
+    }
+
+    /**
+     * Метод удаления пользователя из индекса вместе со всеми связями, в которых он участвует
+     * @param userId - id пользователя
+     */
+    public void removeUser(long userId) {
+        friends.remove(userId);
+        for (Long id : friends.keySet()) {
+            removeFriend(id, userId);
+        }
+    }
+
+    /**
+     * Метод добавления друга в индекс. Пользователь, еще не загруженный в индекс, не изменяется
+     * @param userId - id пользователя
+     * @param friendId - id друга
+     */
+    public void addFriend(long userId, long friendId) {
+        friends.computeIfPresent(userId, (id, userFriends) -> SortedInts.insert(userFriends, (int) friendId));
+    }
+
+    /**
+     * Метод удаления друга из индекса
+     * @param userId - id пользователя
+     * @param friendId - id друга
+     */
+    public void removeFriend(long userId, long friendId) {
+        friends.computeIfPresent(userId, (id, userFriends) -> SortedInts.remove(userFriends, (int) friendId));
+    }
+
+    /**
+     * Метод поиска рекомендуемых друзей - пользователей второго круга, упорядоченных по убыванию числа
+     * общих друзей, при равенстве - по возрастанию id. Сам пользователь и его друзья исключаются.
+     * Обход ограничен: у пользователя и у каждого его друга просматривается не больше maxFanOut связей,
+     * а при исчерпании времени обход прекращается и ранжируются уже найденные кандидаты.
+     * Друзья второго круга берутся только из индекса, запросов к БД по кандидатам не выполняется
+     * @param userId - id пользователя
+     * @param limit - количество рекомендаций
+     * @param maxFanOut - максимальное количество просматриваемых связей одного пользователя
+     * @param timeBudgetNanos - ограничение времени обхода в наносекундах
+     * @return - id рекомендуемых пользователей или null, если пользователя нет
+     */
+    public List<Long> suggest(long userId, int limit, int maxFanOut, long timeBudgetNanos) {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        int[] direct = friendsOf(userId);
+        if (direct == null) {
+            return null;
+        }
+        Map<Integer, Integer> mutualCounts = new HashMap<>();
+        int directLimit = Math.min(direct.length, maxFanOut);
+        for (int i = 0; i < directLimit; i++) {
+            if (i > 0 && System.nanoTime() > deadline) {
+                log.warn("Обход друзей второго круга пользователя с id {} прерван по времени на {} из {} друзей",
+                        userId, i, directLimit);
+                break;
+            }
+            int[] secondDegree = friends.getOrDefault((long) direct[i], EMPTY);
+            int secondLimit = Math.min(secondDegree.length, maxFanOut);
+            for (int j = 0; j < secondLimit; j++) {
+                int candidate = secondDegree[j];
+                if (candidate != userId && !SortedInts.contains(direct, candidate)) {
+                    mutualCounts.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return IdScores.top(mutualCounts, limit).stream()
+                .map(entry -> (long) entry.getKey())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод пересечения двух отсортированных массивов id за один линейный проход
+     * @param first - первый массив
+     * @param second - второй массив
+     * @return - отсортированный массив общих id
+     */
+    public static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * Метод загрузки друзей одного пользователя из БД
+     * @param userId - id пользователя
+     * @return - отсортированный массив id друзей или null, если пользователя нет
+     */
+    private int[] loadUser(long userId) {
+        String sql = "select o.id, f.friend_id from users o left join friends f on f.user_id = o.id "
+                + "where o.id = ? order by f.friend_id";
+        List<Integer> rows = jdbcTemplate.query(sql, (rs, rowNum) -> rs.getObject("friend_id", Integer.class),
+                userId);
+        if (rows.isEmpty()) {
+            return null;
+        }
+        return rows.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+}
@@ -3,13 +3,14 @@ package ru.yandex.practicum.filmorate.dao.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.GenreDao;
 import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.model.Genre;
 
+import javax.annotation.PostConstruct;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * DAO класс для работы с БД жанров фильма
@@ -20,6 +21,7 @@ public class GenreDaoImpl implements GenreDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final GenreMapper genreMapper;
+    private volatile IdDictionary<Genre> dictionary = IdDictionary.of(List.of(), Genre::getId);
 
     @Autowired
     public GenreDaoImpl(JdbcTemplate jdbcTemplate, GenreMapper genreMapper) {
@@ -29,13 +31,27 @@ public class GenreDaoImpl implements GenreDao {
     }
 
     /**
-     * Метод получения всех жанров
+     * Метод загрузки справочника жанров из БД.
+     * Вызывается при старте приложения и по запросу администратора, новый справочник подменяет старый целиком
      * @return - коллекция жанров, хранящихся в БД
      */
     @Override
+    @PostConstruct
+    public Collection<Genre> refresh() {
+        String sql = "select * from genre order by id";
+        IdDictionary<Genre> loaded = IdDictionary.of(jdbcTemplate.query(sql, genreMapper), Genre::getId);
+        dictionary = loaded;
+        log.info("Загружен справочник жанров: {} записей", loaded.values().size());
+        return loaded.values();
+    }
+
+    /**
+     * Метод получения всех жанров
+     * @return - коллекция жанров, хранящихся в справочнике
+     */
+    @Override
     public Collection<Genre> findAllGenre() {
-        String sql = "select * from genre";
-        return jdbcTemplate.query(sql, genreMapper);
+        return dictionary.values();
     }
 
     /**
@@ -45,17 +61,12 @@ public class GenreDaoImpl implements GenreDao {
      */
     @Override
     public Genre findGenreById(int id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select * from genre where id = ?", id);
-
-        if (userRows.next()) {
-            Genre genre = new Genre(
-                    userRows.getInt("id"),
-                    userRows.getString("name"));
-            log.info("Найден жанр: {}", genre.getName());
-            return genre;
-        } else {
+        Genre genre = dictionary.get(id);
+
+        if (genre == null) {
             log.error("Передан некорректный id жанра: {}", id);
             throw new GenreNotFoundException(String.format("Жанр с id %d не найден", id));
         }
+        return genre;
     }
 }
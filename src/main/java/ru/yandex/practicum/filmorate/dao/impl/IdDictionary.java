@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Неизменяемый справочник объектов с небольшими целочисленными id.
+ * Объекты хранятся в массиве, индекс которого совпадает с id, поэтому поиск не обращается к БД
+ * и не создает новых объектов. Для обновления данных создается новый экземпляр справочника
+ * @param <T> - тип объекта справочника
+ */
+public final class IdDictionary<T> {
+    private final Object[] byId;
+    private final List<T> values;
+
+    private IdDictionary(Object[] byId, List<T> values) {
+        this.byId = byId;
+        this.values = values;
+    }
+
+    /**
+     * Метод создания справочника по списку объектов
+     * @param values - объекты справочника в порядке, в котором их возвращает метод values
+     * @param idFunction - функция получения id объекта
+     * @return - справочник
+     */
+    public static <T> IdDictionary<T> of(List<T> values, ToIntFunction<T> idFunction) {
+        int maxId = values.stream()
+                .mapToInt(idFunction)
+                .max()
+                .orElse(-1);
+        Object[] byId = new Object[maxId + 1];
+        for (T value : values) {
+            byId[idFunction.applyAsInt(value)] = value;
+        }
+        return new IdDictionary<>(byId, List.copyOf(values));
+    }
+
+    /**
+     * Метод получения объекта по id
+     * @param id - id объекта
+     * @return - найденный объект или null, если объекта с таким id нет
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        if (id < 0 || id >= byId.length) {
+            return null;
+        }
+        return (T) byId[id];
+    }
+
+    /**
+     * Метод получения всех объектов справочника
+     * @return - неизменяемый список объектов
+     */
+    public List<T> values() {
+        return values;
+    }
+}
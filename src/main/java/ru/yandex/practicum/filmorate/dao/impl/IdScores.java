@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Выбор лучших id по оценке для индексов в памяти: рекомендаций друзей, фильмов и поиска
+ */
+final class IdScores {
+    /**
+     * Порядок ранжирования: по убыванию оценки, при равенстве - по возрастанию id
+     */
+    static final Comparator<Map.Entry<Integer, Integer>> RANK_ORDER =
+            Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.comparingByKey());
+
+    private IdScores() {
+    }
+
+    /**
+     * Метод выбора лучших записей через кучу размера limit, без сортировки всех оценок
+     * @param scores - Map, ключ - id, значение - оценка
+     * @param limit - количество записей
+     * @return - лучшие записи в порядке RANK_ORDER
+     */
+    static List<Map.Entry<Integer, Integer>> top(Map<Integer, Integer> scores, int limit) {
+        PriorityQueue<Map.Entry<Integer, Integer>> best = new PriorityQueue<>(RANK_ORDER.reversed());
+        for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(best);
+        ranked.sort(RANK_ORDER);
+        return ranked;
+    }
+}
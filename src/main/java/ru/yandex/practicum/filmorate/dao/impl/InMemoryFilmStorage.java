@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище фильмов в памяти приложения со сквозной записью в FilmDbStorage.
+ * Все чтения обслуживаются из упорядоченной по id неблокирующей карты, лайки фильмов берутся из LikeMatrix,
+ * поэтому изменения лайков не требуют сброса записей. Запись сначала выполняется в БД, затем в карту,
+ * под блокировкой полосы id фильма, чтобы порядок изменений одного фильма в памяти совпадал с порядком в БД;
+ * читатели блокировок не берут. Фильм, которого еще нет в карте, не обновляется и не удаляется.
+ * Включается свойством filmorate.storage.implementation=in-memory
+ */
+@Repository
+@Qualifier("inMemoryFilmStorage")
+@Primary
+@ConditionalOnProperty(name = "filmorate.storage.implementation", havingValue = "in-memory")
+@Slf4j
+public class InMemoryFilmStorage implements FilmStorage {
+    private static final int LOCK_STRIPES = 64;
+
+    private final FilmDbStorage filmStorage;
+    private final LikeMatrix likeMatrix;
+    /**
+     * Фильмы без лайков, объекты не изменяются после публикации
+     */
+    private final ConcurrentSkipListMap<Long, Film> films = new ConcurrentSkipListMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public InMemoryFilmStorage(FilmDbStorage filmStorage, LikeMatrix likeMatrix) {
+        this.filmStorage = filmStorage;
+        this.likeMatrix = likeMatrix;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Метод загрузки всех фильмов из БД, вызывается при старте приложения
+     */
+    @PostConstruct
+    public void load() {
+        films.clear();
+        filmStorage.streamAllFilms(film -> films.put(film.getId(), withoutLikes(film)));
+        log.info("В память загружено фильмов: {}", films.size());
+    }
+
+    @Override
+    public Film addFilm(Film film) {
+        Film addedFilm = filmStorage.addFilm(film);
+        synchronized (lockFor(addedFilm.getId())) {
+            films.put(addedFilm.getId(), withoutLikes(addedFilm));
+        }
+        return addedFilm;
+    }
+
+    @Override
+    public BatchResult addFilms(List<Film> batch) {
+        BatchResult result = filmStorage.addFilms(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = result.getIds().get(i);
+            if (id != null) {
+                synchronized (lockFor(id)) {
+                    films.put(id, withoutLikes(batch.get(i)));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void removeFilm(long id) {
+        synchronized (lockFor(id)) {
+            requireFilm(id);
+            filmStorage.removeFilm(id);
+            films.remove(id);
+        }
+    }
+
+    @Override
+    public Film updateFilm(Film updateFilm) {
+        synchronized (lockFor(updateFilm.getId())) {
+            requireFilm(updateFilm.getId());
+            Film updatedFilm = filmStorage.updateFilm(updateFilm);
+            Film stored = withoutLikes(updatedFilm);
+            films.put(stored.getId(), stored);
+            return withLikes(stored);
+        }
+    }
+
+    @Override
+    public Collection<Film> getAllFilms() {
+        return films.values().stream()
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Film findFilmById(long id) {
+        return withLikes(requireFilm(id));
+    }
+
+    @Override
+    public List<Film> getFilmsAfter(long afterId, int limit) {
+        return films.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllFilms(Consumer<Film> consumer) {
+        films.values().forEach(film -> consumer.accept(withLikes(film)));
+    }
+
+    @Override
+    public List<Film> findFilmsByIds(List<Long> ids) {
+        return ids.stream()
+                .map(films::get)
+                .filter(Objects::nonNull)
+                .map(this::withLikes)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Метод получения статистики хранилища. Кэша перед хранилищем нет, все фильмы находятся в памяти
+     * @return - Map, ключ - название показателя, значение - его величина
+     */
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", false);
+        stats.put("storage", "in-memory");
+        stats.put("size", films.size());
+        return stats;
+    }
+
+    private Object lockFor(long id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    private Film requireFilm(long id) {
+        Film film = films.get(id);
+        if (film == null) {
+            log.error("Передан некорректный id фильма: {}", id);
+            throw new FilmNotFoundException(String.format("Фильм с id %d не найден", id));
+        }
+        return film;
+    }
+
+    /**
+     * Метод получения копии фильма с текущими лайками из LikeMatrix
+     * @param film - фильм из карты
+     * @return - копия фильма, которую может изменять вызывающий код
+     */
+    private Film withLikes(Film film) {
+        Film copy = film.copy();
+        for (int userId : likeMatrix.usersOf(film.getId())) {
+            copy.getLikes().add((long) userId);
+        }
+        return copy;
+    }
+
+    private static Film withoutLikes(Film film) {
+        Film copy = film.copy();
+        copy.getLikes().clear();
+        return copy;
+    }
+}
@@ -0,0 +1,151 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище пользователей в памяти приложения со сквозной записью в UserDbStorage.
+ * Все чтения обслуживаются из упорядоченной по id неблокирующей карты. Запись сначала выполняется в БД,
+ * затем в карту, под блокировкой полосы id пользователя, чтобы порядок изменений одного пользователя в памяти
+ * совпадал с порядком в БД; читатели блокировок не берут. Пользователь, которого еще нет в карте,
+ * не обновляется и не удаляется.
+ * Друзья, как и в UserDbStorage, в пользователя не загружаются - они хранятся в FriendGraph.
+ * Включается свойством filmorate.storage.implementation=in-memory
+ */
+@Repository
+@Qualifier("inMemoryUserStorage")
+@Primary
+@ConditionalOnProperty(name = "filmorate.storage.implementation", havingValue = "in-memory")
+@Slf4j
+public class InMemoryUserStorage implements UserStorage {
+    private static final int LOCK_STRIPES = 64;
+
+    private final UserDbStorage userStorage;
+    /**
+     * Пользователи без друзей, объекты не изменяются после публикации
+     */
+    private final ConcurrentSkipListMap<Long, User> users = new ConcurrentSkipListMap<>();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public InMemoryUserStorage(UserDbStorage userStorage) {
+        this.userStorage = userStorage;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Метод загрузки всех пользователей из БД, вызывается при старте приложения
+     */
+    @PostConstruct
+    public void load() {
+        users.clear();
+        userStorage.streamAllUsers(user -> users.put(user.getId(), user));
+        log.info("В память загружено пользователей: {}", users.size());
+    }
+
+    @Override
+    public User createUser(User user) {
+        User createdUser = userStorage.createUser(user);
+        synchronized (lockFor(createdUser.getId())) {
+            users.put(createdUser.getId(), withoutFriends(createdUser));
+        }
+        return createdUser;
+    }
+
+    @Override
+    public BatchResult addUsers(List<User> batch) {
+        BatchResult result = userStorage.addUsers(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Long id = result.getIds().get(i);
+            if (id != null) {
+                User stored = withoutFriends(batch.get(i));
+                stored.setId(id);
+                synchronized (lockFor(id)) {
+                    users.put(id, stored);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void removeUser(long id) {
+        synchronized (lockFor(id)) {
+            if (!users.containsKey(id)) {
+                log.error("Передан некорректный id пользователя: {}", id);
+                throw new UserNotFoundException(String.format("Пользователь с id %d не существует.", id));
+            }
+            userStorage.removeUser(id);
+            users.remove(id);
+        }
+    }
+
+    @Override
+    public User updateUser(User updateUser) {
+        synchronized (lockFor(updateUser.getId())) {
+            requireUser(updateUser.getId());
+            User updatedUser = userStorage.updateUser(updateUser);
+            users.put(updatedUser.getId(), withoutFriends(updatedUser));
+            return updatedUser;
+        }
+    }
+
+    @Override
+    public Collection<User> getAllUsers() {
+        return users.values().stream()
+                .map(User::copy)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public User findUserById(long id) {
+        return requireUser(id).copy();
+    }
+
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+        return users.tailMap(afterId, false).values().stream()
+                .limit(limit)
+                .map(User::copy)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+        users.values().forEach(user -> consumer.accept(user.copy()));
+    }
+
+    private Object lockFor(long id) {
+        return locks[Math.floorMod(id, LOCK_STRIPES)];
+    }
+
+    private User requireUser(long id) {
+        User user = users.get(id);
+        if (user == null) {
+            log.error("Передан некорректный id пользователя: {}", id);
+            throw new UserNotFoundException(String.format("Пользователь с id %d не найден", id));
+        }
+        return user;
+    }
+
+    private static User withoutFriends(User user) {
+        User copy = user.copy();
+        copy.getFriends().clear();
+        return copy;
+    }
+}
@@ -1,12 +1,18 @@
 package ru.yandex.practicum.filmorate.dao.impl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ru.yandex.practicum.filmorate.dao.LikeDao;
-import ru.yandex.practicum.filmorate.exception.ValidationException;
-import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * DAO класс для работы с БД, определяющей лайки фильмам
@@ -14,49 +20,137 @@ import ru.yandex.practicum.filmorate.model.Like;
 @Repository
 @Slf4j
 public class LikeDaoImpl implements LikeDao {
+    private static final int LOCK_STRIPES = 64;
 
     private final JdbcTemplate jdbcTemplate;
+    private final LikeMatrix likeMatrix;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
 
-    public LikeDaoImpl(JdbcTemplate jdbcTemplate) {
+    public LikeDaoImpl(JdbcTemplate jdbcTemplate, LikeMatrix likeMatrix) {
         this.jdbcTemplate = jdbcTemplate;
+        this.likeMatrix = likeMatrix;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
     }
 
     /**
-     * Метод добавления лайка
+     * Метод добавления лайка одним условным merge: строка вставляется, только если ее еще нет.
+     * Счетчик лайков фильма увеличивается в той же транзакции, только если лайк действительно добавлен.
+     * Отсутствие фильма или пользователя определяется по ошибке внешнего ключа, без предварительных проверок.
+     * Матрица лайков обновляется после фиксации транзакции
      * @param id - id фильма
      * @param userId - id пользователя, проставляющего лайк
-     * @return - полученный лайк
+     * @return - true, если лайк добавлен, false, если он уже был
      */
     @Override
-    public Like addLike(long id, long userId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from likes where film_id = ? and user_id = ?",
-                id, userId);
-        if (userRows.next()) {
-            log.error("Лайк фильму с id {} от пользователя с id {} уже существует.", id, userId);
-            throw new ValidationException("Данный пользователь уже ставил лайк данному фильму.");
+    @Transactional
+    public boolean addLike(long id, long userId) {
+        String sqlQuery = "merge into likes l using (values (cast(? as int), cast(? as int))) as s(film_id, user_id) "
+                + "on l.film_id = s.film_id and l.user_id = s.user_id "
+                + "when not matched then insert (film_id, user_id) values (s.film_id, s.user_id)";
+        lockUntilCompletion(userId);
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(sqlQuery, id, userId);
+        } catch (DuplicateKeyException e) {
+            return false;
+        } catch (DataIntegrityViolationException e) {
+            checkFilmAndUser(id, userId);
+            throw e;
+        }
+        if (inserted == 0) {
+            return false;
         }
-        String sqlQuery = "insert into likes(film_id, user_id) " +
-                "values (?, ?)";
-        jdbcTemplate.update(sqlQuery,
-                id, userId);
-        return new Like(id, userId);
+        jdbcTemplate.update("update films set like_count = like_count + 1 where id = ?", id);
+        afterCommit(() -> likeMatrix.addLike(id, userId));
+        return true;
     }
 
     /**
-     * Метод удаления лайка
+     * Метод удаления лайка. Счетчик лайков фильма уменьшается в той же транзакции,
+     * только если лайк действительно удален. Матрица лайков обновляется после фиксации транзакции
      * @param id - id фильма
      * @param userId - id пользователя, удаляющего лайк
+     * @return - true, если лайк удален, false, если его не было
      */
     @Override
-    public void removeLike(long id, long userId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from likes where film_id = ? and user_id = ?",
-                id, userId);
-        if (userRows.next()) {
-            String sqlQuery = "delete from likes where film_id = ? and user_id = ?";
-            jdbcTemplate.update(sqlQuery, id, userId);
-        } else {
-            log.error("Пользователь с id {} не ставил лайк данному фильму", userId);
-            throw new ValidationException("Пользователь с id " + userId + " не ставил лайк данному фильму.");
+    @Transactional
+    public boolean removeLike(long id, long userId) {
+        String sqlQuery = "delete from likes where film_id = ? and user_id = ?";
+        lockUntilCompletion(userId);
+        if (jdbcTemplate.update(sqlQuery, id, userId) == 0) {
+            checkFilmAndUser(id, userId);
+            return false;
         }
+        jdbcTemplate.update("update films set like_count = like_count - 1 where id = ?", id);
+        afterCommit(() -> likeMatrix.removeLike(id, userId));
+        return true;
+    }
+
+    /**
+     * Метод блокировки полосы пользователя до завершения текущей транзакции.
+     * Изменения матрицы выполняются после фиксации, и без блокировки изменения одной пары фильм-пользователь
+     * из двух транзакций могли бы попасть в матрицу в порядке, обратном порядку фиксации в БД
+     * @param userId - id пользователя
+     */
+    private void lockUntilCompletion(long userId) {
+        ReentrantLock lock = locks[Math.floorMod(userId, LOCK_STRIPES)];
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        lock.lock();
+    }
+
+    /**
+     * Метод выполнения действия после фиксации текущей транзакции.
+     * До фиксации другие потоки не видят в памяти изменений, которых еще нет в БД, а при откате действие
+     * не выполняется
+     * @param action - действие
+     */
+    private static void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Метод проверки существования фильма и пользователя одним запросом.
+     * Вызывается только после записи, которая ничего не изменила, чтобы вернуть ту же ошибку, что и раньше
+     * @param id - id фильма
+     * @param userId - id пользователя
+     */
+    private void checkFilmAndUser(long id, long userId) {
+        String sql = "select exists(select 1 from films where id = ?) as film_exists, "
+                + "exists(select 1 from users where id = ?) as user_exists";
+        jdbcTemplate.query(sql, rs -> {
+            if (!rs.getBoolean("film_exists")) {
+                log.error("Передан некорректный id фильма: {}", id);
+                throw new FilmNotFoundException("Фильм с id " + id + " не существует.");
+            }
+            if (!rs.getBoolean("user_exists")) {
+                log.error("Передан некорректный id пользователя: {}", userId);
+                throw new UserNotFoundException("Пользователь с id " + userId + " не существует.");
+            }
+        }, id, userId);
+    }
+
+    /**
+     * Метод пересчета счетчиков лайков всех фильмов по таблице likes
+     * @return - количество обновленных фильмов
+     */
+    @Override
+    @Transactional
+    public int rebuildLikeCounts() {
+        String sql = "update films f set like_count = (select count(*) from likes l where l.film_id = f.id)";
+        int updated = jdbcTemplate.update(sql);
+        log.info("Пересчитаны счетчики лайков у {} фильмов", updated);
+        return updated;
     }
 }
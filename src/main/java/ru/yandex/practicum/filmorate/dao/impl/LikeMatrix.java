@@ -0,0 +1,183 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Разреженная матрица лайков пользователь x фильм в памяти приложения.
+ * Хранится в двух направлениях: для пользователя - отсортированный массив id понравившихся фильмов,
+ * для фильма - отсортированный массив id пользователей, поставивших лайк. Массивы не изменяются
+ * после публикации, поэтому чтение идет без блокировок.
+ * Матрица строится по таблице likes при старте и обновляется LikeDaoImpl в afterCommit транзакции лайка.
+ * LikeDaoImpl держит блокировку полосы пользователя до завершения транзакции, а afterCommit выполняется
+ * раньше ее снятия, поэтому изменения одного пользователя применяются в порядке их фиксации в БД,
+ * а откаченные изменения в матрицу не попадают
+ */
+@Component
+@Slf4j
+public class LikeMatrix {
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Long, int[]> filmsByUser = new ConcurrentHashMap<>();
+    private final Map<Long, int[]> usersByFilm = new ConcurrentHashMap<>();
+
+    public LikeMatrix(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Метод построения матрицы по таблице likes, вызывается при старте приложения
+     */
+    @PostConstruct
+    public void load() {
+        SortedInts.Builder<Long> byUser = new SortedInts.Builder<>();
+        SortedInts.Builder<Long> byFilm = new SortedInts.Builder<>();
+        jdbcTemplate.query("select user_id, film_id from likes", rs -> {
+            long userId = rs.getLong("user_id");
+            long filmId = rs.getLong("film_id");
+            byUser.add(userId, (int) filmId);
+            byFilm.add(filmId, (int) userId);
+        });
+        filmsByUser.clear();
+        filmsByUser.putAll(byUser.build());
+        usersByFilm.clear();
+        usersByFilm.putAll(byFilm.build());
+        log.info("Загружена матрица лайков: {} пользователей, {} фильмов, {} лайков", filmsByUser.size(),
+                usersByFilm.size(), byUser.total());
+    }
+
+    /**
+     * Метод добавления лайка в матрицу
+     * @param filmId - id фильма
+     * @param userId - id пользователя
+     */
+    public void addLike(long filmId, long userId) {
+        filmsByUser.merge(userId, new int[]{(int) filmId}, (films, added) -> SortedInts.insert(films, (int) filmId));
+        usersByFilm.merge(filmId, new int[]{(int) userId}, (users, added) -> SortedInts.insert(users, (int) userId));
+    }
+
+    /**
+     * Метод удаления лайка из матрицы
+     * @param filmId - id фильма
+     * @param userId - id пользователя
+     */
+    public void removeLike(long filmId, long userId) {
+        filmsByUser.computeIfPresent(userId, (id, films) -> emptyToNull(SortedInts.remove(films, (int) filmId)));
+        usersByFilm.computeIfPresent(filmId, (id, users) -> emptyToNull(SortedInts.remove(users, (int) userId)));
+    }
+
+    /**
+     * Метод удаления фильма вместе со всеми его лайками
+     * @param filmId - id фильма
+     */
+    public void removeFilm(long filmId) {
+        int[] users = usersByFilm.remove(filmId);
+        if (users != null) {
+            for (int userId : users) {
+                filmsByUser.computeIfPresent((long) userId,
+                        (id, films) -> emptyToNull(SortedInts.remove(films, (int) filmId)));
+            }
+        }
+    }
+
+    /**
+     * Метод удаления пользователя вместе со всеми его лайками
+     * @param userId - id пользователя
+     */
+    public void removeUser(long userId) {
+        int[] films = filmsByUser.remove(userId);
+        if (films != null) {
+            for (int filmId : films) {
+                usersByFilm.computeIfPresent((long) filmId,
+                        (id, users) -> emptyToNull(SortedInts.remove(users, (int) userId)));
+            }
+        }
+    }
+
+    /**
+     * Метод получения id фильмов, которым пользователь поставил лайк
+     * @param userId - id пользователя
+     * @return - отсортированный массив id фильмов, который нельзя изменять
+     */
+    public int[] filmsOf(long userId) {
+        return filmsByUser.getOrDefault(userId, SortedInts.EMPTY);
+    }
+
+    /**
+     * Метод получения id пользователей, поставивших лайк фильму
+     * @param filmId - id фильма
+     * @return - отсортированный массив id пользователей, который нельзя изменять
+     */
+    public int[] usersOf(long filmId) {
+        return usersByFilm.getOrDefault(filmId, SortedInts.EMPTY);
+    }
+
+    /**
+     * Метод получения рекомендаций фильмов методом коллаборативной фильтрации.
+     * Для каждого пользователя, лайкнувшего те же фильмы, считается число общих лайков, из них выбираются
+     * neighbours самых похожих. Фильмы похожих пользователей, которых нет у данного пользователя,
+     * ранжируются по сумме числа общих лайков пользователей, которым они понравились.
+     * Если у пользователя не меньше parallelThreshold лайков, подсчет общих лайков распределяется по ядрам
+     * @param userId - id пользователя
+     * @param limit - количество рекомендаций
+     * @param neighbours - количество учитываемых похожих пользователей
+     * @param parallelThreshold - количество лайков пользователя, начиная с которого подсчет идет параллельно
+     * @return - id рекомендуемых фильмов по убыванию оценки, при равенстве - по возрастанию id
+     */
+    public List<Long> recommend(long userId, int limit, int neighbours, int parallelThreshold) {
+        int[] userFilms = filmsOf(userId);
+        if (userFilms.length == 0) {
+            return new ArrayList<>();
+        }
+        Map<Integer, Integer> overlaps = userFilms.length >= parallelThreshold
+                ? Arrays.stream(userFilms).parallel()
+                        .collect(HashMap::new, (counts, filmId) -> countOverlaps(counts, userId, filmId),
+                                this::mergeCounts)
+                : countOverlaps(userId, userFilms);
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<Integer, Integer> neighbour : IdScores.top(overlaps, neighbours)) {
+            for (int filmId : filmsOf(neighbour.getKey())) {
+                if (!SortedInts.contains(userFilms, filmId)) {
+                    scores.merge(filmId, neighbour.getValue(), Integer::sum);
+                }
+            }
+        }
+        return IdScores.top(scores, limit).stream()
+                .map(entry -> (long) entry.getKey())
+                .collect(Collectors.toList());
+    }
+
+    private Map<Integer, Integer> countOverlaps(long userId, int[] userFilms) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int filmId : userFilms) {
+            countOverlaps(counts, userId, filmId);
+        }
+        return counts;
+    }
+
+    private void countOverlaps(Map<Integer, Integer> counts, long userId, int filmId) {
+        for (int otherId : usersByFilm.getOrDefault((long) filmId, SortedInts.EMPTY)) {
+            if (otherId != userId) {
+                counts.merge(otherId, 1, Integer::sum);
+            }
+        }
+    }
+
+    private void mergeCounts(Map<Integer, Integer> target, Map<Integer, Integer> source) {
+        source.forEach((id, count) -> target.merge(id, count, Integer::sum));
+    }
+
+    private static int[] emptyToNull(int[] values) {
+        return values.length == 0 ? null : values;
+    }
+}
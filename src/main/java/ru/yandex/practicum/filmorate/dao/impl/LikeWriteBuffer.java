@@ -0,0 +1,323 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Буфер отложенной записи лайков (write-behind).
+ * Лайки и их удаления копятся в памяти: для каждой пары фильм-пользователь хранится только отличие
+ * от состояния БД, поэтому лайк и последующее удаление этого же лайка взаимно сокращаются.
+ * Буфер сбрасывается в БД пакетами в одной транзакции по таймеру flush-interval или при накоплении
+ * max-pending изменений, а также при остановке приложения. Сброс всегда выполняется в потоке таймера,
+ * поэтому ошибка записи не возвращается клиенту, изменение которого уже принято. Если запись не удается,
+ * буфер растет не больше чем до двух max-pending изменений, дальше новые изменения отклоняются
+ * с ServiceUnavailableException. При аварийном завершении теряется не больше двух max-pending изменений,
+ * а БД остается согласованной: счетчики like_count пересчитываются по таблице likes в той же транзакции,
+ * что и запись лайков.
+ * Включается свойством filmorate.likes.write-behind.enabled=true
+ */
+@Repository
+@Slf4j
+public class LikeWriteBuffer {
+    private static final String SQL_MERGE_LIKE = "merge into likes(film_id, user_id) key(film_id, user_id) "
+            + "select f.id, u.id from films f join users u on u.id = ? where f.id = ?";
+    private static final String SQL_DELETE_LIKE = "delete from likes where film_id = ? and user_id = ?";
+    private static final String SQL_UPDATE_LIKE_COUNT = "update films set like_count = "
+            + "(select count(*) from likes where film_id = ?) where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmStorage filmStorage;
+    private final LikeMatrix likeMatrix;
+    private final boolean enabled;
+    private final int maxPending;
+    private final Duration flushInterval;
+    /**
+     * Ключ - пара id фильма и пользователя, упакованная в long, значение - true для лайка, false для удаления
+     */
+    private Map<Long, Boolean> pending = new LinkedHashMap<>();
+    /**
+     * Изменения, которые записываются в БД в данный момент
+     */
+    private Map<Long, Boolean> flushing = Map.of();
+    private long flushCount;
+    private boolean flushScheduled;
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService scheduler;
+
+    public LikeWriteBuffer(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                           FilmStorage filmStorage, LikeMatrix likeMatrix,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.max-pending:1000}") int maxPending,
+                           @Value("${filmorate.likes.write-behind.flush-interval:1s}") Duration flushInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.filmStorage = filmStorage;
+        this.likeMatrix = likeMatrix;
+        this.enabled = enabled;
+        this.maxPending = maxPending;
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * Метод запуска периодического сброса буфера, если отложенная запись включена
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "like-write-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMs = flushInterval.toMillis();
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        log.info("Отложенная запись лайков включена: до {} изменений, сброс раз в {}", maxPending, flushInterval);
+    }
+
+    /**
+     * Метод остановки: таймер останавливается, накопленные изменения записываются в БД
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        try {
+            int flushed = flush();
+            log.info("Буфер лайков сброшен при остановке, записано изменений: {}", flushed);
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи буфера лайков при остановке, потеряно изменений: {}", pendingCount(), e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Метод добавления лайка в буфер.
+     * Результат тот же, что и у LikeDaoImpl, с учетом еще не записанных изменений
+     * @param id - id фильма
+     * @param userId - id пользователя, проставляющего лайк
+     * @return - true, если лайк добавлен, false, если он уже был
+     */
+    public boolean addLike(long id, long userId) {
+        return change(id, userId, true);
+    }
+
+    /**
+     * Метод добавления в буфер удаления лайка
+     * @param id - id фильма
+     * @param userId - id пользователя, удаляющего лайк
+     * @return - true, если лайк удален, false, если его не было
+     */
+    public boolean removeLike(long id, long userId) {
+        return change(id, userId, false);
+    }
+
+    /**
+     * Метод получения количества изменений, ожидающих записи в БД, вместе с записываемой порцией
+     * @return - количество изменений
+     */
+    public synchronized int pendingCount() {
+        return pending.size() + flushing.size();
+    }
+
+    /**
+     * Метод записи накопленных изменений в БД.
+     * Лайки записываются через merge только для существующих фильмов и пользователей, поэтому удаленные
+     * за время ожидания фильмы и пользователи не ломают пакет. При ошибке изменения возвращаются в буфер,
+     * если за это время по той же паре не пришло более нового изменения.
+     * Матрица лайков обновляется после фиксации транзакции, пока порция еще видна через flushing
+     * @return - количество записанных изменений
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            Map<Long, Boolean> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    return 0;
+                }
+                batch = pending;
+                flushing = batch;
+                pending = new LinkedHashMap<>();
+                flushScheduled = false;
+            }
+            List<Object[]> likes = new ArrayList<>();
+            List<Object[]> unlikes = new ArrayList<>();
+            Set<Long> filmIds = new TreeSet<>();
+            batch.forEach((key, liked) -> {
+                long filmId = filmId(key);
+                long userId = userId(key);
+                filmIds.add(filmId);
+                if (liked) {
+                    likes.add(new Object[]{userId, filmId});
+                } else {
+                    unlikes.add(new Object[]{filmId, userId});
+                }
+            });
+            List<Object[]> counts = new ArrayList<>();
+            for (Long filmId : filmIds) {
+                counts.add(new Object[]{filmId, filmId});
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    jdbcTemplate.batchUpdate(SQL_MERGE_LIKE, likes);
+                    jdbcTemplate.batchUpdate(SQL_DELETE_LIKE, unlikes);
+                    jdbcTemplate.batchUpdate(SQL_UPDATE_LIKE_COUNT, counts);
+                });
+                batch.forEach((key, liked) -> {
+                    if (liked) {
+                        likeMatrix.addLike(filmId(key), userId(key));
+                    } else {
+                        likeMatrix.removeLike(filmId(key), userId(key));
+                    }
+                });
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    Map<Long, Boolean> restored = new LinkedHashMap<>(batch);
+                    restored.keySet().removeAll(pending.keySet());
+                    restored.putAll(pending);
+                    pending = restored;
+                    flushing = Map.of();
+                }
+                throw e;
+            } finally {
+                synchronized (this) {
+                    flushing = Map.of();
+                    flushCount++;
+                }
+            }
+            filmIds.forEach(filmStorage::invalidate);
+            log.debug("Записано изменений лайков: {}, фильмов: {}", batch.size(), filmIds.size());
+            return batch.size();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Ошибка записи буфера лайков, изменения будут записаны повторно", e);
+        }
+    }
+
+    /**
+     * Метод регистрации изменения лайка.
+     * Текущее состояние пары берется из буфера или из записываемой порции, а если их там нет - из БД
+     * одним запросом, который заодно проверяет существование фильма и пользователя. Если между чтением
+     * из БД и обращением к буферу завершился сброс, состояние читается заново.
+     * При накоплении max-pending изменений сброс передается потоку таймера
+     * @param id - id фильма
+     * @param userId - id пользователя
+     * @param liked - true для лайка, false для удаления
+     * @return - false, если пара уже находится в требуемом состоянии
+     * @throws ServiceUnavailableException - если в буфере уже два max-pending незаписанных изменения
+     */
+    private boolean change(long id, long userId, boolean liked) {
+        long key = key(id, userId);
+        while (true) {
+            long observedFlushCount;
+            synchronized (this) {
+                observedFlushCount = flushCount;
+            }
+            boolean stored = isLikeStored(id, userId);
+            synchronized (this) {
+                if (observedFlushCount != flushCount && !pending.containsKey(key)) {
+                    continue;
+                }
+                boolean current = pending.getOrDefault(key, flushing.getOrDefault(key, stored));
+                if (current == liked) {
+                    return false;
+                }
+                if (pending.containsKey(key)) {
+                    pending.remove(key);
+                } else if (pendingCount() >= 2 * maxPending) {
+                    log.error("Буфер лайков переполнен: {} незаписанных изменений", pendingCount());
+                    throw new ServiceUnavailableException("Сервис перегружен, повторите запрос позже.");
+                } else {
+                    pending.put(key, liked);
+                }
+                if (pending.size() >= maxPending) {
+                    scheduleFlush();
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Метод передачи сброса буфера потоку таймера, если сброс еще не запланирован.
+     * Без запущенного таймера буфер сбрасывается только явным вызовом flush
+     */
+    private synchronized void scheduleFlush() {
+        if (flushScheduled || scheduler == null || scheduler.isShutdown()) {
+            return;
+        }
+        flushScheduled = true;
+        scheduler.execute(this::flushQuietly);
+    }
+
+    /**
+     * Метод проверки наличия лайка в БД вместе с существованием фильма и пользователя
+     * @param id - id фильма
+     * @param userId - id пользователя
+     * @return - true, если лайк записан в БД
+     */
+    private boolean isLikeStored(long id, long userId) {
+        String sql = "select exists(select 1 from films where id = ?) as film_exists, "
+                + "exists(select 1 from users where id = ?) as user_exists, "
+                + "exists(select 1 from likes where film_id = ? and user_id = ?) as like_exists";
+        Map<String, Boolean> row = new HashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            row.put("film", rs.getBoolean("film_exists"));
+            row.put("user", rs.getBoolean("user_exists"));
+            row.put("like", rs.getBoolean("like_exists"));
+        }, id, userId, id, userId);
+        if (!row.get("film")) {
+            log.error("Передан некорректный id фильма: {}", id);
+            throw new FilmNotFoundException("Фильм с id " + id + " не существует.");
+        }
+        if (!row.get("user")) {
+            log.error("Передан некорректный id пользователя: {}", userId);
+            throw new UserNotFoundException("Пользователь с id " + userId + " не существует.");
+        }
+        return row.get("like");
+    }
+
+    private static long key(long filmId, long userId) {
+        return (filmId << 32) | userId;
+    }
+
+    private static long filmId(long key) {
+        return key >>> 32;
+    }
+
+    private static long userId(long key) {
+        return key & 0xFFFFFFFFL;
+    }
+}
@@ -3,13 +3,14 @@ package ru.yandex.practicum.filmorate.dao.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
 import ru.yandex.practicum.filmorate.dao.MpaDao;
 import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
 import ru.yandex.practicum.filmorate.model.Mpa;
 
+import javax.annotation.PostConstruct;
 import java.util.Collection;
+import java.util.List;
 
 /**
  * DAO класс для работы с БД рейтингов фильма
@@ -20,6 +21,7 @@ public class MpaDaoImpl implements MpaDao {
 
     private final JdbcTemplate jdbcTemplate;
     private final MpaMapper mpaMapper;
+    private volatile IdDictionary<Mpa> dictionary = IdDictionary.of(List.of(), Mpa::getId);
 
     @Autowired
     public MpaDaoImpl(JdbcTemplate jdbcTemplate, MpaMapper mpaMapper) {
@@ -29,13 +31,27 @@ public class MpaDaoImpl implements MpaDao {
     }
 
     /**
-     * Метод получения всех рейтингов, хранящихся в БД
-     * @return - коллекция рейтингов
+     * Метод загрузки справочника рейтингов из БД.
+     * Вызывается при старте приложения и по запросу администратора, новый справочник подменяет старый целиком
+     * @return - коллекция рейтингов, хранящихся в БД
+     */
+    @Override
+    @PostConstruct
+    public Collection<Mpa> refresh() {
+        String sql = "select * from mpa order by id";
+        IdDictionary<Mpa> loaded = IdDictionary.of(jdbcTemplate.query(sql, mpaMapper), Mpa::getId);
+        dictionary = loaded;
+        log.info("Загружен справочник рейтингов: {} записей", loaded.values().size());
+        return loaded.values();
+    }
+
+    /**
+     * Метод получения всех рейтингов
+     * @return - коллекция рейтингов, хранящихся в справочнике
      */
     @Override
     public Collection<Mpa> findAllMpa() {
-        String sql = "select * from mpa";
-        return jdbcTemplate.query(sql, mpaMapper);
+        return dictionary.values();
     }
 
     /**
@@ -45,17 +61,12 @@ public class MpaDaoImpl implements MpaDao {
      */
     @Override
     public Mpa findMpaById(int id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select * from mpa where id = ?", id);
-
-        if (userRows.next()) {
-            Mpa mpa = new Mpa(
-                    userRows.getInt("id"),
-            userRows.getString("name"));
-            log.info("Найден рейтинг: {}", mpa.getName());
-            return mpa;
-        } else {
+        Mpa mpa = dictionary.get(id);
+
+        if (mpa == null) {
             log.error("Передан некорректный id рейтинга: {}", id);
             throw new MpaNotFoundException(String.format("Рейтинг с id " + id + " не найден"));
         }
+        return mpa;
     }
 }
@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.dao.ReactiveFilmDao;
+import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.IdSet;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Реактивный DAO класс для чтения фильмов из БД через R2DBC.
+ * Фильмы читаются одним запросом и передаются дальше по мере чтения; жанры и лайки загружаются одним
+ * запросом на каждую порцию из fetchSize фильмов, порядок фильмов сохраняется.
+ * Используется в профиле reactive, запись фильмов и лайков по-прежнему выполняет FilmDbStorage.
+ * Порядок популярных фильмов берется из того же рейтинга FilmLeaderboard, что и в стеке сервлетов,
+ * отсюда читаются только сами фильмы по списку id
+ */
+@Repository
+@Profile("reactive")
+@Slf4j
+public class ReactiveFilmDaoImpl implements ReactiveFilmDao {
+    private static final String SQL_SELECT_FILMS = "select f.*, mpa.name as mpa_name from films f "
+            + "join mpa on f.mpa_id = mpa.id ";
+    private static final String SQL_LINKS = "select film_id, 0 as link_type, genre_id as link_id from genre_film "
+            + "where film_id in (:ids) union all "
+            + "select film_id, 1 as link_type, user_id as link_id from likes where film_id in (:ids)";
+
+    private final DatabaseClient databaseClient;
+    private final GenreDaoImpl genreDao;
+    private final int fetchSize;
+
+    public ReactiveFilmDaoImpl(DatabaseClient databaseClient, GenreDaoImpl genreDao,
+                               @Value("${filmorate.export.fetch-size:500}") int fetchSize) {
+        this.databaseClient = databaseClient;
+        this.genreDao = genreDao;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Метод получения всех фильмов, упорядоченных по id
+     * @return - поток фильмов
+     */
+    @Override
+    public Flux<Film> findAllFilms() {
+        return withLinks(databaseClient.sql(SQL_SELECT_FILMS + "order by f.id")
+                .map(this::makeFilm)
+                .all());
+    }
+
+    /**
+     * Метод получения страницы фильмов, упорядоченных по id
+     * @param afterId - id, после которого начинается страница
+     * @param limit - размер страницы
+     * @return - поток фильмов страницы
+     */
+    @Override
+    public Flux<Film> findFilmsAfter(long afterId, int limit) {
+        return withLinks(databaseClient.sql(SQL_SELECT_FILMS + "where f.id > :afterId order by f.id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(this::makeFilm)
+                .all());
+    }
+
+    /**
+     * Метод получения фильма по id
+     * @param id - id фильма
+     * @return - фильм или ошибка FilmNotFoundException, если фильма нет
+     */
+    @Override
+    public Mono<Film> findFilmById(long id) {
+        return withLinks(databaseClient.sql(SQL_SELECT_FILMS + "where f.id = :id")
+                .bind("id", id)
+                .map(this::makeFilm)
+                .all())
+                .next()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Передан некорректный id фильма: {}", id);
+                    return new FilmNotFoundException(String.format("Фильм с id %d не найден", id));
+                }));
+    }
+
+    /**
+     * Метод получения фильмов по списку id одним запросом
+     * @param ids - список id фильмов
+     * @return - поток найденных фильмов в порядке переданных id, отсутствующие в БД id пропускаются
+     */
+    @Override
+    public Flux<Film> findFilmsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        return withLinks(databaseClient.sql(SQL_SELECT_FILMS + "where f.id in (:ids)")
+                .bind("ids", ids)
+                .map(this::makeFilm)
+                .all())
+                .collectMap(Film::getId)
+                .flatMapIterable(films -> ids.stream()
+                        .map(films::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Метод заполнения жанров и лайков фильмов порциями по fetchSize фильмов
+     * @param films - поток фильмов без жанров и лайков
+     * @return - поток тех же фильмов в том же порядке с жанрами и лайками
+     */
+    private Flux<Film> withLinks(Flux<Film> films) {
+        return films.buffer(fetchSize)
+                .concatMap(chunk -> fillLinks(chunk).thenMany(Flux.fromIterable(chunk)));
+    }
+
+    /**
+     * Метод заполнения полей genres и likes у порции фильмов одним запросом по их id.
+     * Запрос возвращает поля film_id, link_type (0 - жанр, 1 - лайк) и link_id
+     * @param films - порция фильмов
+     */
+    private Mono<Void> fillLinks(List<Film> films) {
+        Map<Long, Film> filmsById = new HashMap<>();
+        for (Film film : films) {
+            filmsById.put(film.getId(), film);
+        }
+        return databaseClient.sql(SQL_LINKS)
+                .bind("ids", films.stream().map(Film::getId).collect(Collectors.toList()))
+                .map(row -> new long[]{getLong(row, "film_id"), getLong(row, "link_type"), getLong(row, "link_id")})
+                .all()
+                .doOnNext(link -> {
+                    Film film = filmsById.get(link[0]);
+                    if (link[1] == 0) {
+                        film.getGenres().add(genreDao.findGenreById((int) link[2]));
+                    } else {
+                        film.getLikes().add(link[2]);
+                    }
+                })
+                .then(Mono.fromRunnable(() -> films.forEach(film -> ((IdSet) film.getLikes()).trimToSize())));
+    }
+
+    private Film makeFilm(Row row) {
+        Film film = new Film(row.get("name", String.class),
+                row.get("description", String.class),
+                row.get("release_date", LocalDate.class),
+                (int) getLong(row, "duration"));
+        film.setId(getLong(row, "id"));
+        film.setMpa(new Mpa((int) getLong(row, "mpa_id"), row.get("mpa_name", String.class)));
+        return film;
+    }
+
+    private static long getLong(Row row, String name) {
+        return ((Number) row.get(name)).longValue();
+    }
+}
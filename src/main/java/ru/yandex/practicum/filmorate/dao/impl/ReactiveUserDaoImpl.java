@@ -0,0 +1,132 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.dao.ReactiveUserDao;
+import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Реактивный DAO класс для чтения пользователей и их друзей из БД через R2DBC.
+ * Пользователи передаются дальше по мере чтения, весь список в памяти не накапливается.
+ * Используется в профиле reactive, запись пользователей и друзей по-прежнему выполняют
+ * UserDbStorage и FriendDaoImpl
+ */
+@Repository
+@Profile("reactive")
+@Slf4j
+public class ReactiveUserDaoImpl implements ReactiveUserDao {
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserDaoImpl(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Метод получения всех пользователей, упорядоченных по id
+     * @return - поток пользователей
+     */
+    @Override
+    public Flux<User> findAllUsers() {
+        return databaseClient.sql("select * from users order by id")
+                .map(this::makeUser)
+                .all();
+    }
+
+    /**
+     * Метод получения страницы пользователей, упорядоченных по id
+     * @param afterId - id, после которого начинается страница
+     * @param limit - размер страницы
+     * @return - поток пользователей страницы
+     */
+    @Override
+    public Flux<User> findUsersAfter(long afterId, int limit) {
+        return databaseClient.sql("select * from users where id > :afterId order by id limit :limit")
+                .bind("afterId", afterId)
+                .bind("limit", limit)
+                .map(this::makeUser)
+                .all();
+    }
+
+    /**
+     * Метод получения пользователя по id
+     * @param id - id пользователя
+     * @return - пользователь или ошибка UserNotFoundException, если пользователя нет
+     */
+    @Override
+    public Mono<User> findUserById(long id) {
+        return databaseClient.sql("select * from users where id = :id")
+                .bind("id", id)
+                .map(this::makeUser)
+                .first()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Передан некорректный id пользователя: {}", id);
+                    return new UserNotFoundException(String.format("Пользователь с id %d не найден", id));
+                }));
+    }
+
+    /**
+     * Метод получения друзей пользователя
+     * @param id - id пользователя
+     * @return - поток друзей, упорядоченный по id, или ошибка UserNotFoundException, если пользователя нет
+     */
+    @Override
+    public Flux<User> findAllFriends(long id) {
+        return requireUser(id).thenMany(databaseClient.sql("select u.* from friends f "
+                        + "join users u on u.id = f.friend_id where f.user_id = :id order by u.id")
+                .bind("id", id)
+                .map(this::makeUser)
+                .all());
+    }
+
+    /**
+     * Метод получения общих друзей двух пользователей
+     * @param id - id первого пользователя
+     * @param otherId - id второго пользователя
+     * @return - поток общих друзей, упорядоченный по id, или ошибка UserNotFoundException,
+     * если одного из пользователей нет
+     */
+    @Override
+    public Flux<User> findMutualFriends(long id, long otherId) {
+        return requireUser(id).then(requireUser(otherId)).thenMany(databaseClient.sql("select u.* from friends f "
+                        + "join friends o on o.friend_id = f.friend_id and o.user_id = :otherId "
+                        + "join users u on u.id = f.friend_id where f.user_id = :id order by u.id")
+                .bind("id", id)
+                .bind("otherId", otherId)
+                .map(this::makeUser)
+                .all());
+    }
+
+    /**
+     * Метод проверки существования пользователя
+     * @param id - id пользователя
+     * @return - пустой результат или ошибка UserNotFoundException, если пользователя нет
+     */
+    private Mono<Void> requireUser(long id) {
+        return databaseClient.sql("select id from users where id = :id")
+                .bind("id", id)
+                .map(row -> id)
+                .first()
+                .switchIfEmpty(Mono.error(() -> {
+                    log.error("Передан некорректный id пользователя: {}", id);
+                    return new UserNotFoundException("Пользователя с id " + id + " не существует.");
+                }))
+                .then();
+    }
+
+    private User makeUser(Row row) {
+        User user = new User(row.get("email", String.class),
+                row.get("login", String.class),
+                row.get("birthday", LocalDate.class));
+        user.setId(((Number) row.get("id")).longValue());
+        user.setName(row.get("name", String.class));
+        return user;
+    }
+}
@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Версионные миграции схемы БД.
+ * Скрипты db/migration/V{версия}__{описание}.sql выполняются по возрастанию версии, каждый - один раз:
+ * примененные версии и контрольные суммы скриптов записываются в таблицу schema_version.
+ * Скрипт и запись о нем фиксируются в одной транзакции. Если уже примененный скрипт изменен,
+ * приложение не запускается - изменения схемы оформляются новой версией.
+ * Миграции выполняются до создания JdbcTemplate и остальных компонентов, работающих с БД,
+ * см. SchemaMigratorDetector. В режиме хранения в памяти перед миграциями БД восстанавливается из снимка
+ */
+@Component
+@Slf4j
+public class SchemaMigrator {
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final DataSource dataSource;
+    private final String location;
+    private final Optional<DatabaseSnapshot> snapshot;
+
+    public SchemaMigrator(DataSource dataSource,
+                          @Value("${filmorate.migrations.location:classpath*:db/migration/}") String location,
+                          Optional<DatabaseSnapshot> snapshot) {
+        this.dataSource = dataSource;
+        this.location = location;
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Метод применения новых миграций, вызывается при старте приложения
+     */
+    @PostConstruct
+    public void migrate() {
+        snapshot.ifPresent(DatabaseSnapshot::restore);
+        NavigableMap<Integer, Resource> scripts = findScripts();
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create table if not exists schema_version (version int primary key, "
+                        + "description varchar(200) not null, checksum bigint not null, "
+                        + "installed_on timestamp default current_timestamp not null)");
+            }
+            Map<Integer, Long> applied = findApplied(connection);
+            int count = 0;
+            for (Map.Entry<Integer, Resource> script : scripts.entrySet()) {
+                int version = script.getKey();
+                long checksum = checksum(script.getValue());
+                Long appliedChecksum = applied.get(version);
+                if (appliedChecksum == null) {
+                    apply(connection, version, script.getValue(), checksum);
+                    count++;
+                } else if (appliedChecksum != checksum) {
+                    throw new IllegalStateException(String.format("Миграция %s изменена после применения.",
+                            script.getValue().getFilename()));
+                }
+            }
+            log.info("Применено миграций схемы: {}, текущая версия: {}", count,
+                    scripts.isEmpty() ? 0 : scripts.lastKey());
+        } catch (SQLException e) {
+            throw new IllegalStateException("Ошибка миграции схемы БД.", e);
+        }
+    }
+
+    /**
+     * Метод поиска скриптов миграций
+     * @return - Map, ключ - версия, значение - скрипт, по возрастанию версии
+     */
+    private NavigableMap<Integer, Resource> findScripts() {
+        NavigableMap<Integer, Resource> scripts = new TreeMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(location + "V*__*.sql")) {
+                Matcher matcher = SCRIPT_NAME.matcher(resource.getFilename());
+                if (!matcher.matches()) {
+                    throw new IllegalStateException("Некорректное имя миграции: " + resource.getFilename());
+                }
+                Resource duplicate = scripts.put(Integer.parseInt(matcher.group(1)), resource);
+                if (duplicate != null) {
+                    throw new IllegalStateException(String.format("Повторная версия миграции: %s и %s",
+                            duplicate.getFilename(), resource.getFilename()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return scripts;
+    }
+
+    private Map<Integer, Long> findApplied(Connection connection) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select version, checksum from schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Метод выполнения одного скрипта миграции вместе с записью его версии в одной транзакции
+     */
+    private void apply(Connection connection, int version, Resource script, long checksum) throws SQLException {
+        String description = script.getFilename().substring(script.getFilename().indexOf("__") + 2)
+                .replaceFirst("\\.sql$", "")
+                .replace('_', ' ');
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            ScriptUtils.executeSqlScript(connection, new EncodedResource(script, StandardCharsets.UTF_8));
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "insert into schema_version(version, description, checksum) values (?, ?, ?)")) {
+                ps.setInt(1, version);
+                ps.setString(2, description);
+                ps.setLong(3, checksum);
+                ps.executeUpdate();
+            }
+            connection.commit();
+            log.info("Применена миграция схемы {}", script.getFilename());
+        } catch (RuntimeException | SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static long checksum(Resource script) {
+        CRC32 crc = new CRC32();
+        try (InputStream in = script.getInputStream()) {
+            crc.update(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import org.springframework.boot.sql.init.dependency.AbstractBeansOfTypeDatabaseInitializerDetector;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Регистрирует SchemaMigrator как инициализатор БД: Spring Boot создает JdbcTemplate,
+ * NamedParameterJdbcTemplate и JPA только после выполнения миграций.
+ * Подключается через META-INF/spring.factories
+ */
+public class SchemaMigratorDetector extends AbstractBeansOfTypeDatabaseInitializerDetector {
+
+    @Override
+    protected Set<Class<?>> getDatabaseInitializerBeanTypes() {
+        return Collections.singleton(SchemaMigrator.class);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.yandex.practicum.filmorate.dao.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Операции над отсортированными массивами int, которые индексы в памяти используют как неизменяемые
+ * множества id: каждое изменение возвращает новый массив, исходный не меняется
+ */
+final class SortedInts {
+    static final int[] EMPTY = new int[0];
+
+    private SortedInts() {
+    }
+
+    /**
+     * Метод добавления значения
+     * @param values - отсортированный массив
+     * @param value - добавляемое значение
+     * @return - новый массив со значением или исходный, если значение уже было
+     */
+    static int[] insert(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int insertion = -index - 1;
+        int[] updated = new int[values.length + 1];
+        System.arraycopy(values, 0, updated, 0, insertion);
+        updated[insertion] = value;
+        System.arraycopy(values, insertion, updated, insertion + 1, values.length - insertion);
+        return updated;
+    }
+
+    /**
+     * Метод удаления значения
+     * @param values - отсортированный массив
+     * @param value - удаляемое значение
+     * @return - новый массив без значения или исходный, если значения не было
+     */
+    static int[] remove(int[] values, int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        int[] updated = new int[values.length - 1];
+        System.arraycopy(values, 0, updated, 0, index);
+        System.arraycopy(values, index + 1, updated, index, updated.length - index);
+        return updated;
+    }
+
+    static boolean contains(int[] values, int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    /**
+     * Построитель отсортированных массивов по ключу из пар ключ-значение, приходящих в любом порядке
+     */
+    static final class Builder<K> {
+        private final Map<K, int[]> arrays = new HashMap<>();
+        private final Map<K, Integer> sizes = new HashMap<>();
+        private long total;
+
+        void add(K key, int value) {
+            int[] values = arrays.getOrDefault(key, EMPTY);
+            int size = sizes.getOrDefault(key, 0);
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.max(4, size * 2));
+                arrays.put(key, values);
+            }
+            values[size] = value;
+            sizes.put(key, size + 1);
+            total++;
+        }
+
+        long total() {
+            return total;
+        }
+
+        /**
+         * Метод получения массивов, обрезанных по размеру и отсортированных
+         * @return - Map, ключ - переданный ключ, значение - отсортированный массив значений
+         */
+        Map<K, int[]> build() {
+            Map<K, int[]> result = new HashMap<>();
+            sizes.forEach((key, size) -> {
+                int[] values = Arrays.copyOf(arrays.get(key), size);
+                Arrays.sort(values);
+                result.put(key, values);
+            });
+            return result;
+        }
+    }
+}
@@ -3,19 +3,41 @@ package ru.yandex.practicum.filmorate.dao.impl;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
 import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmLeaderboard;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * DAO класс для работы с БД пользователей
@@ -24,10 +46,37 @@ import java.util.Collection;
 @Qualifier("userDbStorage")
 @Slf4j
 public class UserDbStorage implements UserStorage {
+    private static final String SQL_INSERT_USER = "insert into users(name, email, login, birthday) values (?, ?, ?, ?)";
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final int streamFetchSize;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchChunkSize;
+    private final SimpleJdbcInsert userInsert;
+    private final FriendGraph friendGraph;
+    private final LikeMatrix likeMatrix;
+    private final FilmLeaderboard leaderboard;
+    private final FilmStorage filmStorage;
 
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedJdbcTemplate,
+                         @Value("${filmorate.export.fetch-size:500}") int streamFetchSize,
+                         TransactionTemplate transactionTemplate,
+                         @Value("${filmorate.batch.chunk-size:1000}") int batchChunkSize,
+                         FriendGraph friendGraph, LikeMatrix likeMatrix, FilmLeaderboard leaderboard,
+                         FilmStorage filmStorage) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.streamFetchSize = streamFetchSize;
+        this.transactionTemplate = transactionTemplate;
+        this.batchChunkSize = batchChunkSize;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingGeneratedKeyColumns("id");
+        this.friendGraph = friendGraph;
+        this.likeMatrix = likeMatrix;
+        this.leaderboard = leaderboard;
+        this.filmStorage = filmStorage;
     }
 
     /**
@@ -40,30 +89,185 @@ public class UserDbStorage implements UserStorage {
 
         checkValidationUser(user);
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("id");
-        long idUser = simpleJdbcInsert.executeAndReturnKey(user.toMap()).longValue();
+        long idUser = userInsert.executeAndReturnKey(user.toMap()).longValue();
         user.setId(idUser);
+        friendGraph.addUser(idUser);
         log.info("Добавлен пользователь с id {}", idUser);
         return user;
     }
 
     /**
-     * Метод удаления пользователя из БД
+     * Метод пакетного добавления пользователей.
+     * Сначала проверяются все пользователи и повторы email и логина внутри пакета, затем по каждой порции
+     * из batchChunkSize пользователей одним запросом находятся конфликты с уже существующими
+     * пользователями, а остальные записываются пакетом JDBC в отдельной транзакции.
+     * Если пакет не записался, порция записывается по одному, и ошибки БД попадают в результат по позициям
+     * @param users - список добавляемых пользователей
+     * @return - id добавленных пользователей по позициям входного списка и ошибки по отдельным пользователям
+     */
+    @Override
+    public BatchResult addUsers(List<User> users) {
+        BatchResult result = new BatchResult(new ArrayList<>(Collections.nCopies(users.size(), null)));
+        Set<String> emails = new HashSet<>();
+        Set<String> logins = new HashSet<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            try {
+                checkValidationUser(user);
+            } catch (ValidationException e) {
+                result.addError(i, e.getMessage());
+                continue;
+            }
+            if (!emails.add(user.getEmail())) {
+                result.addError(i, "Пользователь с email " + user.getEmail() + " уже есть в пакете.");
+            } else if (!logins.add(user.getLogin())) {
+                result.addError(i, "Пользователь с логином " + user.getLogin() + " уже есть в пакете.");
+            } else {
+                validIndexes.add(i);
+            }
+        }
+
+        for (int from = 0; from < validIndexes.size(); from += batchChunkSize) {
+            int to = Math.min(from + batchChunkSize, validIndexes.size());
+            addUsersChunk(users, validIndexes.subList(from, to), result);
+        }
+        result.getErrors().sort(Comparator.comparingInt(BatchResult.BatchItemError::getIndex));
+        log.info("Пакетно добавлено пользователей: {}, с ошибками: {}", users.size() - result.getErrors().size(),
+                result.getErrors().size());
+        return result;
+    }
+
+    /**
+     * Метод записи одной порции пакета пользователей
+     * @param users - входной список пользователей
+     * @param chunkIndexes - позиции пользователей порции во входном списке
+     * @param result - результат пакетного добавления, в который записываются id и ошибки
+     */
+    private void addUsersChunk(List<User> users, List<Integer> chunkIndexes, BatchResult result) {
+        Set<String> takenEmails = new HashSet<>();
+        Set<String> takenLogins = new HashSet<>();
+        List<User> candidates = chunkIndexes.stream()
+                .map(users::get)
+                .collect(Collectors.toList());
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("emails", candidates.stream().map(User::getEmail).collect(Collectors.toList()))
+                .addValue("logins", candidates.stream().map(User::getLogin).collect(Collectors.toList()));
+        String sql = "select email, login from users where email in (:emails) "
+                + "union select email, login from users where login in (:logins)";
+        try {
+            namedJdbcTemplate.query(sql, params, rs -> {
+                takenEmails.add(rs.getString("email"));
+                takenLogins.add(rs.getString("login"));
+            });
+        } catch (DataAccessException e) {
+            log.error("Ошибка проверки пакета пользователей: {}", e.getMessage());
+            for (Integer index : chunkIndexes) {
+                result.addError(index, "Ошибка записи пользователя в БД.");
+            }
+            return;
+        }
+
+        List<Integer> insertIndexes = new ArrayList<>();
+        for (Integer index : chunkIndexes) {
+            User user = users.get(index);
+            if (takenEmails.contains(user.getEmail())) {
+                result.addError(index, "Пользователь с email " + user.getEmail() + " уже существует.");
+            } else if (takenLogins.contains(user.getLogin())) {
+                result.addError(index, "Пользователь с логином " + user.getLogin() + " уже существует.");
+            } else {
+                insertIndexes.add(index);
+            }
+        }
+        if (insertIndexes.isEmpty()) {
+            return;
+        }
+
+        List<User> chunk = insertIndexes.stream()
+                .map(users::get)
+                .collect(Collectors.toList());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertUsers(chunk));
+            for (Integer index : insertIndexes) {
+                result.getIds().set(index, users.get(index).getId());
+                friendGraph.addUser(users.get(index).getId());
+            }
+        } catch (DataAccessException e) {
+            log.warn("Ошибка пакетной записи пользователей, порция записывается по одному: {}", e.getMessage());
+            for (Integer index : insertIndexes) {
+                try {
+                    long idUser = userInsert.executeAndReturnKey(users.get(index).toMap()).longValue();
+                    result.getIds().set(index, idUser);
+                    friendGraph.addUser(idUser);
+                } catch (DuplicateKeyException ex) {
+                    result.addError(index, "Пользователь с таким email или логином уже существует.");
+                } catch (DataAccessException ex) {
+                    log.error("Ошибка записи пользователя {}: {}", users.get(index).getLogin(), ex.getMessage());
+                    result.addError(index, "Ошибка записи пользователя в БД.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Метод вставки пользователей одним пакетом JDBC с получением сгенерированных id
+     * @param users - список пользователей, которым присваиваются полученные id
+     */
+    private void insertUsers(List<User> users) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            try (PreparedStatement ps = con.prepareStatement(SQL_INSERT_USER, new String[]{"id"})) {
+                for (User user : users) {
+                    ps.setString(1, user.getName());
+                    ps.setString(2, user.getEmail());
+                    ps.setString(3, user.getLogin());
+                    ps.setObject(4, user.getBirthday());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    for (User user : users) {
+                        if (!keys.next()) {
+                            throw new IncorrectResultSizeDataAccessException(users.size());
+                        }
+                        user.setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Метод удаления пользователя из БД.
+     * Лайки пользователя удаляются каскадно, поэтому счетчики лайков его фильмов уменьшаются в той же транзакции.
+     * Граф друзей, матрица лайков, рейтинг популярности и кэш фильмов, которым пользователь ставил лайки,
+     * обновляются после фиксации транзакции, так же как при удалении лайка в DbFilmService
      * @param id - id пользователя
      */
     @Override
+    @Transactional
     public void removeUser(long id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            String sql = "delete from users where id = ?";
-            jdbcTemplate.update(sql, id);
-            log.info("Удален пользователь с id {}", id);
-        } else {
+        List<Long> likedFilmIds = jdbcTemplate.queryForList("select film_id from likes where user_id = ?",
+                Long.class, id);
+        jdbcTemplate.update("update films set like_count = like_count - 1 "
+                + "where id in (select film_id from likes where user_id = ?)", id);
+        String sql = "delete from users where id = ?";
+        if (jdbcTemplate.update(sql, id) == 0) {
             log.error("Передан некорректный id пользователя: {}", id);
             throw new UserNotFoundException(String.format("Пользователь с id %d не существует.", id));
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                friendGraph.removeUser(id);
+                likeMatrix.removeUser(id);
+                for (Long filmId : likedFilmIds) {
+                    leaderboard.changeLikes(filmId, -1);
+                    filmStorage.invalidate(filmId);
+                }
+            }
+        });
+        log.info("Удален пользователь с id {}", id);
     }
 
     /**
@@ -75,22 +279,20 @@ public class UserDbStorage implements UserStorage {
     public User updateUser(User updateUser) {
 
         checkValidationUser(updateUser);
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", updateUser.getId());
-        if (userRows.next()) {
-            String sql = "update users set " +
-                    "name = ?, email = ?, login = ?, birthday = ? " +
-                    "where id = ?";
-            jdbcTemplate.update(sql,
-                    updateUser.getName(),
-                    updateUser.getEmail(),
-                    updateUser.getLogin(),
-                    updateUser.getBirthday(),
-                    updateUser.getId());
-            log.info("Обновлен пользователь: {}", updateUser);
-        } else {
+        String sql = "update users set " +
+                "name = ?, email = ?, login = ?, birthday = ? " +
+                "where id = ?";
+        int updated = jdbcTemplate.update(sql,
+                updateUser.getName(),
+                updateUser.getEmail(),
+                updateUser.getLogin(),
+                updateUser.getBirthday(),
+                updateUser.getId());
+        if (updated == 0) {
             log.error("Передан некорректный id пользователя: {}", updateUser.getId());
             throw new UserNotFoundException(String.format("Пользователь с id %d не найден", updateUser.getId()));
         }
+        log.info("Обновлен пользователь: {}", updateUser);
         return updateUser;
     }
 
@@ -105,6 +307,38 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs));
     }
 
+    /**
+     * Метод потоковой выгрузки всех пользователей из БД.
+     * Пользователи передаются в consumer по одному по мере чтения, весь список в памяти не накапливается
+     * @param consumer - получатель пользователей
+     */
+    @Override
+    public void streamAllUsers(Consumer<User> consumer) {
+
+        String sql = "select * from users order by id";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(streamFetchSize);
+            return ps;
+        }, rs -> {
+            consumer.accept(makeUser(rs));
+        });
+    }
+
+    /**
+     * Метод получения страницы пользователей, упорядоченных по id.
+     * Страница начинается сразу после переданного id, поэтому стоимость запроса не зависит от номера страницы
+     * @param afterId - id, после которого начинается страница
+     * @param limit - размер страницы
+     * @return - список пользователей
+     */
+    @Override
+    public List<User> getUsersAfter(long afterId, int limit) {
+
+        String sql = "select * from users where id > ? order by id limit ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), afterId, limit);
+    }
+
     /**
      * Метод получения конкретного пользователя по id
      * @param id - id пользователя
@@ -113,15 +347,13 @@ public class UserDbStorage implements UserStorage {
     @Override
     public User findUserById(long id) {
 
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            String sql = "select * from users where id = ?";
-            return jdbcTemplate.queryForObject(sql, new Object[]{id}, (rs, rowNum) ->
-                    makeUser(rs));
-        } else {
+        String sql = "select * from users where id = ?";
+        List<User> users = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), id);
+        if (users.isEmpty()) {
             log.error("Передан некорректный id пользователя: {}", id);
             throw new UserNotFoundException(String.format("Пользователь с id %d не найден", id));
         }
+        return users.get(0);
     }
 
     /**
@@ -1,6 +1,8 @@
 package ru.yandex.practicum.filmorate.exception;
 
 import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
@@ -44,4 +46,34 @@ public class ErrorHandler {
     public ErrorResponse handleGenreNotFoundException(final GenreNotFoundException e) {
         return new ErrorResponse(e.getMessage());
     }
+
+    /**
+     * Метод обработки исчерпания пула соединений с БД: запрос не дождался соединения
+     * за spring.datasource.hikari.connection-timeout, клиенту предлагается повторить запрос позже
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleCannotGetJdbcConnectionException(final CannotGetJdbcConnectionException e) {
+        return new ErrorResponse("Сервис перегружен, повторите запрос позже.");
+    }
+
+    /**
+     * Метод обработки исчерпания пула соединений при открытии транзакции: менеджер транзакций берет
+     * соединение сам и сообщает о его отсутствии своим исключением, а не CannotGetJdbcConnectionException
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleCannotCreateTransactionException(final CannotCreateTransactionException e) {
+        return new ErrorResponse("Сервис перегружен, повторите запрос позже.");
+    }
+
+    /**
+     * Метод обработки переполнения буфера отложенной записи лайков: изменение не принято,
+     * клиенту предлагается повторить запрос позже
+     */
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleServiceUnavailableException(final ServiceUnavailableException e) {
+        return new ErrorResponse(e.getMessage());
+    }
 }
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.exception;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String s) {
+        super(s);
+    }
+}
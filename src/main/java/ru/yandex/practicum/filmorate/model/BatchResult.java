@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс результата пакетного добавления объектов.
+ * Список ids соответствует входному списку по позициям, для не добавленных объектов в нем null
+ */
+@Data
+public class BatchResult {
+    private final List<Long> ids;
+    private final List<BatchItemError> errors = new ArrayList<>();
+
+    /**
+     * Класс ошибки добавления отдельного объекта пакета
+     */
+    @Data
+    public static class BatchItemError {
+        private final int index;
+        private final String error;
+    }
+
+    /**
+     * Метод регистрации ошибки объекта пакета
+     * @param index - позиция объекта во входном списке
+     * @param error - текст ошибки
+     */
+    public void addError(int index, String error) {
+        errors.add(new BatchItemError(index, error));
+    }
+}
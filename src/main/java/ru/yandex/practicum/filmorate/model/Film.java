@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import lombok.Data;
 import lombok.NonNull;
 
@@ -9,7 +10,11 @@ import java.util.*;
 @Data
 public class Film {
     private long id;
-    private Set<Long> likes = new HashSet<>();
+    /**
+     * Id пользователей, поставивших лайк, хранятся в компактном множестве на массиве long
+     */
+    @JsonDeserialize(as = IdSet.class)
+    private Set<Long> likes = new IdSet();
     /**
      * Добавлены поля жанров и рейтинга фильма
      */
@@ -34,4 +39,17 @@ public class Film {
         values.put("mpa_id", mpa.getId());
         return values;
     }
+
+    /**
+     * Метод получения копии фильма с собственными коллекциями лайков и жанров
+     * @return - копия фильма
+     */
+    public Film copy() {
+        Film copy = new Film(name, description, releaseDate, duration);
+        copy.setId(id);
+        copy.setMpa(mpa);
+        copy.getLikes().addAll(likes);
+        copy.getGenres().addAll(genres);
+        return copy;
+    }
 }
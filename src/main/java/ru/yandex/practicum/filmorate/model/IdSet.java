@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.model;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Компактное множество id на отсортированном массиве long.
+ * Хранит 8 байт на элемент вместо объекта Long и узла таблицы у HashSet, поиск - бинарный.
+ * Id, добавляемые по возрастанию (как их возвращает БД), записываются в конец массива без сдвига
+ */
+public class IdSet extends AbstractSet<Long> {
+    private static final long[] EMPTY = new long[0];
+
+    private long[] values = EMPTY;
+    private int size;
+
+    public IdSet() {
+    }
+
+    public IdSet(Collection<Long> ids) {
+        addAll(ids);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long && indexOf((Long) o) >= 0;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        long value = id;
+        if (size == 0 || values[size - 1] < value) {
+            ensureCapacity(size + 1);
+            values[size++] = value;
+            return true;
+        }
+        int index = indexOf(value);
+        if (index >= 0) {
+            return false;
+        }
+        int insertion = -index - 1;
+        ensureCapacity(size + 1);
+        System.arraycopy(values, insertion, values, insertion + 1, size - insertion);
+        values[insertion] = value;
+        size++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof Long)) {
+            return false;
+        }
+        int index = indexOf((Long) o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        values = EMPTY;
+        size = 0;
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return new Iterator<>() {
+            private int cursor;
+            private int last = -1;
+            private int expectedSize = size;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Long next() {
+                if (expectedSize != size) {
+                    throw new ConcurrentModificationException();
+                }
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor++;
+                return values[last];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(last);
+                cursor = last;
+                last = -1;
+                expectedSize = size;
+            }
+        };
+    }
+
+    /**
+     * Метод освобождения неиспользуемого запаса массива после загрузки
+     */
+    public void trimToSize() {
+        if (values.length > size) {
+            values = size == 0 ? EMPTY : Arrays.copyOf(values, size);
+        }
+    }
+
+    private int indexOf(long value) {
+        return Arrays.binarySearch(values, 0, size, value);
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(values, index + 1, values, index, size - index - 1);
+        size--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length + (values.length >> 1) + 1));
+        }
+    }
+}
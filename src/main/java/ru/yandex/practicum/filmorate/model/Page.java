@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Класс страницы списка объектов при постраничном получении по курсору.
+ * Курсор - id последнего объекта страницы, null если следующей страницы нет
+ * @param <T> - тип объектов страницы
+ */
+@Data
+public class Page<T> {
+    private final List<T> items;
+    private final Long nextCursor;
+
+    /**
+     * Метод формирования страницы по списку, запрошенному с запасом в один элемент.
+     * Наличие лишнего элемента означает, что следующая страница существует
+     * @param items - список из не более чем limit + 1 элементов
+     * @param limit - размер страницы
+     * @param idFunction - функция получения id элемента
+     * @return - страница
+     */
+    public static <T> Page<T> of(List<T> items, int limit, ToLongFunction<T> idFunction) {
+        if (items.size() <= limit) {
+            return new Page<>(items, null);
+        }
+        List<T> pageItems = items.subList(0, limit);
+        return new Page<>(pageItems, idFunction.applyAsLong(pageItems.get(limit - 1)));
+    }
+}
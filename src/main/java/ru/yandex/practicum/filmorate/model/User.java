@@ -31,4 +31,16 @@ public class User {
         values.put("birthday", birthday);
         return values;
     }
+
+    /**
+     * Метод получения копии пользователя с собственным множеством друзей
+     * @return - копия пользователя
+     */
+    public User copy() {
+        User copy = new User(email, login, birthday);
+        copy.setId(id);
+        copy.setName(name);
+        copy.getFriends().addAll(friends);
+        return copy;
+    }
 }
@@ -2,48 +2,46 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Service;
-import ru.yandex.practicum.filmorate.dao.impl.FilmDbStorage;
-import ru.yandex.practicum.filmorate.dao.impl.GenreDaoImpl;
+import ru.yandex.practicum.filmorate.dao.impl.FilmSearchIndex;
 import ru.yandex.practicum.filmorate.dao.impl.LikeDaoImpl;
-import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
-import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.dao.impl.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
-import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.Like;
-import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Сервисный класс для работы с БД фильмов
+ * Сервисный класс для работы с БД фильмов.
+ * Хранилище фильмов выбирается свойством filmorate.storage.implementation: db - FilmDbStorage с кэшем
+ * CachedFilmStorage, in-memory - InMemoryFilmStorage
  */
 @Service
 @Slf4j
 public class DbFilmService implements FilmService {
-    @Qualifier("filmDbStorage")
     private final FilmStorage filmStorage;
     private final LikeDaoImpl likeDao;
-    private final GenreDaoImpl genreDao;
-    private final JdbcTemplate jdbcTemplate;
+    private final LikeWriteBuffer likeBuffer;
+    private final PageLimits pageLimits;
+    private final FilmLeaderboard leaderboard;
+    private final FilmSearchIndex searchIndex;
 
     @Autowired
-    public DbFilmService(FilmDbStorage filmStorage, LikeDaoImpl likeDao,
-                         GenreDaoImpl genreDao, JdbcTemplate jdbcTemplate) {
+    public DbFilmService(FilmStorage filmStorage, LikeDaoImpl likeDao, LikeWriteBuffer likeBuffer,
+                         PageLimits pageLimits, FilmLeaderboard leaderboard, FilmSearchIndex searchIndex) {
 
         this.filmStorage = filmStorage;
         this.likeDao = likeDao;
-        this.genreDao = genreDao;
-        this.jdbcTemplate = jdbcTemplate;
+        this.likeBuffer = likeBuffer;
+        this.pageLimits = pageLimits;
+        this.leaderboard = leaderboard;
+        this.searchIndex = searchIndex;
     }
 
     /**
@@ -55,6 +53,28 @@ public class DbFilmService implements FilmService {
         return filmStorage.getAllFilms();
     }
 
+    /**
+     * Метод для постраничного получения фильмов по курсору
+     * @param after - id последнего фильма предыдущей страницы, null для первой страницы
+     * @param limit - размер страницы, null для размера по умолчанию
+     * @return - страница фильмов
+     */
+    @Override
+    public Page<Film> getFilmsPage(Long after, Integer limit) {
+        int pageLimit = pageLimits.resolve(limit);
+        List<Film> films = filmStorage.getFilmsAfter(after == null ? 0 : after, pageLimit + 1);
+        return Page.of(films, pageLimit, Film::getId);
+    }
+
+    /**
+     * Метод для потоковой выгрузки всех фильмов
+     * @param consumer - получатель фильмов
+     */
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        filmStorage.streamAllFilms(consumer);
+    }
+
     /**
      * Метод для получения конкретного фильма по id
      * @param id - id фильма
@@ -74,7 +94,26 @@ public class DbFilmService implements FilmService {
     @Override
     public Film addFilm(Film film) {
 
-        return filmStorage.addFilm(film);
+        Film addedFilm = filmStorage.addFilm(film);
+        leaderboard.addFilm(addedFilm);
+        return addedFilm;
+    }
+
+    /**
+     * Метод для пакетного добавления фильмов
+     * @param films - список добавляемых фильмов
+     * @return - id добавленных фильмов и ошибки по отдельным фильмам
+     */
+    @Override
+    public BatchResult addFilms(List<Film> films) {
+
+        BatchResult result = filmStorage.addFilms(films);
+        for (int i = 0; i < films.size(); i++) {
+            if (result.getIds().get(i) != null) {
+                leaderboard.addFilm(films.get(i));
+            }
+        }
+        return result;
     }
 
     /**
@@ -84,6 +123,7 @@ public class DbFilmService implements FilmService {
     @Override
     public void removeFilm(long id) {
         filmStorage.removeFilm(id);
+        leaderboard.removeFilm(id);
     }
 
     /**
@@ -94,11 +134,15 @@ public class DbFilmService implements FilmService {
     @Override
     public Film updateFilm(Film updateFilm) {
 
-        return filmStorage.updateFilm(updateFilm);
+        Film updatedFilm = filmStorage.updateFilm(updateFilm);
+        leaderboard.updateFilm(updatedFilm);
+        return updatedFilm;
     }
 
     /**
-     * Метод для добавления фильму лайка
+     * Метод для добавления фильму лайка.
+     * При включенной отложенной записи лайк попадает в буфер и записывается в БД позже,
+     * возвращаемый фильм уже содержит этот лайк
      * @param id - id фильма
      * @param userId - id пользователя, который ставит лайк
      * @return - фильм, которому выставлен лайк
@@ -106,25 +150,17 @@ public class DbFilmService implements FilmService {
     @Override
     public Film addLike(long id, long userId) {
 
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from films where id = ?", id);
-        if (userRows.next()) {
-            SqlRowSet userRows1 = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", userId);
-            if (userRows1.next()) {
-                Like like = likeDao.addLike(id, userId);
-                Film film = filmStorage.findFilmById(id);
-                if (like != null) {
-                    film.getLikes().add(userId);
-                    log.info("Добавлен лайк от пользователя с id {}", userId);
-                }
-                return film;
-            } else {
-                log.error("Передан некорректный id пользователя: {}", userId);
-                throw new UserNotFoundException("Пользователь с id " + userId + " не существует.");
-            }
-        } else {
-            log.error("Передан некорректный id фильма: {}", id);
-            throw new FilmNotFoundException("Фильм с id " + id + " не существует.");
+        boolean added = likeBuffer.isEnabled() ? likeBuffer.addLike(id, userId) : likeDao.addLike(id, userId);
+        if (!added) {
+            log.error("Лайк фильму с id {} от пользователя с id {} уже существует.", id, userId);
+            throw new ValidationException("Данный пользователь уже ставил лайк данному фильму.");
         }
+        leaderboard.changeLikes(id, 1);
+        filmStorage.invalidate(id);
+        Film film = filmStorage.findFilmById(id);
+        film.getLikes().add(userId);
+        log.info("Добавлен лайк от пользователя с id {}", userId);
+        return film;
     }
 
     /**
@@ -136,73 +172,86 @@ public class DbFilmService implements FilmService {
     @Override
     public Film removeLike(long id, long userId) {
 
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from films where id = ?", id);
-        if (userRows.next()) {
-            SqlRowSet userRows1 = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", userId);
-            if (userRows1.next()) {
-                likeDao.removeLike(id, userId);
-                Film film = filmStorage.findFilmById(id);
-                film.getLikes().remove(userId);
-                log.info("Удален лайк от пользователя с id {}", userId);
-                return film;
-            } else {
-                log.error("Передан некорректный id пользователя: {}", userId);
-                throw new UserNotFoundException("Пользователь с id " + userId + " не существует.");
-            }
-        } else {
-            log.error("Передан некорректный id фильма: {}", id);
-            throw new FilmNotFoundException("Фильм с id " + id + " не существует.");
+        boolean removed = likeBuffer.isEnabled() ? likeBuffer.removeLike(id, userId) : likeDao.removeLike(id, userId);
+        if (!removed) {
+            log.error("Пользователь с id {} не ставил лайк данному фильму", userId);
+            throw new ValidationException("Пользователь с id " + userId + " не ставил лайк данному фильму.");
         }
+        leaderboard.changeLikes(id, -1);
+        filmStorage.invalidate(id);
+        Film film = filmStorage.findFilmById(id);
+        film.getLikes().remove(userId);
+        log.info("Удален лайк от пользователя с id {}", userId);
+        return film;
     }
 
     /**
-     * Метод получения списка фильмов по популярности (количеству лайков)
+     * Метод получения списка фильмов по популярности (количеству лайков).
+     * Порядок фильмов берется из рейтинга в памяти, из БД загружаются только сами фильмы
      * @param count - лимит списка
      * @return - список фильмов по популярности
      */
     @Override
     public List<Film> findPopularFilms(Integer count) {
 
-        String sql = "select f.*, mpa.name as mpa_name from films f "
-        + "join mpa on f.mpa_id = mpa.id "
-        + "right join (select film_id, count(user_id) from likes group by film_id order by count(user_id) desc limit "
-                + count + ") as popular on f.id = popular.film_id";
+        return findPopularFilms(count, null, null);
+    }
+
+    /**
+     * Метод получения списка фильмов по популярности с фильтром по жанру и году выпуска.
+     * Фильтры применяются к рейтингам в памяти, поэтому стоимость не зависит от доли подходящих фильмов
+     * @param count - лимит списка
+     * @param genreId - id жанра, null - без фильтра
+     * @param year - год выпуска, null - без фильтра
+     * @return - список фильмов по популярности
+     */
+    @Override
+    public List<Film> findPopularFilms(Integer count, Integer genreId, Integer year) {
+
+        return filmStorage.findFilmsByIds(findPopularFilmIds(count, genreId, year));
+    }
 
-        List<Film> popularFilms = jdbcTemplate.query(sql, (rs, rowNum) ->
-                makeFilm(rs));
-        if (popularFilms.isEmpty()) {
-            return filmStorage.getAllFilms().stream().collect(Collectors.toList());
+    /**
+     * Метод получения id фильмов по популярности с фильтром по жанру и году выпуска.
+     * Используется обоими стеками, чтобы популярные фильмы и проверка параметров у них совпадали
+     * @param count - лимит списка
+     * @param genreId - id жанра, null - без фильтра
+     * @param year - год выпуска, null - без фильтра
+     * @return - список id фильмов по популярности
+     */
+    @Override
+    public List<Long> findPopularFilmIds(Integer count, Integer genreId, Integer year) {
+        if (count < 0) {
+            log.error("Передано отрицательное количество фильмов: {}", count);
+            throw new ValidationException("Количество фильмов не может быть отрицательным.");
         }
-        return popularFilms;
+        return leaderboard.top(count, genreId, year);
     }
 
     /**
-     * Метод формирования объекта Film по значениям таблицы films
-     * @param rs - переменная класса ResultSet
-     * @return - объект Film
-     * @throws SQLException
+     * Метод полнотекстового поиска фильмов по названию и описанию.
+     * Фильмы подбираются по индексу в памяти, из БД загружаются только найденные фильмы
+     * @param query - поисковый запрос, слова ищутся по префиксу
+     * @param limit - количество результатов, null для значения по умолчанию
+     * @return - список фильмов по убыванию релевантности
      */
-    private Film makeFilm(ResultSet rs) throws SQLException {
-        Film film = new Film(rs.getString("name"),
-                rs.getString("description"),
-                rs.getDate("release_date").toLocalDate(),
-                rs.getInt("duration"));
-        film.setId(rs.getLong("id"));
-        film.setMpa(new Mpa(rs.getInt("mpa_id"), rs.getString("mpa_name")));
-        film.setGenres(getGenres(film.getId()));
-        return film;
+    @Override
+    public List<Film> searchFilms(String query, Integer limit) {
+        if (query == null || query.isBlank()) {
+            log.error("Передан пустой поисковый запрос");
+            throw new ValidationException("Поисковый запрос не может быть пустым.");
+        }
+        List<Film> films = filmStorage.findFilmsByIds(searchIndex.search(query, pageLimits.resolve(limit)));
+        log.info("По запросу '{}' найдено " + films.size() + " фильмов.", query);
+        return films;
     }
 
     /**
-     * Метод получения списка жанров по id фильма
-     * @param id - id фильма
-     * @return - список жанров
+     * Метод получения статистики кэша фильмов
+     * @return - показатели кэша: размер, попадания, промахи, вытеснения
      */
-    private Set<Genre> getGenres(long id) {
-        String sqlGenre = "select genre_id from genre_film where film_id = ?";
-        return jdbcTemplate.query(sqlGenre, (rs, rowNum) ->
-                        rs.getInt("genre_id"), id).stream()
-                .map(i -> genreDao.findGenreById(i))
-                .collect(Collectors.toSet());
+    @Override
+    public Map<String, Object> getCacheStats() {
+        return filmStorage.getStats();
     }
 }
@@ -36,4 +36,13 @@ public class DbGenreService implements GenreService {
     public Genre findGenreById(int id) {
         return genreDao.findGenreById(id);
     }
+
+    /**
+     * Метод перезагрузки справочника жанров из БД
+     * @return - коллекция жанров после перезагрузки
+     */
+    @Override
+    public Collection<Genre> refresh() {
+        return genreDao.refresh();
+    }
 }
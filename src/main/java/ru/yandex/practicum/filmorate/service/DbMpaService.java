@@ -36,4 +36,13 @@ public class DbMpaService implements MpaService {
     public Mpa findMpaById(int id) {
         return mpaDao.findMpaById(id);
     }
+
+    /**
+     * Метод перезагрузки справочника рейтингов из БД
+     * @return - коллекция рейтингов после перезагрузки
+     */
+    @Override
+    public Collection<Mpa> refresh() {
+        return mpaDao.refresh();
+    }
 }
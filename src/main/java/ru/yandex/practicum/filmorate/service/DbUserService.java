@@ -2,37 +2,53 @@ package ru.yandex.practicum.filmorate.service;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.dao.impl.FriendDaoImpl;
-import ru.yandex.practicum.filmorate.dao.impl.UserDbStorage;
-import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.dao.impl.LikeMatrix;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
- * Сервисный класс для работы с БД пользователей
+ * Сервисный класс для работы с БД пользователей.
+ * Хранилище пользователей выбирается свойством filmorate.storage.implementation: db - UserDbStorage,
+ * in-memory - InMemoryUserStorage
  */
 @Service
 @Slf4j
 public class DbUserService implements UserService {
 
-    @Qualifier("userDbStorage")
     private final UserStorage userStorage;
-    private final JdbcTemplate jdbcTemplate;
     private final FriendDaoImpl friendDao;
+    private final PageLimits pageLimits;
+    private final LikeMatrix likeMatrix;
+    private final FilmStorage filmStorage;
+    private final int recommendationNeighbours;
+    private final int recommendationParallelThreshold;
 
     @Autowired
-    public DbUserService(UserDbStorage userStorage, JdbcTemplate jdbcTemplate, FriendDaoImpl friendDao) {
+    public DbUserService(UserStorage userStorage, FriendDaoImpl friendDao,
+                         PageLimits pageLimits, LikeMatrix likeMatrix, FilmStorage filmStorage,
+                         @Value("${filmorate.recommendations.neighbours:20}") int recommendationNeighbours,
+                         @Value("${filmorate.recommendations.parallel-threshold:512}")
+                         int recommendationParallelThreshold) {
 
         this.userStorage = userStorage;
-        this.jdbcTemplate = jdbcTemplate;
         this.friendDao = friendDao;
+        this.pageLimits = pageLimits;
+        this.likeMatrix = likeMatrix;
+        this.filmStorage = filmStorage;
+        this.recommendationNeighbours = recommendationNeighbours;
+        this.recommendationParallelThreshold = recommendationParallelThreshold;
     }
 
     /**
@@ -44,6 +60,28 @@ public class DbUserService implements UserService {
         return userStorage.getAllUsers();
     }
 
+    /**
+     * Метод постраничного получения пользователей по курсору
+     * @param after - id последнего пользователя предыдущей страницы, null для первой страницы
+     * @param limit - размер страницы, null для размера по умолчанию
+     * @return - страница пользователей
+     */
+    @Override
+    public Page<User> findUsersPage(Long after, Integer limit) {
+        int pageLimit = pageLimits.resolve(limit);
+        List<User> users = userStorage.getUsersAfter(after == null ? 0 : after, pageLimit + 1);
+        return Page.of(users, pageLimit, User::getId);
+    }
+
+    /**
+     * Метод потоковой выгрузки всех пользователей
+     * @param consumer - получатель пользователей
+     */
+    @Override
+    public void exportUsers(Consumer<User> consumer) {
+        userStorage.streamAllUsers(consumer);
+    }
+
     /**
      * Метод получения конкретного пользователя по id
      * @param id - id пользователя
@@ -64,6 +102,16 @@ public class DbUserService implements UserService {
         return userStorage.createUser(user);
     }
 
+    /**
+     * Метод пакетного добавления пользователей
+     * @param users - список добавляемых пользователей
+     * @return - id добавленных пользователей и ошибки по отдельным пользователям
+     */
+    @Override
+    public BatchResult createUsers(List<User> users) {
+        return userStorage.addUsers(users);
+    }
+
     /**
      * Метод обновления пользователя
      * @param user - обновляемый объект User
@@ -82,20 +130,15 @@ public class DbUserService implements UserService {
      */
     @Override
     public User addFriend(long id, long friendId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            SqlRowSet userRows1 = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", friendId);
-            if (userRows1.next()) {
-                log.info("Пользователь с id {} теперь в списке друзей пользователя с id {}", friendId, id);
-                return friendDao.addFriend(id, friendId);
-            } else {
-                log.error("Передан некорректный id пользователя: {}", friendId);
-                throw new UserNotFoundException("Пользователя с id " + friendId + " не существует.");
-            }
-        } else {
-            log.error("Передан некорректный id пользователя: {}", id);
-            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
+        if (!friendDao.addFriend(id, friendId)) {
+            log.error("Пользователь с id {} уже есть в списке друзей пользователя с id {}.", friendId, id);
+            throw new ValidationException("Пользователь с id " + friendId
+                    + " уже есть в списке друзей пользователя с id " + id + ".");
         }
+        log.info("Пользователь с id {} теперь в списке друзей пользователя с id {}", friendId, id);
+        User user = userStorage.findUserById(id);
+        user.getFriends().add(friendId);
+        return user;
     }
 
     /**
@@ -106,20 +149,15 @@ public class DbUserService implements UserService {
      */
     @Override
     public User removeFriend(long id, long friendId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            SqlRowSet userRows1 = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", friendId);
-            if (userRows1.next()) {
-                log.info("Пользователь с id {} удален из списка друзей пользователя с id {}", friendId, id);
-                return friendDao.removeFriend(id, friendId);
-            } else {
-                log.error("Передан некорректный id пользователя: {}", friendId);
-                throw new UserNotFoundException("Пользователя с id " + friendId + " не существует.");
-            }
-        } else {
-            log.error("Передан некорректный id пользователя: {}", id);
-            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
+        if (!friendDao.removeFriend(id, friendId)) {
+            log.error("Пользователя с id {} нет в списке друзей пользователя с id {}.", friendId, id);
+            throw new ValidationException("Пользователя с id " + friendId + " нет в списке друзей пользователя с id "
+                    + id + ".");
         }
+        log.info("Пользователь с id {} удален из списка друзей пользователя с id {}", friendId, id);
+        User user = userStorage.findUserById(id);
+        user.getFriends().remove(friendId);
+        return user;
     }
 
     /**
@@ -129,15 +167,9 @@ public class DbUserService implements UserService {
      */
     @Override
     public List<User> findAllFriends(long id) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            List<User> friendsUser = friendDao.findAllFriends(id);
-            log.info("У пользователя с id {} в списке " + friendsUser.size() + " друзей.", id);
-            return friendDao.findAllFriends(id);
-        } else {
-            log.error("Передан некорректный id пользователя: {}", id);
-            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
-        }
+        List<User> friendsUser = friendDao.findAllFriends(id);
+        log.info("У пользователя с id {} в списке " + friendsUser.size() + " друзей.", id);
+        return friendsUser;
     }
 
     /**
@@ -148,20 +180,38 @@ public class DbUserService implements UserService {
      */
     @Override
     public List<User> findMutualFriends(long id, long otherId) {
-        SqlRowSet userRows = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", id);
-        if (userRows.next()) {
-            SqlRowSet userRows1 = jdbcTemplate.queryForRowSet("select 1 from users where id = ?", otherId);
-            if (userRows1.next()) {
-                List<User> mutualFriends = friendDao.findMutualFriends(id, otherId);
-                log.info("У пользователей с id {} и {} " + mutualFriends.size() + " общих друзей.", id, otherId);
-                return mutualFriends;
-            } else {
-                log.error("Передан некорректный id пользователя: {}", otherId);
-                throw new UserNotFoundException("Пользователя с id " + otherId + " не существует.");
-            }
-        } else {
-            log.error("Передан некорректный id пользователя: {}", id);
-            throw new UserNotFoundException("Пользователя с id " + id + " не существует.");
-        }
+        List<User> mutualFriends = friendDao.findMutualFriends(id, otherId);
+        log.info("У пользователей с id {} и {} " + mutualFriends.size() + " общих друзей.", id, otherId);
+        return mutualFriends;
+    }
+
+    /**
+     * Метод получения рекомендуемых друзей пользователя
+     * @param id - id пользователя
+     * @param limit - количество рекомендаций, null для значения по умолчанию
+     * @return - список рекомендуемых пользователей по убыванию числа общих друзей
+     */
+    @Override
+    public List<User> findFriendSuggestions(long id, Integer limit) {
+        List<User> suggestions = friendDao.findFriendSuggestions(id, pageLimits.resolve(limit));
+        log.info("Пользователю с id {} рекомендовано " + suggestions.size() + " друзей.", id);
+        return suggestions;
+    }
+
+    /**
+     * Метод получения рекомендуемых пользователю фильмов по лайкам похожих пользователей.
+     * Оценки считаются по матрице лайков в памяти, из БД загружаются только рекомендованные фильмы
+     * @param id - id пользователя
+     * @param limit - количество рекомендаций, null для значения по умолчанию
+     * @return - список фильмов по убыванию оценки
+     */
+    @Override
+    public List<Film> findRecommendations(long id, Integer limit) {
+        userStorage.findUserById(id);
+        List<Long> filmIds = likeMatrix.recommend(id, pageLimits.resolve(limit), recommendationNeighbours,
+                recommendationParallelThreshold);
+        List<Film> recommendations = filmStorage.findFilmsByIds(filmIds);
+        log.info("Пользователю с id {} рекомендовано " + recommendations.size() + " фильмов.", id);
+        return recommendations;
     }
 }
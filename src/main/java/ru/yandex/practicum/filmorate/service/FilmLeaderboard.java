@@ -0,0 +1,244 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.UnaryOperator;
+
+/**
+ * Рейтинг популярности фильмов в памяти приложения.
+ * Фильмы упорядочены по убыванию количества лайков, при равенстве - по возрастанию id.
+ * Изменения одного фильма выполняются под блокировкой только его записи в ConcurrentHashMap,
+ * сам рейтинг хранится в неблокирующем ConcurrentSkipListSet, поэтому чтение топа не ждет записей.
+ * Кроме общего рейтинга ведутся отдельные рейтинги по каждому жанру и году выпуска, поэтому топ с фильтром
+ * читается с начала своего рейтинга так же, как и общий топ, без просмотра неподходящих фильмов
+ */
+@Component
+@Slf4j
+public class FilmLeaderboard {
+    private static final Comparator<Entry> ORDER = (e1, e2) -> {
+        int byLikes = Integer.compare(e2.likes, e1.likes);
+        return byLikes != 0 ? byLikes : Long.compare(e1.filmId, e2.filmId);
+    };
+
+    private static final int[] NO_GENRES = new int[0];
+
+    private final FilmStorage filmStorage;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Entry> ranking = new ConcurrentSkipListSet<>(ORDER);
+    private final Map<Integer, ConcurrentSkipListSet<Entry>> rankingByGenre = new ConcurrentHashMap<>();
+    private final Map<Integer, ConcurrentSkipListSet<Entry>> rankingByYear = new ConcurrentHashMap<>();
+
+    public FilmLeaderboard(FilmStorage filmStorage) {
+        this.filmStorage = filmStorage;
+    }
+
+    /**
+     * Метод заполнения рейтинга по фильмам с их жанрами и лайками, вызывается при старте приложения.
+     * Фильмы читаются потоком из основного хранилища FilmStorage, поэтому в памяти не держится весь каталог,
+     * а при filmorate.storage.implementation=in-memory рейтинг строится без повторного чтения БД
+     */
+    @PostConstruct
+    public void load() {
+        entries.clear();
+        ranking.clear();
+        rankingByGenre.clear();
+        rankingByYear.clear();
+        filmStorage.streamAllFilms(film -> replace(film.getId(), old -> new Entry(film.getId(),
+                film.getLikes().size(), yearOf(film), genreIdsOf(film))));
+        log.info("Загружен рейтинг популярности: {} фильмов", entries.size());
+    }
+
+    /**
+     * Метод добавления в рейтинг нового фильма без лайков
+     * @param film - фильм с заполненным id
+     */
+    public void addFilm(Film film) {
+        updateFilm(film);
+    }
+
+    /**
+     * Метод обновления жанров и года выпуска фильма в рейтинге с сохранением количества лайков
+     * @param film - фильм с заполненным id
+     */
+    public void updateFilm(Film film) {
+        replace(film.getId(), old -> new Entry(film.getId(), old == null ? 0 : old.likes, yearOf(film),
+                genreIdsOf(film)));
+    }
+
+    /**
+     * Метод удаления фильма из рейтинга
+     * @param filmId - id фильма
+     */
+    public void removeFilm(long filmId) {
+        replace(filmId, old -> null);
+    }
+
+    /**
+     * Метод изменения количества лайков фильма
+     * @param filmId - id фильма
+     * @param delta - изменение количества лайков
+     */
+    public void changeLikes(long filmId, int delta) {
+        replace(filmId, old -> old == null
+                ? new Entry(filmId, delta, null, NO_GENRES)
+                : new Entry(filmId, old.likes + delta, old.year, old.genreIds));
+    }
+
+    /**
+     * Метод получения id самых популярных фильмов.
+     * Во время изменения фильм может кратко присутствовать в рейтинге дважды, повторы пропускаются
+     * @param count - количество фильмов
+     * @return - список id фильмов в порядке популярности
+     */
+    public List<Long> top(int count) {
+        return top(count, null, null);
+    }
+
+    /**
+     * Метод получения id самых популярных фильмов с фильтром по жанру и году выпуска.
+     * При одном фильтре читается рейтинг жанра или года, при двух - меньший из них с проверкой второго
+     * фильтра у каждого фильма
+     * @param count - количество фильмов
+     * @param genreId - id жанра, null - без фильтра по жанру
+     * @param year - год выпуска, null - без фильтра по году
+     * @return - список id фильмов в порядке популярности
+     */
+    public List<Long> top(int count, Integer genreId, Integer year) {
+        Set<Entry> source = ranking;
+        if (genreId != null || year != null) {
+            Set<Entry> genreRanking = genreId == null ? null : rankingByGenre.get(genreId);
+            Set<Entry> yearRanking = year == null ? null : rankingByYear.get(year);
+            if (genreId != null && genreRanking == null || year != null && yearRanking == null) {
+                return new ArrayList<>();
+            }
+            if (genreRanking == null || yearRanking != null && yearRanking.size() < genreRanking.size()) {
+                source = yearRanking;
+            } else {
+                source = genreRanking;
+            }
+        }
+        List<Long> ids = new ArrayList<>(Math.min(count, entries.size()));
+        Set<Long> seen = new HashSet<>();
+        for (Entry entry : source) {
+            if (ids.size() >= count) {
+                break;
+            }
+            if (entry.matches(genreId, year) && seen.add(entry.filmId)) {
+                ids.add(entry.filmId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Метод замены записи фильма во всех рейтингах под блокировкой записи фильма
+     * @param filmId - id фильма
+     * @param update - функция получения новой записи по старой, null - удалить фильм
+     */
+    private void replace(long filmId, UnaryOperator<Entry> update) {
+        entries.compute(filmId, (id, old) -> {
+            Entry entry = update.apply(old);
+            if (entry == old) {
+                return old;
+            }
+            swap(ranking, old, entry);
+            List<ConcurrentSkipListSet<Entry>> oldRankings = facetRankings(old);
+            List<ConcurrentSkipListSet<Entry>> newRankings = facetRankings(entry);
+            for (ConcurrentSkipListSet<Entry> facetRanking : newRankings) {
+                swap(facetRanking, oldRankings.contains(facetRanking) ? old : null, entry);
+            }
+            for (ConcurrentSkipListSet<Entry> facetRanking : oldRankings) {
+                if (!newRankings.contains(facetRanking)) {
+                    facetRanking.remove(old);
+                }
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * Метод замены записи в одном рейтинге.
+     * Новая запись добавляется до удаления старой, чтобы фильм не пропадал из рейтинга для читающих потоков.
+     * Если записи равны по порядку рейтинга, добавить новую до удаления старой нельзя, и они меняются местами
+     * @param ranking - рейтинг
+     * @param old - старая запись или null
+     * @param entry - новая запись или null
+     */
+    private static void swap(ConcurrentSkipListSet<Entry> ranking, Entry old, Entry entry) {
+        if (old != null && entry != null && ORDER.compare(old, entry) == 0) {
+            ranking.remove(old);
+            ranking.add(entry);
+            return;
+        }
+        if (entry != null) {
+            ranking.add(entry);
+        }
+        if (old != null) {
+            ranking.remove(old);
+        }
+    }
+
+    /**
+     * Метод получения рейтингов жанров и года выпуска, в которые входит фильм
+     * @param entry - запись фильма или null
+     * @return - список рейтингов
+     */
+    private List<ConcurrentSkipListSet<Entry>> facetRankings(Entry entry) {
+        List<ConcurrentSkipListSet<Entry>> rankings = new ArrayList<>();
+        if (entry == null) {
+            return rankings;
+        }
+        for (int genreId : entry.genreIds) {
+            rankings.add(rankingByGenre.computeIfAbsent(genreId, id -> new ConcurrentSkipListSet<>(ORDER)));
+        }
+        if (entry.year != null) {
+            rankings.add(rankingByYear.computeIfAbsent(entry.year, id -> new ConcurrentSkipListSet<>(ORDER)));
+        }
+        return rankings;
+    }
+
+    private static Integer yearOf(Film film) {
+        return film.getReleaseDate() == null ? null : film.getReleaseDate().getYear();
+    }
+
+    private static int[] genreIdsOf(Film film) {
+        return film.getGenres().stream()
+                .mapToInt(Genre::getId)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private static final class Entry {
+        private final long filmId;
+        private final int likes;
+        private final Integer year;
+        private final int[] genreIds;
+
+        private Entry(long filmId, int likes, Integer year, int[] genreIds) {
+            this.filmId = filmId;
+            this.likes = likes;
+            this.year = year;
+            this.genreIds = genreIds;
+        }
+
+        private boolean matches(Integer genreId, Integer year) {
+            return (genreId == null || Arrays.binarySearch(genreIds, genreId) >= 0)
+                    && (year == null || year.equals(this.year));
+        }
+    }
+}
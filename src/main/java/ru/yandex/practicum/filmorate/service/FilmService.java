@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервисного слоя для работы с фильмами
@@ -12,10 +16,16 @@ public interface FilmService {
 
     Collection<Film> getAllFilms();
 
+    Page<Film> getFilmsPage(Long after, Integer limit);
+
+    void exportFilms(Consumer<Film> consumer);
+
     Film findFilmById(long id);
 
     Film addFilm(Film film);
 
+    BatchResult addFilms(List<Film> films);
+
     void removeFilm(long id);
 
     Film updateFilm(Film updateFilm);
@@ -25,4 +35,12 @@ public interface FilmService {
     Film removeLike(long id, long userId);
 
     List<Film> findPopularFilms(Integer count);
+
+    List<Film> findPopularFilms(Integer count, Integer genreId, Integer year);
+
+    List<Long> findPopularFilmIds(Integer count, Integer genreId, Integer year);
+
+    List<Film> searchFilms(String query, Integer limit);
+
+    Map<String, Object> getCacheStats();
 }
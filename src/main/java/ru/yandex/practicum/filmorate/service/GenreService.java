@@ -9,4 +9,6 @@ public interface GenreService {
     Collection<Genre> findAllGenre();
 
     Genre findGenreById(int id);
+
+    Collection<Genre> refresh();
 }
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.dao.impl.LikeDaoImpl;
+
+/**
+ * Разовая задача пересчета счетчиков лайков фильмов по таблице likes.
+ * Выполняется при старте приложения, если задано свойство filmorate.likes.rebuild-counts=true
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.likes.rebuild-counts", havingValue = "true")
+@Slf4j
+public class LikeCountRebuildJob implements ApplicationRunner {
+
+    private final LikeDaoImpl likeDao;
+
+    public LikeCountRebuildJob(LikeDaoImpl likeDao) {
+        this.likeDao = likeDao;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        log.info("Запущен пересчет счетчиков лайков");
+        likeDao.rebuildLikeCounts();
+    }
+}
@@ -9,4 +9,6 @@ public interface MpaService {
     Collection<Mpa> findAllMpa();
 
     Mpa findMpaById(int id);
+
+    Collection<Mpa> refresh();
 }
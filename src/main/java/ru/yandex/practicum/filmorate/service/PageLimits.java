@@ -0,0 +1,38 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
+
+/**
+ * Класс ограничений размера страницы при постраничном получении списков
+ */
+@Component
+@Slf4j
+public class PageLimits {
+    private final int defaultLimit;
+    private final int maxLimit;
+
+    public PageLimits(@Value("${filmorate.pagination.default-limit:50}") int defaultLimit,
+                      @Value("${filmorate.pagination.max-limit:500}") int maxLimit) {
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Метод получения размера страницы с учетом ограничений сервера
+     * @param limit - запрошенный размер страницы, может быть null
+     * @return - размер страницы не больше максимального
+     */
+    public int resolve(Integer limit) {
+        if (limit == null) {
+            return defaultLimit;
+        }
+        if (limit <= 0) {
+            log.error("Передан некорректный размер страницы: {}", limit);
+            throw new ValidationException("Размер страницы должен быть положительным.");
+        }
+        return Math.min(limit, maxLimit);
+    }
+}
@@ -1,9 +1,13 @@
 package ru.yandex.practicum.filmorate.service;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Интерфейс сервисного слоя для работы с пользователями
@@ -12,10 +16,16 @@ public interface UserService {
 
     Collection<User> findAllUsers();
 
+    Page<User> findUsersPage(Long after, Integer limit);
+
+    void exportUsers(Consumer<User> consumer);
+
     User findUserById(long id);
 
     User createUser(User user);
 
+    BatchResult createUsers(List<User> users);
+
     User updateUser(User user);
 
     User addFriend(long id, long friendId);
@@ -25,4 +35,8 @@ public interface UserService {
     List<User> findAllFriends(long id);
 
     List<User> findMutualFriends(long id, long otherId);
+
+    List<User> findFriendSuggestions(long id, Integer limit);
+
+    List<Film> findRecommendations(long id, Integer limit);
 }
@@ -1,13 +1,19 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.Film;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
 
     Film addFilm(Film film);
 
+    BatchResult addFilms(List<Film> films);
+
     void removeFilm(long id);
 
     Film updateFilm(Film updateFilm);
@@ -15,4 +21,26 @@ public interface FilmStorage {
     Collection<Film> getAllFilms();
 
     Film findFilmById(long id);
+
+    List<Film> getFilmsAfter(long afterId, int limit);
+
+    void streamAllFilms(Consumer<Film> consumer);
+
+    List<Film> findFilmsByIds(List<Long> ids);
+
+    /**
+     * Метод сброса сохраненной копии фильма после изменения его лайков в обход хранилища.
+     * Хранилищам, которые не держат копии фильмов, ничего делать не нужно
+     * @param id - id фильма
+     */
+    default void invalidate(long id) {
+    }
+
+    /**
+     * Метод получения статистики кэша хранилища
+     * @return - Map, ключ - название показателя, значение - его величина
+     */
+    default Map<String, Object> getStats() {
+        return Map.of("enabled", false);
+    }
 }
@@ -1,13 +1,18 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.BatchResult;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
 
     User createUser(User user);
 
+    BatchResult addUsers(List<User> users);
+
     void removeUser(long id);
 
     User updateUser(User updateUser);
@@ -15,4 +20,8 @@ public interface UserStorage {
     Collection<User> getAllUsers();
 
     User findUserById(long id);
+
+    List<User> getUsersAfter(long afterId, int limit);
+
+    void streamAllUsers(Consumer<User> consumer);
 }
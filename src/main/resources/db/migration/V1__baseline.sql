@@ -7,7 +7,6 @@ CREATE TABLE IF NOT EXISTS users
     birthday date
     );
 
-ALTER TABLE users ALTER COLUMN id RESTART WITH 1;
 ALTER TABLE users ADD CONSTRAINT IF NOT EXISTS constraint_unique_email UNIQUE (email);
 ALTER TABLE users ADD CONSTRAINT IF NOT EXISTS constraint_unique_login UNIQUE (login);
 
@@ -40,12 +39,13 @@ CREATE TABLE IF NOT EXISTS films
     REFERENCES mpa (id) ON DELETE CASCADE
     );
 
-ALTER TABLE films ALTER COLUMN id RESTART WITH 1;
-
 ALTER TABLE films ADD CONSTRAINT IF NOT EXISTS fk_mpa_id_cascade FOREIGN KEY (mpa_id)
     REFERENCES mpa (id) ON DELETE CASCADE;
 ALTER TABLE films DROP CONSTRAINT IF EXISTS fk_mpa_id;
 
+ALTER TABLE films ADD COLUMN IF NOT EXISTS like_count int NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_films_like_count ON films (like_count DESC, id);
+
 
 CREATE TABLE IF NOT EXISTS genre_film
 (
@@ -99,5 +99,3 @@ ALTER TABLE friends ADD CONSTRAINT IF NOT EXISTS fk_user_id_friends_cascade FORE
 
 ALTER TABLE friends ADD CONSTRAINT IF NOT EXISTS fk_friend_id_friends_cascade FOREIGN KEY (friend_id)
     REFERENCES users (id) ON DELETE CASCADE;
-
-
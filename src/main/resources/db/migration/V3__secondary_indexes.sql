@@ -0,0 +1,10 @@
+-- Лайки и друзья пользователя: пересчет счетчиков при удалении пользователя и каскадное удаление
+CREATE INDEX IF NOT EXISTS idx_likes_user_id ON likes (user_id);
+CREATE INDEX IF NOT EXISTS idx_friends_friend_id ON friends (friend_id);
+
+-- Фильмы жанра и рейтинга: каскадное удаление из справочников
+CREATE INDEX IF NOT EXISTS idx_genre_film_genre_id ON genre_film (genre_id);
+CREATE INDEX IF NOT EXISTS idx_films_mpa_id ON films (mpa_id);
+
+-- Отбор фильмов по дате выпуска
+CREATE INDEX IF NOT EXISTS idx_films_release_date ON films (release_date);
@@ -1,39 +1,116 @@
 package ru.yandex.practicum.filmorate;
 
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.TransactionManager;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.VirtualThreadConfig;
 import ru.yandex.practicum.filmorate.dao.impl.*;
+import ru.yandex.practicum.filmorate.exception.ErrorHandler;
 import ru.yandex.practicum.filmorate.exception.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.exception.GenreNotFoundException;
 import ru.yandex.practicum.filmorate.exception.MpaNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ServiceUnavailableException;
 import ru.yandex.practicum.filmorate.exception.UserNotFoundException;
+import ru.yandex.practicum.filmorate.exception.ValidationException;
 import ru.yandex.practicum.filmorate.model.*;
 import ru.yandex.practicum.filmorate.service.DbFilmService;
+import ru.yandex.practicum.filmorate.service.DbUserService;
+import ru.yandex.practicum.filmorate.service.FilmLeaderboard;
+import ru.yandex.practicum.filmorate.service.PageLimits;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
  * Тестовый класс для проверки работы методов DAO и сервисного слоя
  */
-@SpringBootTest
+@SpringBootTest(properties = "filmorate.batch.chunk-size=100")
 @AutoConfigureTestDatabase
+@AutoConfigureMockMvc
+@Import(StatementCounter.class)
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
+@Slf4j
 class FilmorateApplicationTests {
     private final UserDbStorage userStorage;
     private final FilmDbStorage filmDbStorage;
     private final FriendDaoImpl friendDao;
     private final MpaDaoImpl mpaDao;
     private final GenreDaoImpl genreDao;
+    private final LikeDaoImpl likeDao;
     private final DbFilmService dbFilmService;
+    private final DbUserService dbUserService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MockMvc mockMvc;
+    private final CachedFilmStorage cachedFilmStorage;
+    private final TransactionTemplate transactionTemplate;
+    private final FriendGraph friendGraph;
+    private final LikeMatrix likeMatrix;
+    private final FilmSearchIndex filmSearchIndex;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final PageLimits pageLimits;
+    private final FilmLeaderboard filmLeaderboard;
+    private final ObjectMapper objectMapper;
 
     @Test
     public void testFindUserById() {
@@ -89,6 +166,67 @@ class FilmorateApplicationTests {
         assertEquals(saveUser, saveUsers.get(saveUsers.size() - 1), "Размер списка не совпадает");
     }
 
+    @Test
+    public void testFindUsersPage() {
+        for (int i = 0; i < 5; i++) {
+            userStorage.createUser(new User("page" + i + "@mail.ru", "PageLogin" + i, LocalDate.of(2000, 1, 1)));
+        }
+        List<User> allUsers = (List<User>) userStorage.getAllUsers();
+
+        List<User> pagedUsers = new ArrayList<>();
+        Long cursor = null;
+        do {
+            StatementCounter.reset();
+            Page<User> page = dbUserService.findUsersPage(cursor, 2);
+            assertEquals(1, StatementCounter.count(), "Количество запросов не совпадает");
+            assertTrue(page.getItems().size() <= 2, "Размер страницы превышает лимит");
+            pagedUsers.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(allUsers, pagedUsers, "Содержимое списка не совпадает");
+        assertThrows(ValidationException.class, () -> dbUserService.findUsersPage(null, 0));
+    }
+
+    @Test
+    public void testFindFilmsPage() {
+        Film film = new Film("pageFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, "G"));
+        film.getGenres().add(new Genre(1, "Комедия"));
+        Film saveFilm = filmDbStorage.addFilm(film);
+
+        Page<Film> page = dbFilmService.getFilmsPage(saveFilm.getId() - 1, 1);
+        assertEquals(1, page.getItems().size(), "Размер страницы не совпадает");
+        assertEquals(saveFilm, page.getItems().get(0), "Содержимое страницы не совпадает");
+        assertNull(dbFilmService.getFilmsPage(saveFilm.getId(), 1000).getNextCursor(), "Курсор не совпадает");
+    }
+
+    @Test
+    public void testExportFilmsAsNdjson() throws Exception {
+        Film film = new Film("exportFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, "G"));
+        film.getGenres().add(new Genre(1, "Комедия"));
+        film.getGenres().add(new Genre(5, "Документальный"));
+        filmDbStorage.addFilm(film);
+
+        List<Film> exported = new ArrayList<>();
+        dbFilmService.exportFilms(exported::add);
+        assertEquals(filmDbStorage.getAllFilms(), exported, "Содержимое списка не совпадает");
+
+        MvcResult result = mockMvc.perform(get("/films").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(exported.size(), body.split("\n").length, "Количество строк не совпадает");
+
+        mockMvc.perform(get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     public void testAddFriend() {
         User user1 = new User("емайл7@mail.ru", "LoginAll7", LocalDate.of(2001, 11, 11));
@@ -96,7 +234,7 @@ class FilmorateApplicationTests {
         User user2 = new User("email8@mail.ru", "Login28",
                 LocalDate.of(2000, 12, 11));
         User saveUser2 = userStorage.createUser(user2);
-        User saveUserFriend = friendDao.addFriend(saveUser1.getId(), saveUser2.getId());
+        User saveUserFriend = dbUserService.addFriend(saveUser1.getId(), saveUser2.getId());
 
         assertEquals(1, saveUserFriend.getFriends().size(), "Размер списка не совпадает");
         assertTrue(saveUserFriend.getFriends().contains(saveUser2.getId()));
@@ -109,10 +247,10 @@ class FilmorateApplicationTests {
         User user2 = new User("email10@mail.ru", "Login210",
                 LocalDate.of(2000, 12, 11));
         User saveUser2 = userStorage.createUser(user2);
-        User addFriend = friendDao.addFriend(saveUser1.getId(), saveUser2.getId());
+        User addFriend = dbUserService.addFriend(saveUser1.getId(), saveUser2.getId());
 
         assertEquals(1, addFriend.getFriends().size(), "Размер списка не совпадает");
-        addFriend = friendDao.removeFriend(saveUser1.getId(), saveUser2.getId());
+        addFriend = dbUserService.removeFriend(saveUser1.getId(), saveUser2.getId());
         assertEquals(0, addFriend.getFriends().size(), "Размер списка не совпадает");
     }
 
@@ -266,6 +404,33 @@ class FilmorateApplicationTests {
                 "Сообщения об ошибке не совпадают");
     }
 
+    @Test
+    public void testDictionaryLookupWithoutStatements() {
+        StatementCounter.reset();
+        Genre genre = genreDao.findGenreById(4);
+        Mpa mpa = mpaDao.findMpaById(3);
+        genreDao.findAllGenre();
+        mpaDao.findAllMpa();
+
+        assertEquals(0, StatementCounter.count(), "Справочник обращается к БД");
+        assertSame(genre, genreDao.findGenreById(4), "Справочник создает новые объекты");
+        assertSame(mpa, mpaDao.findMpaById(3), "Справочник создает новые объекты");
+    }
+
+    @Test
+    public void testRefreshGenreDictionary() {
+        jdbcTemplate.update("insert into genre(id, name) values (100, 'Вестерн')");
+        assertThrows(GenreNotFoundException.class, () -> genreDao.findGenreById(100));
+
+        genreDao.refresh();
+        assertEquals("Вестерн", genreDao.findGenreById(100).getName(), "Поля объекта не совпадают");
+
+        jdbcTemplate.update("delete from genre where id = 100");
+        genreDao.refresh();
+        assertThrows(GenreNotFoundException.class, () -> genreDao.findGenreById(100));
+        assertEquals(6, genreDao.findAllGenre().size(), "Размер списка не совпадает");
+    }
+
     @Test
     public void testAddLike() {
         Film film1 = new Film("nameFilm", "descriptionFilm",
@@ -350,9 +515,1090 @@ class FilmorateApplicationTests {
         List<Film> checkFilms = dbFilmService.findPopularFilms(2);
 
         assertEquals(2, checkFilms.size(), "Размер списка не совпадает");
+        saveFilm2.setLikes(Set.of(saveUser1.getId(), saveUser2.getId()));
         assertEquals(saveFilm2, checkFilms.get(0), "Элементы списка не сопадают");
     }
 
+    @Test
+    public void testFilmsLoadWithFixedStatementCount() {
+        User user = userStorage.createUser(new User("email21@mail.ru", "Login21", LocalDate.of(2000, 1, 1)));
+        addFilmsWithGenres(3, user);
+
+        StatementCounter.reset();
+        List<Film> allFilms = (List<Film>) filmDbStorage.getAllFilms();
+        int allFilmsStatements = StatementCounter.count();
+        List<Long> firstIds = filmIds(allFilms);
+        StatementCounter.reset();
+        filmDbStorage.findFilmsByIds(firstIds);
+        int byIdsStatements = StatementCounter.count();
+
+        addFilmsWithGenres(20, user);
+
+        StatementCounter.reset();
+        List<Film> moreFilms = (List<Film>) filmDbStorage.getAllFilms();
+        assertEquals(allFilmsStatements, StatementCounter.count(), "Количество запросов зависит от числа фильмов");
+        assertEquals(2, StatementCounter.count(), "Количество запросов не совпадает");
+        StatementCounter.reset();
+        List<Film> filmsByIds = filmDbStorage.findFilmsByIds(filmIds(moreFilms));
+        assertEquals(byIdsStatements, StatementCounter.count(), "Количество запросов зависит от числа фильмов");
+        assertEquals(2, StatementCounter.count(), "Количество запросов не совпадает");
+
+        assertEquals(allFilms.size() + 20, moreFilms.size(), "Размер списка не совпадает");
+        assertEquals(moreFilms, filmsByIds, "Фильмы по списку id не совпадают");
+        List<Film> genreFilms = moreFilms.stream()
+                .filter(f -> f.getName().startsWith("genreFilm"))
+                .collect(Collectors.toList());
+        assertTrue(genreFilms.stream().allMatch(f -> f.getGenres().size() == 2), "Жанры фильмов не загружены");
+        assertEquals("Драма", genreFilms.get(0).getGenres().iterator().next().getName(),
+                "Поля объекта не совпадают");
+    }
+
+    private static List<Long> filmIds(List<Film> films) {
+        return films.stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void addFilmsWithGenres(int count, User user) {
+        for (int i = 0; i < count; i++) {
+            Film film = new Film("genreFilm" + i, "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+            film.setMpa(new Mpa(1, "G"));
+            film.getGenres().add(new Genre(2, "Драма"));
+            film.getGenres().add(new Genre(4, "Триллер"));
+            Film saveFilm = filmDbStorage.addFilm(film);
+            dbFilmService.addLike(saveFilm.getId(), user.getId());
+        }
+    }
+
+    @Test
+    public void testLikeCountMaintained() {
+        Film film = new Film("countFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, "G"));
+        Film saveFilm = filmDbStorage.addFilm(film);
+        User user1 = userStorage.createUser(new User("count1@mail.ru", "CountLogin1", LocalDate.of(2000, 1, 1)));
+        User user2 = userStorage.createUser(new User("count2@mail.ru", "CountLogin2", LocalDate.of(2000, 1, 1)));
+
+        dbFilmService.addLike(saveFilm.getId(), user1.getId());
+        dbFilmService.addLike(saveFilm.getId(), user2.getId());
+        assertEquals(2, likeCount(saveFilm.getId()), "Счетчик лайков не совпадает");
+        assertThrows(ValidationException.class, () -> dbFilmService.addLike(saveFilm.getId(), user2.getId()));
+        assertEquals(2, likeCount(saveFilm.getId()), "Счетчик лайков не совпадает");
+
+        dbFilmService.removeLike(saveFilm.getId(), user1.getId());
+        assertEquals(1, likeCount(saveFilm.getId()), "Счетчик лайков не совпадает");
+
+        userStorage.removeUser(user2.getId());
+        assertEquals(0, likeCount(saveFilm.getId()), "Счетчик лайков не совпадает");
+
+        jdbcTemplate.update("update films set like_count = 42 where id = ?", saveFilm.getId());
+        likeDao.rebuildLikeCounts();
+        assertEquals(0, likeCount(saveFilm.getId()), "Счетчик лайков не пересчитан");
+    }
+
+    @Test
+    public void testLikeMatrixUpdatedAfterCommit() {
+        long filmId = addLikeBufferFilm("commitFilm");
+        long userId = addLikeBufferUsers("commitUser", 1).get(0);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(likeDao.addLike(filmId, userId), "Лайк не добавлен");
+            assertEquals(0, likeMatrix.usersOf(filmId).length, "Лайк виден в матрице до фиксации");
+            status.setRollbackOnly();
+        });
+        assertEquals(0, likeMatrix.usersOf(filmId).length, "Лайк остался в матрице после отката");
+        assertEquals(0, likeCount(filmId), "Лайк записан после отката");
+
+        assertTrue(likeDao.addLike(filmId, userId), "Лайк не добавлен");
+        assertEquals(1, likeMatrix.usersOf(filmId).length, "Лайк не попал в матрицу после фиксации");
+        transactionTemplate.executeWithoutResult(status -> {
+            userStorage.removeUser(userId);
+            status.setRollbackOnly();
+        });
+        assertEquals(1, likeMatrix.usersOf(filmId).length, "Лайк удален из матрицы после отката");
+        userStorage.removeUser(userId);
+        assertEquals(0, likeMatrix.usersOf(filmId).length, "Лайк не удален из матрицы");
+    }
+
+    private int likeCount(long filmId) {
+        return jdbcTemplate.queryForObject("select like_count from films where id = ?", Integer.class, filmId);
+    }
+
+    @Test
+    public void testLeaderboardOrder() {
+        FilmLeaderboard leaderboard = new FilmLeaderboard(filmDbStorage);
+        leaderboard.addFilm(leaderboardFilm(3));
+        leaderboard.addFilm(leaderboardFilm(1));
+        leaderboard.addFilm(leaderboardFilm(2));
+        leaderboard.changeLikes(2, 1);
+        leaderboard.changeLikes(3, 1);
+        leaderboard.changeLikes(1, 1);
+        leaderboard.changeLikes(1, 1);
+
+        assertEquals(List.of(1L, 2L, 3L), leaderboard.top(5), "Порядок фильмов не совпадает");
+        leaderboard.changeLikes(1, -2);
+        assertEquals(List.of(2L, 3L), leaderboard.top(2), "Порядок фильмов не совпадает");
+        leaderboard.removeFilm(2);
+        assertEquals(List.of(3L, 1L), leaderboard.top(5), "Порядок фильмов не совпадает");
+    }
+
+    private Film leaderboardFilm(long id) {
+        Film film = new Film("leaderboardFilm" + id, "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setId(id);
+        return film;
+    }
+
+    @Test
+    public void testLeaderboardConcurrentLikes() throws InterruptedException {
+        FilmLeaderboard leaderboard = new FilmLeaderboard(filmDbStorage);
+        int threads = 8;
+        int likesPerThread = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            long filmId = t % 2;
+            executor.submit(() -> {
+                for (int i = 0; i < likesPerThread; i++) {
+                    leaderboard.changeLikes(filmId, 1);
+                    leaderboard.changeLikes(filmId + 2, 1);
+                    leaderboard.changeLikes(filmId + 2, -1);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(List.of(0L, 1L, 2L, 3L), leaderboard.top(10), "Порядок фильмов не совпадает");
+    }
+
+    @Test
+    public void testPopularFilmsFromLeaderboard() {
+        Film film = new Film("leaderFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, "G"));
+        Film saveFilm = dbFilmService.addFilm(film);
+        for (int i = 0; i < 5; i++) {
+            User user = userStorage.createUser(new User("leader" + i + "@mail.ru", "LeaderLogin" + i,
+                    LocalDate.of(2000, 1, 1)));
+            dbFilmService.addLike(saveFilm.getId(), user.getId());
+        }
+
+        List<Film> popularFilms = dbFilmService.findPopularFilms(1);
+        assertEquals(1, popularFilms.size(), "Размер списка не совпадает");
+        assertEquals(saveFilm.getId(), popularFilms.get(0).getId(), "Элементы списка не сопадают");
+        assertEquals(5, popularFilms.get(0).getLikes().size(), "Лайки фильма не совпадают");
+    }
+
+    @Test
+    public void testPopularFilmsByGenreAndYear() throws Exception {
+        Film comedy = addFacetFilm("facetComedy", 1931, 1);
+        Film drama = addFacetFilm("facetDrama", 1931, 2);
+        Film comedyDrama = addFacetFilm("facetComedyDrama", 1931, 1, 2);
+        Film oldComedy = addFacetFilm("facetOldComedy", 1929, 1);
+        List<Long> userIds = addLikeBufferUsers("facetUser", 3);
+        for (int i = 0; i < 3; i++) {
+            dbFilmService.addLike(comedyDrama.getId(), userIds.get(i));
+        }
+        dbFilmService.addLike(comedy.getId(), userIds.get(0));
+        dbFilmService.addLike(oldComedy.getId(), userIds.get(0));
+        dbFilmService.addLike(oldComedy.getId(), userIds.get(1));
+
+        assertEquals(List.of(comedyDrama.getId(), comedy.getId(), drama.getId()), popularIds(10, null, 1931),
+                "Фильтр по году не совпадает");
+        assertEquals(List.of(comedyDrama.getId(), comedy.getId()), popularIds(10, 1, 1931),
+                "Фильтр по жанру и году не совпадает");
+        assertEquals(List.of(comedyDrama.getId()), popularIds(1, 1, 1931), "Ограничение количества не соблюдено");
+        List<Long> comedies = popularIds(1000, 1, null);
+        assertTrue(comedies.indexOf(comedyDrama.getId()) < comedies.indexOf(oldComedy.getId())
+                && comedies.indexOf(oldComedy.getId()) < comedies.indexOf(comedy.getId())
+                && !comedies.contains(drama.getId()), "Фильтр по жанру не совпадает");
+
+        Film updated = new Film("facetComedy", "descriptionFilm", LocalDate.of(1929, 1, 1), 120);
+        updated.setId(comedy.getId());
+        updated.setMpa(new Mpa(1, null));
+        updated.getGenres().add(new Genre(2, null));
+        dbFilmService.updateFilm(updated);
+        assertEquals(List.of(comedyDrama.getId()), popularIds(10, 1, 1931), "Обновление жанров не учтено");
+        assertEquals(List.of(oldComedy.getId(), comedy.getId()), popularIds(10, null, 1929),
+                "Обновление года не учтено");
+
+        dbFilmService.removeFilm(oldComedy.getId());
+        assertEquals(List.of(comedy.getId()), popularIds(10, null, 1929), "Удаление не учтено");
+        assertEquals(List.of(), popularIds(10, 6, 1929), "Фильтр по жанру без фильмов должен давать пустой список");
+
+        mockMvc.perform(get("/films/popular").param("count", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular").param("genreId", "2").param("year", "1931"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].id").value(comedyDrama.getId()))
+                .andExpect(jsonPath("$[1].id").value(drama.getId()));
+
+        for (Film film : List.of(comedy, drama, comedyDrama)) {
+            dbFilmService.removeFilm(film.getId());
+        }
+    }
+
+    @Test
+    public void testPopularFilmsAfterUserRemoval() {
+        Film first = addFacetFilm("removalFirst", 1911, 1);
+        Film second = addFacetFilm("removalSecond", 1911, 1);
+        List<Long> userIds = addLikeBufferUsers("removalUser", 5);
+        for (int i = 0; i < 3; i++) {
+            dbFilmService.addLike(first.getId(), userIds.get(i));
+        }
+        dbFilmService.addLike(second.getId(), userIds.get(3));
+        dbFilmService.addLike(second.getId(), userIds.get(4));
+        assertEquals(List.of(first.getId(), second.getId()), popularIds(10, null, 1911),
+                "Порядок фильмов не совпадает");
+        assertEquals(3, dbFilmService.findFilmById(first.getId()).getLikes().size(), "Лайки фильма не совпадают");
+
+        userStorage.removeUser(userIds.get(0));
+        userStorage.removeUser(userIds.get(1));
+        assertEquals(List.of(second.getId(), first.getId()), popularIds(10, null, 1911),
+                "Лайки удаленных пользователей остались в рейтинге");
+        assertEquals(Set.of(userIds.get(2)), dbFilmService.findFilmById(first.getId()).getLikes(),
+                "Лайки удаленных пользователей остались в кэше");
+
+        dbFilmService.removeFilm(first.getId());
+        dbFilmService.removeFilm(second.getId());
+    }
+
+    private Film addFacetFilm(String name, int year, int... genreIds) {
+        Film film = new Film(name, "descriptionFilm", LocalDate.of(year, 6, 1), 120);
+        film.setMpa(new Mpa(1, null));
+        for (int genreId : genreIds) {
+            film.getGenres().add(new Genre(genreId, null));
+        }
+        return dbFilmService.addFilm(film);
+    }
+
+    private List<Long> popularIds(int count, Integer genreId, Integer year) {
+        return dbFilmService.findPopularFilms(count, genreId, year).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testFilmCache() {
+        Film film = new Film("cacheFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, "G"));
+        Film saveFilm = dbFilmService.addFilm(film);
+        User user = userStorage.createUser(new User("cache@mail.ru", "CacheLogin", LocalDate.of(2000, 1, 1)));
+
+        dbFilmService.findFilmById(saveFilm.getId());
+        StatementCounter.reset();
+        Film cachedFilm = dbFilmService.findFilmById(saveFilm.getId());
+        assertEquals(0, StatementCounter.count(), "Фильм не получен из кэша");
+        cachedFilm.getGenres().add(new Genre(1, "Комедия"));
+        assertTrue(dbFilmService.findFilmById(saveFilm.getId()).getGenres().isEmpty(), "Кэш изменен извне");
+
+        Film updateFilm = new Film("cacheFilm", "updateDescription", LocalDate.of(2000, 12, 11), 120);
+        updateFilm.setId(saveFilm.getId());
+        updateFilm.setMpa(new Mpa(2, "PG"));
+        dbFilmService.updateFilm(updateFilm);
+        assertEquals("updateDescription", dbFilmService.findFilmById(saveFilm.getId()).getDescription(),
+                "Кэш не сброшен при обновлении");
+
+        long hits = (long) dbFilmService.getCacheStats().get("hits");
+        dbFilmService.addLike(saveFilm.getId(), user.getId());
+        assertEquals(hits, (long) dbFilmService.getCacheStats().get("hits"), "Кэш не сброшен при лайке");
+
+        dbFilmService.removeFilm(saveFilm.getId());
+        assertThrows(FilmNotFoundException.class, () -> dbFilmService.findFilmById(saveFilm.getId()));
+    }
+
+    @Test
+    public void testFilmCacheInvalidatedDuringBatchLoad() {
+        FilmDbStorage database = Mockito.mock(FilmDbStorage.class);
+        CachedFilmStorage storage = new CachedFilmStorage(database, true, 100, Duration.ofMinutes(10));
+        Film staleFilm = new Film("raceFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        staleFilm.setId(1);
+        Film freshFilm = staleFilm.copy();
+        freshFilm.getLikes().add(1L);
+        Film otherFilm = staleFilm.copy();
+        otherFilm.setId(2);
+        Mockito.when(database.findFilmsByIds(List.of(1L, 2L))).thenAnswer(invocation -> {
+            storage.invalidate(1);
+            return List.of(staleFilm, otherFilm);
+        });
+        Mockito.when(database.findFilmById(1)).thenReturn(freshFilm);
+
+        assertEquals(List.of(staleFilm, otherFilm), storage.findFilmsByIds(List.of(1L, 2L)),
+                "Фильмы по списку id не совпадают");
+        assertEquals(freshFilm, storage.findFilmById(1), "Сброс кэша во время загрузки потерян");
+        assertEquals(otherFilm, storage.findFilmById(2), "Фильм не получен из кэша");
+        Mockito.verify(database, Mockito.never()).findFilmById(2);
+    }
+
+    @Test
+    public void testAddFilmsBatch() {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            Film film = new Film("batchFilm" + i, "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+            film.setMpa(new Mpa(1 + i % 5, null));
+            film.getGenres().add(new Genre(1 + i % 6, null));
+            films.add(film);
+        }
+        Film invalidFilm = new Film("batchFilm", "descriptionFilm", LocalDate.of(1800, 1, 1), 120);
+        invalidFilm.setMpa(new Mpa(1, "G"));
+        films.add(10, invalidFilm);
+        Film unknownMpaFilm = new Film("batchFilm", "descriptionFilm", LocalDate.of(2000, 1, 1), 120);
+        unknownMpaFilm.setMpa(new Mpa(999, null));
+        films.add(20, unknownMpaFilm);
+
+        StatementCounter.reset();
+        BatchResult result = dbFilmService.addFilms(films);
+        assertEquals(6, StatementCounter.count(), "Фильмы записаны не пакетами");
+
+        assertEquals(films.size(), result.getIds().size(), "Размер списка не совпадает");
+        assertEquals(2, result.getErrors().size(), "Количество ошибок не совпадает");
+        assertEquals(10, result.getErrors().get(0).getIndex(), "Позиция ошибки не совпадает");
+        assertEquals(20, result.getErrors().get(1).getIndex(), "Позиция ошибки не совпадает");
+        assertNull(result.getIds().get(10), "Некорректный фильм добавлен");
+
+        Film savedFilm = dbFilmService.findFilmById(result.getIds().get(251));
+        assertEquals("batchFilm249", savedFilm.getName(), "Поля фильма не совпадают");
+        assertEquals(new Genre(1 + 249 % 6, null), savedFilm.getGenres().iterator().next(),
+                "Жанры фильма не совпадают");
+    }
+
+    @Test
+    public void testAddUsersBatch() {
+        User existingUser = dbUserService.createUser(new User("batchExisting@mail.ru", "batchExisting",
+                LocalDate.of(1990, 1, 1)));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            users.add(new User("batchUser" + i + "@mail.ru", "batchUser" + i, LocalDate.of(1990, 1, 1)));
+        }
+        users.add(5, new User("batchUser1@mail.ru", "batchUserCopy", LocalDate.of(1990, 1, 1)));
+        users.add(15, new User("batchUserInvalid", "batchUserInvalid", LocalDate.of(1990, 1, 1)));
+        users.add(25, new User("batchOther@mail.ru", existingUser.getLogin(), LocalDate.of(1990, 1, 1)));
+
+        StatementCounter.reset();
+        BatchResult result = dbUserService.createUsers(users);
+        assertEquals(4, StatementCounter.count(), "Пользователи записаны не пакетами");
+
+        assertEquals(users.size(), result.getIds().size(), "Размер списка не совпадает");
+        assertEquals(3, result.getErrors().size(), "Количество ошибок не совпадает");
+        assertEquals(5, result.getErrors().get(0).getIndex(), "Позиция ошибки не совпадает");
+        assertEquals(15, result.getErrors().get(1).getIndex(), "Позиция ошибки не совпадает");
+        assertEquals(25, result.getErrors().get(2).getIndex(), "Позиция ошибки не совпадает");
+        assertNull(result.getIds().get(25), "Пользователь с занятым логином добавлен");
+
+        User savedUser = dbUserService.findUserById(result.getIds().get(users.size() - 1));
+        assertEquals("batchUser149", savedUser.getLogin(), "Поля пользователя не совпадают");
+        assertEquals("batchUser149", savedUser.getName(), "Имя пользователя не заполнено");
+    }
+
+    @Test
+    public void testAddUsersBatchWithDatabaseError() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(new User("batchDbUser" + i + "@mail.ru", "batchDbUser" + i, LocalDate.of(1990, 1, 1)));
+        }
+        users.get(1).setName("n".repeat(101));
+
+        BatchResult result = dbUserService.createUsers(users);
+        assertEquals(1, result.getErrors().size(), "Количество ошибок не совпадает");
+        assertEquals(1, result.getErrors().get(0).getIndex(), "Позиция ошибки не совпадает");
+        assertNull(result.getIds().get(1), "Пользователь со слишком длинным именем добавлен");
+        assertEquals("batchDbUser0", dbUserService.findUserById(result.getIds().get(0)).getLogin(),
+                "Пользователь порции не добавлен");
+        assertEquals("batchDbUser2", dbUserService.findUserById(result.getIds().get(2)).getLogin(),
+                "Пользователь порции не добавлен");
+    }
+
+    @Test
+    public void testEndpointStatementLimits() throws Exception {
+        Film film = new Film("limitFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        long filmId = dbFilmService.addFilm(film).getId();
+        long userId = dbUserService.createUser(new User("limitUser1@mail.ru", "limitUser1",
+                LocalDate.of(1990, 1, 1))).getId();
+        long otherId = dbUserService.createUser(new User("limitUser2@mail.ru", "limitUser2",
+                LocalDate.of(1990, 1, 1))).getId();
+        String filmJson = "{\"id\":" + filmId + ",\"name\":\"limitFilm\",\"description\":\"description\","
+                + "\"releaseDate\":\"2000-12-11\",\"duration\":100,\"mpa\":{\"id\":2},\"genres\":[{\"id\":1}]}";
+        String userJson = "{\"id\":" + userId + ",\"email\":\"limitUser1@mail.ru\",\"login\":\"limitUser1\","
+                + "\"name\":\"limit\",\"birthday\":\"1990-01-01\"}";
+
+        assertStatements(3, 200, put("/films").contentType(MediaType.APPLICATION_JSON).content(filmJson));
+        assertStatements(2, 200, get("/films/" + filmId));
+        assertStatements(1, 404, get("/films/999"));
+        assertStatements(4, 200, put("/films/" + filmId + "/like/" + userId));
+        assertStatements(2, 400, put("/films/" + filmId + "/like/" + userId));
+        assertStatements(2, 404, put("/films/999/like/" + userId));
+        assertStatements(2, 404, put("/films/" + filmId + "/like/999"));
+        assertStatements(4, 200, delete("/films/" + filmId + "/like/" + userId));
+        assertStatements(2, 400, delete("/films/" + filmId + "/like/" + userId));
+
+        assertStatements(1, 200, put("/users").contentType(MediaType.APPLICATION_JSON).content(userJson));
+        assertStatements(1, 200, get("/users/" + userId));
+        assertStatements(1, 404, get("/users/999"));
+        assertStatements(2, 200, put("/users/" + userId + "/friends/" + otherId));
+        assertStatements(2, 200, put("/users/" + otherId + "/friends/" + userId));
+        assertStatements(2, 404, put("/users/" + userId + "/friends/999"));
+        assertStatements(1, 200, get("/users/" + userId + "/friends"));
+        assertStatements(1, 404, get("/users/999/friends"));
+        assertStatements(1, 200, get("/users/" + userId + "/friends/common/" + otherId));
+        assertStatements(1, 404, get("/users/" + userId + "/friends/common/999"));
+        assertStatements(2, 200, delete("/users/" + userId + "/friends/" + otherId));
+        assertStatements(2, 400, delete("/users/" + userId + "/friends/" + otherId));
+    }
+
+    private void assertStatements(int maxStatements, int status, MockHttpServletRequestBuilder request)
+            throws Exception {
+        StatementCounter.reset();
+        MvcResult result = mockMvc.perform(request).andReturn();
+        String endpoint = request.buildRequest(new MockServletContext()).getRequestURI();
+        assertEquals(status, result.getResponse().getStatus(), "Статус ответа не совпадает: " + endpoint);
+        assertTrue(StatementCounter.count() <= maxStatements,
+                "Превышено количество запросов к БД: " + endpoint + " - " + StatementCounter.count());
+    }
+
+    @Test
+    public void testFilmLikesLoaded() throws Exception {
+        Film film = new Film("likesFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        long filmId = filmDbStorage.addFilm(film).getId();
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            userIds.add(userStorage.createUser(new User("likesUser" + i + "@mail.ru", "likesUser" + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        for (int i = userIds.size() - 1; i >= 0; i--) {
+            likeDao.addLike(filmId, userIds.get(i));
+        }
+
+        StatementCounter.reset();
+        Film savedFilm = filmDbStorage.findFilmById(filmId);
+        assertEquals(2, StatementCounter.count(), "Лайки загружены отдельным запросом");
+        assertEquals(new HashSet<>(userIds), savedFilm.getLikes(), "Лайки фильма не совпадают");
+        assertEquals(userIds, new ArrayList<>(savedFilm.getLikes()), "Лайки не упорядочены по id");
+
+        List<Film> streamed = new ArrayList<>();
+        filmDbStorage.streamAllFilms(streamed::add);
+        Film streamedFilm = streamed.stream().filter(f -> f.getId() == filmId).findFirst().orElseThrow();
+        assertEquals(savedFilm.getLikes(), streamedFilm.getLikes(), "Лайки выгрузки не совпадают");
+
+        mockMvc.perform(get("/films/" + filmId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.likes", hasSize(3)))
+                .andExpect(jsonPath("$.likes[0]").value(userIds.get(0)));
+
+        IdSet ids = new IdSet(List.of(5L, 1L, 3L, 3L));
+        assertEquals(List.of(1L, 3L, 5L), new ArrayList<>(ids), "Элементы множества не упорядочены");
+        assertTrue(ids.remove(3L), "Элемент не удален");
+        assertFalse(ids.contains(3L), "Удаленный элемент найден");
+        assertEquals(Set.of(1L, 5L), ids, "Множества не совпадают");
+    }
+
+    @Test
+    public void testLikeWriteBufferCoalescesLikes() {
+        long filmId = addLikeBufferFilm("bufferFilm1");
+        List<Long> userIds = addLikeBufferUsers("bufferUser1", 3);
+        LikeWriteBuffer buffer = newLikeWriteBuffer();
+
+        assertTrue(buffer.addLike(filmId, userIds.get(0)), "Лайк не добавлен");
+        buffer.addLike(filmId, userIds.get(1));
+        buffer.removeLike(filmId, userIds.get(1));
+        assertEquals(1, buffer.pendingCount(), "Лайк и его удаление не сократились");
+        assertFalse(buffer.addLike(filmId, userIds.get(0)), "Повторный лайк добавлен");
+        assertFalse(buffer.removeLike(filmId, userIds.get(2)), "Удален несуществующий лайк");
+        assertThrows(FilmNotFoundException.class, () -> buffer.addLike(999, userIds.get(0)));
+        assertThrows(UserNotFoundException.class, () -> buffer.addLike(filmId, 999));
+        assertEquals(0, likeCount(filmId), "Лайк записан до сброса буфера");
+
+        StatementCounter.reset();
+        assertEquals(1, buffer.flush(), "Количество записанных изменений не совпадает");
+        assertTrue(StatementCounter.count() <= 3, "Буфер записан не пакетом");
+        assertEquals(1, likeCount(filmId), "Счетчик лайков не совпадает");
+        assertEquals(0, buffer.pendingCount(), "Буфер не очищен");
+
+        buffer.removeLike(filmId, userIds.get(0));
+        buffer.addLike(filmId, userIds.get(2));
+        buffer.flush();
+        assertEquals(Set.of(userIds.get(2)), filmDbStorage.findFilmById(filmId).getLikes(),
+                "Лайки фильма не совпадают");
+        assertEquals(1, likeCount(filmId), "Счетчик лайков не совпадает");
+    }
+
+    @Test
+    public void testLikeWriteBufferCrashRecovery() {
+        long filmId = addLikeBufferFilm("bufferFilm2");
+        long removedFilmId = addLikeBufferFilm("bufferFilm3");
+        List<Long> userIds = addLikeBufferUsers("bufferUser2", 2);
+
+        LikeWriteBuffer crashed = newLikeWriteBuffer();
+        crashed.addLike(filmId, userIds.get(0));
+        crashed.flush();
+        crashed.addLike(filmId, userIds.get(1));
+        crashed.removeLike(filmId, userIds.get(0));
+        assertEquals(2, crashed.pendingCount(), "Количество изменений в буфере не совпадает");
+
+        Integer storedLikes = jdbcTemplate.queryForObject("select count(*) from likes where film_id = ?",
+                Integer.class, filmId);
+        assertEquals(1, storedLikes, "Потеряны записанные лайки");
+        assertEquals(storedLikes, likeCount(filmId), "Счетчик лайков не согласован с таблицей likes");
+
+        LikeWriteBuffer restarted = newLikeWriteBuffer();
+        assertFalse(restarted.addLike(filmId, userIds.get(0)), "Записанный лайк потерян");
+        restarted.addLike(filmId, userIds.get(1));
+        restarted.addLike(removedFilmId, userIds.get(0));
+        filmDbStorage.removeFilm(removedFilmId);
+        restarted.stop();
+
+        assertEquals(0, restarted.pendingCount(), "Буфер не сброшен при остановке");
+        assertEquals(2, likeCount(filmId), "Счетчик лайков не совпадает");
+        assertEquals(Set.of(userIds.get(0), userIds.get(1)), filmDbStorage.findFilmById(filmId).getLikes(),
+                "Лайки фильма не совпадают");
+    }
+
+    @Test
+    public void testLikeWriteBufferFlushFailureAtLimit() {
+        long filmId = addLikeBufferFilm("bufferFilm4");
+        List<Long> userIds = addLikeBufferUsers("bufferUser4", 5);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        TransactionTemplate failingTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager()) {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                if (failing.get()) {
+                    throw new CannotCreateTransactionException("Нет соединения с БД");
+                }
+                return super.execute(action);
+            }
+        };
+        LikeWriteBuffer buffer = new LikeWriteBuffer(jdbcTemplate, failingTemplate, cachedFilmStorage, likeMatrix,
+                true, 2, Duration.ofHours(1));
+        buffer.start();
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.addLike(filmId, userIds.get(i)), "Лайк не добавлен при ошибке сброса");
+        }
+        assertThrows(ServiceUnavailableException.class, () -> buffer.addLike(filmId, userIds.get(4)));
+        assertEquals(4, buffer.pendingCount(), "Буфер вырос больше предела");
+        assertEquals(0, likeCount(filmId), "Лайки записаны при ошибке сброса");
+
+        failing.set(false);
+        buffer.flush();
+        assertEquals(0, buffer.pendingCount(), "Буфер не сброшен");
+        assertEquals(4, likeCount(filmId), "Счетчик лайков не совпадает");
+        assertTrue(buffer.addLike(filmId, userIds.get(4)), "Лайк не добавлен после сброса");
+        buffer.stop();
+        assertEquals(5, likeCount(filmId), "Счетчик лайков не совпадает");
+        filmDbStorage.removeFilm(filmId);
+    }
+
+    private LikeWriteBuffer newLikeWriteBuffer() {
+        return new LikeWriteBuffer(jdbcTemplate, transactionTemplate, cachedFilmStorage, likeMatrix, true, 100,
+                Duration.ofHours(1));
+    }
+
+    private long addLikeBufferFilm(String name) {
+        Film film = new Film(name, "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        return filmDbStorage.addFilm(film).getId();
+    }
+
+    private List<Long> addLikeBufferUsers(String login, int count) {
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            userIds.add(userStorage.createUser(new User(login + i + "@mail.ru", login + i,
+                    LocalDate.of(1990, 1, 1))).getId());
+        }
+        return userIds;
+    }
+
+    @Test
+    public void testConcurrentLikeAndFriendWrites() throws InterruptedException {
+        long filmId = addLikeBufferFilm("stressFilm");
+        List<Long> userIds = addLikeBufferUsers("stressUser", 2);
+        long userId = userIds.get(0);
+        long friendId = userIds.get(1);
+        int threads = 8;
+        int iterations = 50;
+        AtomicInteger likesAdded = new AtomicInteger();
+        AtomicInteger likesRemoved = new AtomicInteger();
+        AtomicInteger friendsAdded = new AtomicInteger();
+        AtomicInteger friendsRemoved = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            executor.submit(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    try {
+                        countSuccess(() -> dbFilmService.addLike(filmId, userId), likesAdded);
+                        countSuccess(() -> dbFilmService.removeLike(filmId, userId), likesRemoved);
+                        countSuccess(() -> dbUserService.addFriend(userId, friendId), friendsAdded);
+                        countSuccess(() -> dbUserService.removeFriend(userId, friendId), friendsRemoved);
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        log.info("Конкурентные записи лайков и друзей: {} операций за {} мс, {} оп/с", threads * iterations * 4,
+                elapsedMs, threads * iterations * 4 * 1000L / elapsedMs);
+
+        assertTrue(failures.isEmpty(), "Ошибки при конкурентной записи: " + failures);
+        Integer likes = jdbcTemplate.queryForObject("select count(*) from likes where film_id = ? and user_id = ?",
+                Integer.class, filmId, userId);
+        assertEquals(likesAdded.get() - likesRemoved.get(), likes, "Лайки не согласованы с ответами");
+        assertEquals(likes, likeCount(filmId), "Счетчик лайков не согласован с таблицей likes");
+        Integer friends = jdbcTemplate.queryForObject("select count(*) from friends where user_id = ? "
+                + "and friend_id = ?", Integer.class, userId, friendId);
+        assertEquals(friendsAdded.get() - friendsRemoved.get(), friends, "Друзья не согласованы с ответами");
+    }
+
+    private void countSuccess(Runnable write, AtomicInteger successes) {
+        try {
+            write.run();
+            successes.incrementAndGet();
+        } catch (ValidationException e) {
+            // ожидаемый ответ 400 при повторной записи
+        }
+    }
+
+    @Test
+    public void testFriendGraph() {
+        List<Long> userIds = addLikeBufferUsers("graphUser", 5);
+        long owner = userIds.get(0);
+        long other = userIds.get(1);
+        for (int i = 4; i >= 2; i--) {
+            dbUserService.addFriend(owner, userIds.get(i));
+        }
+        dbUserService.addFriend(other, userIds.get(2));
+        dbUserService.addFriend(other, userIds.get(4));
+
+        StatementCounter.reset();
+        List<User> mutualFriends = dbUserService.findMutualFriends(owner, other);
+        assertEquals(1, StatementCounter.count(), "Общие друзья загружены не одним запросом");
+        assertEquals(List.of(userIds.get(2), userIds.get(4)),
+                mutualFriends.stream().map(User::getId).collect(Collectors.toList()), "Общие друзья не совпадают");
+        assertEquals(List.of(userIds.get(2), userIds.get(3), userIds.get(4)),
+                dbUserService.findAllFriends(owner).stream().map(User::getId).collect(Collectors.toList()),
+                "Друзья не совпадают");
+
+        dbUserService.removeFriend(other, userIds.get(4));
+        userStorage.removeUser(userIds.get(3));
+        friendGraph.load();
+        assertEquals(List.of(userIds.get(2)),
+                dbUserService.findMutualFriends(owner, other).stream().map(User::getId).collect(Collectors.toList()),
+                "Общие друзья после перестроения графа не совпадают");
+        assertEquals(List.of(userIds.get(2), userIds.get(4)),
+                dbUserService.findAllFriends(owner).stream().map(User::getId).collect(Collectors.toList()),
+                "Друзья после удаления пользователя не совпадают");
+        assertThrows(UserNotFoundException.class, () -> dbUserService.findAllFriends(userIds.get(3)));
+
+        assertArrayEquals(new int[]{3, 7}, FriendGraph.intersect(new int[]{1, 3, 5, 7}, new int[]{2, 3, 7, 9}),
+                "Пересечение массивов не совпадает");
+    }
+
+    @Test
+    public void testFriendSuggestions() throws Exception {
+        List<Long> userIds = addLikeBufferUsers("suggestUser", 6);
+        long owner = userIds.get(0);
+        dbUserService.addFriend(owner, userIds.get(1));
+        dbUserService.addFriend(owner, userIds.get(2));
+        dbUserService.addFriend(userIds.get(1), userIds.get(2));
+        dbUserService.addFriend(userIds.get(1), userIds.get(3));
+        dbUserService.addFriend(userIds.get(1), userIds.get(4));
+        dbUserService.addFriend(userIds.get(2), userIds.get(4));
+        dbUserService.addFriend(userIds.get(2), owner);
+
+        StatementCounter.reset();
+        List<User> suggestions = dbUserService.findFriendSuggestions(owner, null);
+        assertEquals(1, StatementCounter.count(), "Рекомендации загружены не одним запросом");
+        assertEquals(List.of(userIds.get(4), userIds.get(3)),
+                suggestions.stream().map(User::getId).collect(Collectors.toList()), "Рекомендации не совпадают");
+
+        mockMvc.perform(get("/users/" + owner + "/friends/suggestions?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(userIds.get(4)));
+        mockMvc.perform(get("/users/999/friends/suggestions"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get("/users/" + owner + "/friends/suggestions?limit=0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void testFriendSuggestionsBoundedTraversal() {
+        FriendGraph graph = new FriendGraph(jdbcTemplate);
+        int users = 20_000;
+        int friendsPerUser = 20;
+        for (long id = 1; id <= users; id++) {
+            graph.addUser(id);
+        }
+        Random random = new Random(42);
+        for (long id = 1; id <= users; id++) {
+            for (int i = 0; i < friendsPerUser; i++) {
+                graph.addFriend(id, 1 + random.nextInt(users));
+            }
+        }
+        for (long id = 2; id <= 3001; id++) {
+            graph.addFriend(1, id);
+        }
+
+        List<Long> suggestions = graph.suggest(1, 10, 3000, TimeUnit.SECONDS.toNanos(10));
+        assertEquals(10, suggestions.size(), "Размер списка не совпадает");
+        int[] direct = graph.friendsOf(1);
+        assertTrue(suggestions.stream().noneMatch(id -> id == 1 || Arrays.binarySearch(direct, id.intValue()) >= 0),
+                "В рекомендации попали сам пользователь или его друзья");
+
+        List<Long> limited = graph.suggest(1, 10, 1, TimeUnit.SECONDS.toNanos(10));
+        assertTrue(limited.size() <= 1, "Ограничение связей не соблюдено");
+        List<Long> timedOut = graph.suggest(1, 10, 3000, 0);
+        assertTrue(timedOut.size() <= friendsPerUser, "Ограничение времени не соблюдено");
+    }
+
+    @Test
+    public void testRecommendations() throws Exception {
+        List<Long> userIds = addLikeBufferUsers("recommendUser", 4);
+        List<Long> filmIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            filmIds.add(addLikeBufferFilm("recommendFilm" + i));
+        }
+        long owner = userIds.get(0);
+        likeDao.addLike(filmIds.get(0), owner);
+        likeDao.addLike(filmIds.get(1), owner);
+        for (int i = 0; i < 4; i++) {
+            likeDao.addLike(filmIds.get(i), userIds.get(1));
+        }
+        likeDao.addLike(filmIds.get(1), userIds.get(2));
+        likeDao.addLike(filmIds.get(4), userIds.get(2));
+        likeDao.addLike(filmIds.get(2), userIds.get(3));
+
+        List<Long> expected = List.of(filmIds.get(2), filmIds.get(3), filmIds.get(4));
+        assertEquals(expected, dbUserService.findRecommendations(owner, null).stream()
+                .map(Film::getId).collect(Collectors.toList()), "Рекомендации не совпадают");
+        assertEquals(expected, likeMatrix.recommend(owner, 10, 20, 1),
+                "Параллельный подсчет дал другой результат");
+        assertEquals(List.of(filmIds.get(2), filmIds.get(3)), likeMatrix.recommend(owner, 10, 1, 512),
+                "Ограничение похожих пользователей не соблюдено");
+
+        likeDao.removeLike(filmIds.get(1), owner);
+        List<Long> afterUnlike = List.of(filmIds.get(1), filmIds.get(2), filmIds.get(3));
+        assertEquals(afterUnlike, likeMatrix.recommend(owner, 10, 20, 512), "Удаление лайка не учтено");
+        likeMatrix.load();
+        assertEquals(afterUnlike, likeMatrix.recommend(owner, 10, 20, 512), "Матрица после загрузки из БД отличается");
+
+        filmDbStorage.removeFilm(filmIds.get(3));
+        userStorage.removeUser(userIds.get(2));
+        assertEquals(List.of(filmIds.get(1), filmIds.get(2)), likeMatrix.recommend(owner, 10, 20, 512),
+                "Удаление фильма и пользователя не учтено");
+
+        mockMvc.perform(get("/users/" + owner + "/recommendations?limit=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(filmIds.get(1)));
+        mockMvc.perform(get("/users/" + userIds.get(3) + "/recommendations"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/999/recommendations"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void testSearchFilms() throws Exception {
+        long exact = addSearchFilm("Ёжик в тумане", "Мультфильм про ежика и медвежонка");
+        long prefix = addSearchFilm("Ежики Зыбкинска", "Документальный фильм");
+        long described = addSearchFilm("Зыбкинские истории", "Про ежика, который искал туман");
+        Film batchFilm = new Film("Пакетный зыбкинский фильм", "description", LocalDate.of(2000, 12, 11), 120);
+        batchFilm.setMpa(new Mpa(1, null));
+        long batched = filmDbStorage.addFilms(List.of(batchFilm)).getIds().get(0);
+
+        assertEquals(List.of(exact, prefix, described), filmSearchIndex.search("ЕЖИК", 10),
+                "Порядок по релевантности не совпадает");
+        assertEquals(List.of(exact, described), filmSearchIndex.search("ежик туман", 10),
+                "Фильмы должны подходить под все слова запроса");
+        assertEquals(List.of(prefix, described, batched), filmSearchIndex.search("зыбкинск", 10),
+                "Поиск по префиксу не совпадает");
+        assertEquals(List.of(exact), filmSearchIndex.search("ежик", 1), "Ограничение количества не соблюдено");
+        assertTrue(filmSearchIndex.search("!!!", 10).isEmpty(), "Запрос без слов должен давать пустой результат");
+
+        Film updated = new Film("Зайчики", "Документальный фильм", LocalDate.of(2000, 12, 11), 120);
+        updated.setId(prefix);
+        updated.setMpa(new Mpa(1, null));
+        filmDbStorage.updateFilm(updated);
+        assertEquals(List.of(exact, described), filmSearchIndex.search("ежик", 10), "Обновление не учтено");
+        assertEquals(List.of(prefix), filmSearchIndex.search("зайчик", 10), "Обновление не учтено");
+        filmDbStorage.removeFilm(described);
+        assertEquals(List.of(exact), filmSearchIndex.search("ежик", 10), "Удаление не учтено");
+        filmSearchIndex.load();
+        assertEquals(List.of(exact), filmSearchIndex.search("ежик", 10), "Индекс после загрузки из БД отличается");
+
+        mockMvc.perform(get("/films/search").param("q", "ёжик туман").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].id").value(exact));
+        mockMvc.perform(get("/films/search").param("q", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/search"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private long addSearchFilm(String name, String description) {
+        Film film = new Film(name, description, LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        return filmDbStorage.addFilm(film).getId();
+    }
+
+    @Test
+    public void testSchemaMigrations() {
+        List<Integer> versions = jdbcTemplate.queryForList("select version from schema_version order by version",
+                Integer.class);
+        assertEquals(List.of(1, 2, 3), versions, "Применены не все миграции");
+        new SchemaMigrator(jdbcTemplate.getDataSource(), "classpath*:db/migration/", Optional.empty()).migrate();
+        assertEquals(versions, jdbcTemplate.queryForList("select version from schema_version order by version",
+                Integer.class), "Миграции применены повторно");
+        assertEquals(6, jdbcTemplate.queryForObject("select count(*) from genre", Integer.class),
+                "Справочник жанров не заполнен");
+    }
+
+    @Test
+    public void testDatabaseSnapshot(@TempDir Path dir) throws Exception {
+        addLikeBufferFilm("snapshotFilm");
+        Path file = dir.resolve("snapshot.zip");
+        DatabaseSnapshot snapshot = new DatabaseSnapshot(jdbcTemplate.getDataSource(), file.toString(),
+                Duration.ofHours(1));
+        assertFalse(snapshot.restore(), "Снимка еще нет");
+        snapshot.save();
+        assertTrue(Files.exists(file), "Снимок не записан");
+        assertFalse(snapshot.restore(), "Снимок восстановлен поверх непустой БД");
+
+        DriverManagerDataSource restoredSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:snapshotRestore;DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate restored = new JdbcTemplate(restoredSource);
+        try {
+            assertTrue(new DatabaseSnapshot(restoredSource, file.toString(), Duration.ofHours(1)).restore(),
+                    "БД не восстановлена из снимка");
+            for (String table : List.of("films", "users", "likes", "friends", "genre_film", "schema_version")) {
+                String sql = "select count(*) from " + table;
+                assertEquals(jdbcTemplate.queryForObject(sql, Integer.class),
+                        restored.queryForObject(sql, Integer.class), "Снимок таблицы " + table + " не совпадает");
+            }
+            new SchemaMigrator(restoredSource, "classpath*:db/migration/", Optional.empty()).migrate();
+            assertEquals(3, restored.queryForObject("select count(*) from schema_version", Integer.class),
+                    "Миграции применены к восстановленной БД повторно");
+        } finally {
+            restored.execute("shutdown");
+        }
+    }
+
+    @Test
+    public void testInMemoryStorages() {
+        InMemoryFilmStorage films = new InMemoryFilmStorage(filmDbStorage, likeMatrix);
+        InMemoryUserStorage users = new InMemoryUserStorage(userStorage);
+        films.load();
+        users.load();
+        List<Long> userIds = addLikeBufferUsers("memoryUser", 2);
+        users.load();
+        Film film = new Film("memoryFilm", "descriptionFilm", LocalDate.of(2000, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        film.getGenres().add(new Genre(1, null));
+        long filmId = films.addFilm(film).getId();
+        likeDao.addLike(filmId, userIds.get(0));
+
+        StatementCounter.reset();
+        Film found = films.findFilmById(filmId);
+        List<Film> page = films.getFilmsAfter(filmId - 1, 1);
+        User user = users.findUserById(userIds.get(0));
+        assertEquals(0, StatementCounter.count(), "Чтение из памяти обращается к БД");
+        assertEquals(Set.of(userIds.get(0)), found.getLikes(), "Лайки фильма не совпадают");
+        assertEquals("Комедия", found.getGenres().iterator().next().getName(), "Жанр фильма не заполнен");
+        assertEquals(filmId, page.get(0).getId(), "Страница фильмов не совпадает");
+        assertEquals("memoryUser0", user.getLogin(), "Пользователь не совпадает");
+        found.getLikes().add(userIds.get(1));
+        assertEquals(1, films.findFilmById(filmId).getLikes().size(), "Изменение копии попало в хранилище");
+
+        Film updateFilm = new Film("memoryFilmUpdated", "descriptionFilm", LocalDate.of(2001, 12, 11), 100);
+        updateFilm.setId(filmId);
+        updateFilm.setMpa(new Mpa(2, null));
+        films.updateFilm(updateFilm);
+        assertEquals("memoryFilmUpdated", films.findFilmById(filmId).getName(), "Фильм в памяти не обновлен");
+        assertEquals("memoryFilmUpdated", filmDbStorage.findFilmById(filmId).getName(), "Фильм в БД не обновлен");
+        assertEquals(1, films.findFilmById(filmId).getLikes().size(), "Лайки потеряны при обновлении");
+
+        User updateUser = new User("memoryUserUpdated@mail.ru", "memoryUserUpdated", LocalDate.of(1991, 1, 1));
+        updateUser.setId(userIds.get(1));
+        users.updateUser(updateUser);
+        assertEquals("memoryUserUpdated", users.findUserById(userIds.get(1)).getLogin(),
+                "Пользователь в памяти не обновлен");
+        assertEquals("memoryUserUpdated", userStorage.findUserById(userIds.get(1)).getLogin(),
+                "Пользователь в БД не обновлен");
+
+        films.removeFilm(filmId);
+        users.removeUser(userIds.get(1));
+        assertThrows(FilmNotFoundException.class, () -> films.findFilmById(filmId));
+        assertThrows(FilmNotFoundException.class, () -> filmDbStorage.findFilmById(filmId));
+        assertThrows(FilmNotFoundException.class, () -> films.removeFilm(filmId));
+        assertThrows(UserNotFoundException.class, () -> users.findUserById(userIds.get(1)));
+        assertThrows(UserNotFoundException.class, () -> userStorage.findUserById(userIds.get(1)));
+        users.removeUser(userIds.get(0));
+    }
+
+    @Test
+    public void testVirtualThreadExecutor() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThrows(IllegalStateException.class, VirtualThreadConfig::newVirtualThreadExecutor);
+            return;
+        }
+        ExecutorService executor = VirtualThreadConfig.newVirtualThreadExecutor();
+        try {
+            assertTrue((Boolean) executor.submit(() -> Thread.class.getMethod("isVirtual")
+                            .invoke(Thread.currentThread())).get(),
+                    "Задача выполнена не в виртуальном потоке");
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testReactiveDaos() throws Exception {
+        String jdbcUrl;
+        String userName;
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            jdbcUrl = connection.getMetaData().getURL();
+            userName = connection.getMetaData().getUserName();
+        }
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions
+                .parse("r2dbc:h2:mem:///" + jdbcUrl.substring("jdbc:h2:mem:".length()))
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, userName)
+                .option(ConnectionFactoryOptions.PASSWORD, "")
+                .build());
+        DatabaseClient databaseClient = DatabaseClient.create(connectionFactory);
+        ReactiveFilmDaoImpl reactiveFilmDao = new ReactiveFilmDaoImpl(databaseClient, genreDao, 2);
+        ReactiveUserDaoImpl reactiveUserDao = new ReactiveUserDaoImpl(databaseClient);
+
+        List<Long> userIds = addLikeBufferUsers("reactiveUser", 3);
+        Film film = new Film("reactiveFilm", "descriptionFilm", LocalDate.of(1999, 12, 11), 120);
+        film.setMpa(new Mpa(1, null));
+        film.getGenres().add(new Genre(2, null));
+        long filmId = filmDbStorage.addFilm(film).getId();
+        likeDao.addLike(filmId, userIds.get(0));
+        friendDao.addFriend(userIds.get(0), userIds.get(2));
+        friendDao.addFriend(userIds.get(1), userIds.get(2));
+
+        assertEquals(filmDbStorage.getAllFilms(), reactiveFilmDao.findAllFilms().collectList().block(),
+                "Фильмы из R2DBC не совпадают");
+        assertEquals(filmDbStorage.findFilmById(filmId), reactiveFilmDao.findFilmById(filmId).block(),
+                "Фильм из R2DBC не совпадает");
+        assertEquals(filmDbStorage.getFilmsAfter(filmId - 2, 2),
+                reactiveFilmDao.findFilmsAfter(filmId - 2, 2).collectList().block(), "Страница фильмов не совпадает");
+        List<Long> filmIds = new ArrayList<>(List.of(filmId, -1L));
+        filmIds.addAll(dbFilmService.findPopularFilmIds(3, null, null));
+        assertEquals(filmDbStorage.findFilmsByIds(filmIds), reactiveFilmDao.findFilmsByIds(filmIds)
+                .collectList().block(), "Фильмы по списку id не совпадают");
+        assertEquals(List.of(), reactiveFilmDao.findFilmsByIds(List.of()).collectList().block(),
+                "Пустой список id должен давать пустой список");
+        assertThrows(FilmNotFoundException.class, () -> reactiveFilmDao.findFilmById(-1).block());
+
+        assertEquals(userStorage.getUsersAfter(0, Integer.MAX_VALUE), reactiveUserDao.findAllUsers().collectList()
+                .block(), "Пользователи из R2DBC не совпадают");
+        assertEquals(userStorage.findUserById(userIds.get(1)), reactiveUserDao.findUserById(userIds.get(1)).block(),
+                "Пользователь из R2DBC не совпадает");
+        assertEquals(friendDao.findAllFriends(userIds.get(0)), reactiveUserDao.findAllFriends(userIds.get(0))
+                .collectList().block(), "Друзья из R2DBC не совпадают");
+        assertEquals(friendDao.findMutualFriends(userIds.get(0), userIds.get(1)),
+                reactiveUserDao.findMutualFriends(userIds.get(0), userIds.get(1)).collectList().block(),
+                "Общие друзья из R2DBC не совпадают");
+        assertThrows(UserNotFoundException.class, () -> reactiveUserDao.findAllFriends(-1).collectList().block());
+        assertThrows(UserNotFoundException.class, () -> reactiveUserDao.findMutualFriends(userIds.get(0), -1)
+                .collectList().block());
+        dbFilmService.removeFilm(filmId);
+    }
+
+    @Test
+    public void testConnectionPoolExhaustedReturns503() throws Exception {
+        long filmId = addLikeBufferFilm("poolFilm");
+        long userId = addLikeBufferUsers("poolUser", 1).get(0);
+        HikariDataSource pool = new HikariDataSource();
+        try (Connection connection = jdbcTemplate.getDataSource().getConnection()) {
+            pool.setJdbcUrl(connection.getMetaData().getURL());
+            pool.setUsername(connection.getMetaData().getUserName());
+        }
+        pool.setMaximumPoolSize(1);
+        pool.setConnectionTimeout(250);
+        ProxyFactory proxyFactory = new ProxyFactory(new LikeDaoImpl(new JdbcTemplate(pool), likeMatrix));
+        proxyFactory.setProxyTargetClass(true);
+        proxyFactory.addAdvice(new TransactionInterceptor((TransactionManager) new DataSourceTransactionManager(pool),
+                new AnnotationTransactionAttributeSource()));
+        DbFilmService filmService = new DbFilmService(cachedFilmStorage, (LikeDaoImpl) proxyFactory.getProxy(),
+                likeWriteBuffer, pageLimits, filmLeaderboard, filmSearchIndex);
+        MockMvc poolMockMvc = MockMvcBuilders.standaloneSetup(new FilmController(filmService, objectMapper))
+                .setControllerAdvice(new ErrorHandler())
+                .build();
+
+        try {
+            try (Connection held = pool.getConnection()) {
+                poolMockMvc.perform(put("/films/" + filmId + "/like/" + userId))
+                        .andExpect(status().isServiceUnavailable())
+                        .andExpect(jsonPath("$.error").value("Сервис перегружен, повторите запрос позже."));
+            }
+            poolMockMvc.perform(put("/films/" + filmId + "/like/" + userId))
+                    .andExpect(status().isOk());
+            poolMockMvc.perform(delete("/films/" + filmId + "/like/" + userId))
+                    .andExpect(status().isOk());
+        } finally {
+            pool.close();
+        }
+        assertEquals(0, likeCount(filmId), "Счетчик лайков не совпадает");
+    }
+
+    /**
+     * Запросы DAO, которые выполняются на каждый запрос к API, и пример параметров для каждого.
+     * План каждого запроса не должен содержать полного просмотра таблицы
+     */
+    @Test
+    public void testHotQueriesUseIndexes() {
+        Map<String, Object[]> hotQueries = new LinkedHashMap<>();
+        hotQueries.put("select f.*, mpa.name as mpa_name from films f join mpa on f.mpa_id = mpa.id where f.id = ?",
+                new Object[]{1});
+        hotQueries.put("select f.*, mpa.name as mpa_name from films f join mpa on f.mpa_id = mpa.id "
+                + "where f.id > ? order by f.id limit ?", new Object[]{1, 50});
+        hotQueries.put("select film_id, 0 as link_type, genre_id as link_id from genre_film where film_id in (?, ?) "
+                + "union all select film_id, 1 as link_type, user_id as link_id from likes where film_id in (?, ?)",
+                new Object[]{1, 2, 1, 2});
+        hotQueries.put("update films set like_count = like_count + 1 where id = ?", new Object[]{1});
+        hotQueries.put("update films set like_count = (select count(*) from likes where film_id = ?) where id = ?",
+                new Object[]{1, 1});
+        hotQueries.put("delete from likes where film_id = ? and user_id = ?", new Object[]{1, 1});
+        hotQueries.put("select exists(select 1 from films where id = ?) as film_exists, "
+                + "exists(select 1 from users where id = ?) as user_exists, "
+                + "exists(select 1 from likes where film_id = ? and user_id = ?) as like_exists",
+                new Object[]{1, 1, 1, 1});
+        hotQueries.put("update films set like_count = like_count - 1 "
+                + "where id in (select film_id from likes where user_id = ?)", new Object[]{1});
+        hotQueries.put("select * from users where id = ?", new Object[]{1});
+        hotQueries.put("select * from users where id > ? order by id limit ?", new Object[]{1, 50});
+        hotQueries.put("select * from users where id in (?, ?) order by id", new Object[]{1, 2});
+        hotQueries.put("select email, login from users where email in (?) "
+                + "union select email, login from users where login in (?)", new Object[]{"a@mail.ru", "a"});
+        hotQueries.put("delete from friends where user_id = ? AND friend_id = ?", new Object[]{1, 2});
+        hotQueries.put("select o.id, f.friend_id from users o left join friends f on f.user_id = o.id "
+                + "where o.id = ? order by f.friend_id", new Object[]{1});
+        // Поиск дочерних строк при каскадном удалении пользователей, жанров и рейтингов
+        hotQueries.put("select user_id from friends where friend_id = ?", new Object[]{1});
+        hotQueries.put("select film_id from genre_film where genre_id = ?", new Object[]{1});
+        hotQueries.put("select id from films where mpa_id = ?", new Object[]{1});
+        hotQueries.put("select id from films where release_date between ? and ?",
+                new Object[]{LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31)});
+
+        List<String> tableScans = new ArrayList<>();
+        hotQueries.forEach((sql, args) -> {
+            String plan = jdbcTemplate.queryForObject("explain " + sql, String.class, args);
+            if (plan.contains(".tableScan")) {
+                tableScans.add(plan);
+            }
+        });
+        assertTrue(tableScans.isEmpty(), "Запросы выполняются полным просмотром таблицы:\n"
+                + String.join("\n\n", tableScans));
+    }
+
     @Test
     void contextLoads() {
     }
@@ -0,0 +1,78 @@
+package ru.yandex.practicum.filmorate;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тестовая конфигурация, подсчитывающая количество SQL-запросов, отправленных в БД.
+ * Источник данных оборачивается прокси, который учитывает каждое создание Statement
+ */
+@TestConfiguration
+public class StatementCounter {
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
+    private static final AtomicInteger COUNT = new AtomicInteger();
+
+    /**
+     * Метод сброса счетчика запросов
+     */
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    /**
+     * Метод получения количества запросов с момента последнего сброса
+     * @return - количество запросов
+     */
+    public static int count() {
+        return COUNT.get();
+    }
+
+    @Bean
+    public static BeanPostProcessor statementCountingPostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource)) {
+                    return bean;
+                }
+                return wrap(bean, (proxy, method, args) -> {
+                    Object result = invoke(bean, method, args);
+                    return result instanceof Connection ? wrapConnection((Connection) result) : result;
+                });
+            }
+        };
+    }
+
+    private static Object wrapConnection(Connection connection) {
+        return wrap(connection, (proxy, method, args) -> {
+            if (STATEMENT_METHODS.contains(method.getName())) {
+                COUNT.incrementAndGet();
+            }
+            return invoke(connection, method, args);
+        });
+    }
+
+    private static Object wrap(Object target, InvocationHandler handler) {
+        return Proxy.newProxyInstance(target.getClass().getClassLoader(),
+                ClassUtils.getAllInterfacesForClass(target.getClass()), handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}